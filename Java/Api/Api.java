@@ -1,29 +1,74 @@
 package com.example.mylist_betalist.Api;
 
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
 
+import com.android.volley.AuthFailureError;
+import com.android.volley.Cache;
+import com.android.volley.DefaultRetryPolicy;
+import com.android.volley.NetworkResponse;
 import com.android.volley.Request;
 import com.android.volley.RequestQueue;
+import com.android.volley.Response;
 import com.android.volley.VolleyError;
+import com.android.volley.toolbox.BaseHttpStack;
+import com.android.volley.toolbox.BasicNetwork;
 import com.android.volley.toolbox.HttpHeaderParser;
+import com.android.volley.toolbox.HttpResponse;
 import com.android.volley.toolbox.JsonArrayRequest;
 import com.android.volley.toolbox.JsonObjectRequest;
 import com.android.volley.toolbox.StringRequest;
-import com.android.volley.toolbox.Volley;
+import com.example.mylist_betalist.Api.Interfaces.OnArrayBatchCallback;
 import com.example.mylist_betalist.Api.Interfaces.OnArrayResponseCallback;
+import com.example.mylist_betalist.Api.Interfaces.OnBatchUploadCallback;
+import com.example.mylist_betalist.Api.Interfaces.OnCircuitStateListener;
+import com.example.mylist_betalist.Api.Interfaces.OnNetworkQualityListener;
+import com.example.mylist_betalist.Api.Interfaces.OnParseStatsListener;
+import com.example.mylist_betalist.Api.Interfaces.OnRequestMetricsListener;
 import com.example.mylist_betalist.Api.Interfaces.OnResponseCallback;
+import com.example.mylist_betalist.Api.Interfaces.OnRetryListener;
 import com.example.mylist_betalist.Api.Interfaces.OnTextResponseCallback;
+import com.example.mylist_betalist.Api.Interfaces.OnTransferStatsListener;
+import com.example.mylist_betalist.Api.Interfaces.OnTypedResponseCallback;
 import com.example.mylist_betalist.Api.Interfaces.OnUploadCallback;
+import com.example.mylist_betalist.Api.Interfaces.OnUploadProgressCallback;
+import com.example.mylist_betalist.Api.Interfaces.TokenAuthenticator;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
 class Api {
     public final int GET = Request.Method.GET;
@@ -31,70 +76,1187 @@ class Api {
     public final int PUT = Request.Method.PUT;
     public final int DELETE = Request.Method.DELETE;
     public final int PATCH = Request.Method.PATCH;
-    private final Map<String, String> headers;
-    private RequestQueue queue;
+    private static final int MEMORY_CACHE_BYTES = 2 * 1024 * 1024;
+    private static final int DISK_CACHE_BYTES = 10 * 1024 * 1024;
+    public static final int STATUS_CIRCUIT_OPEN = -2;
+    private static final int STREAM_TIMEOUT_MS = 30000;
+    private static final int MAX_CONCURRENT_REQUESTS = 6;
+    private static final int MAX_MULTIPLEXED_REQUESTS = 16;
+    private static final long LANE_AGING_MS = 2000;
+    private static final int OUTBOX_BATCH_SIZE = 10;
+    private static final long OUTBOX_INTERVAL_MS = 200;
+    private static final long OUTBOX_BATCH_PAUSE_MS = 2000;
+    private static final long TOKEN_REFRESH_TIMEOUT_MS = 30000;
+    private static final int IMAGE_QUEUE_CAPACITY = 2;
+    private static final int IMAGE_DECODE_THREADS = 2;
+    private static final int IMAGE_RESIZE_THREADS = 1;
+    private static final int IMAGE_ENCODE_THREADS = 2;
+    private static final int IMAGE_UPLOAD_SLOTS = 2;
+    private static final RequestCoalescer coalescer = new RequestCoalescer();
+    private static final ExecutorService streamExecutor = Executors.newCachedThreadPool();
+    private static final Map<String, CircuitBreaker> breakers = new HashMap<>();
+    private static final LaneScheduler scheduler = new LaneScheduler(MAX_CONCURRENT_REQUESTS, LANE_AGING_MS);
+    private static final RequestMetricsCollector metrics = new RequestMetricsCollector();
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+    private static final Prefetcher prefetcher = new Prefetcher(NetworkQuality.UNKNOWN.getPrefetchLimit());
+    private static final RetryController defaultRetryController = RetryController.defaults();
+    private static volatile RequestQueue queue;
+    private static volatile Cache cache;
+    private static volatile BaseHttpStack stack = new StreamingHurlStack();
+    private static int maxConcurrentRequests = MAX_CONCURRENT_REQUESTS;
+    private static OnCircuitStateListener circuitStateListener;
+    private static int compressionThreshold = -1;
+    private static OnTransferStatsListener transferStatsListener;
+    private static volatile NetworkQualityEstimator qualityEstimator;
+    private static volatile NetworkQuality networkQuality = NetworkQuality.UNKNOWN;
+    private static volatile OnNetworkQualityListener qualityListener;
+    private static ImageUploadPipeline imagePipeline;
+    private final Set<ArrayStream<?>> streams = new HashSet<>();
+    private final Set<UploadBatch> batches = new HashSet<>();
+    private final Set<ApiCall<?>> calls = new HashSet<>();
+    private final Map<Object, Lane> lanes = new WeakHashMap<>();
+    private volatile String token;
+    private volatile Map<String, String> headers;
+    private volatile TokenRefresher refresher;
+    private volatile RetryController retryController = defaultRetryController;
+    private volatile OnParseStatsListener parseStatsListener;
+    private volatile OnRetryListener retryListener;
+    private volatile RequestBatcher batcher;
+    private volatile Outbox outbox;
 
+    /**
+     * Creates an Api sending its requests with the given token. Every instance
+     * shares the same RequestQueue, HTTP stack, cache, lanes, circuit breakers
+     * and network quality estimate, so one instance per account costs no
+     * extra threads or connections; only the headers belong to the instance.
+     * The methods that configure the shared parts are static. Cached
+     * responses are keyed by the Authorization header they were fetched
+     * with, so each account only ever reads its own.
+     *
+     * @param token The bearer token to authenticate with, or null.
+     */
     Api(@Nullable String token) {
-        this.headers = new HashMap<>();
+        this.token = token;
+        this.headers = defaultHeaders(token);
+    }
+
+    /**
+     * Replaces the token sent by the requests made from now on. The default
+     * headers are swapped as a whole, so a request never sees half of a
+     * rotation; requests already sent keep the token they were sent with,
+     * and are replayed with the new one if they fail with 401 while a
+     * {@link TokenAuthenticator} is set.
+     *
+     * @param token The new bearer token, or null to stop authenticating.
+     */
+    void setToken(@Nullable String token) {
+        applyToken(token);
+
+        TokenRefresher current = refresher;
+        if (current != null) current.onTokenChanged();
+    }
+
+    /**
+     * Sets the authenticator that obtains a new token when the server answers
+     * 401 to a request sent with the default headers. Only one refresh runs at
+     * a time: the requests failing with the expired token, and those made
+     * while the refresh runs, wait for it and are then sent again with the new
+     * token, once each. If the refresh fails, or the authenticator does not
+     * answer within 30 seconds, they fail with their 401.
+     *
+     * @param authenticator The authenticator, or null to report 401s as they
+     *                      are.
+     */
+    void setTokenAuthenticator(@Nullable TokenAuthenticator authenticator) {
+        refresher = authenticator == null ? null : new TokenRefresher(authenticator, new TokenRefresher.TokenStore() {
+            @Nullable
+            @Override
+            public String getToken() {
+                return token;
+            }
+
+            @Override
+            public void setToken(@NonNull String token) {
+                applyToken(token);
+            }
+        }, TOKEN_REFRESH_TIMEOUT_MS);
+    }
+
+    private synchronized void applyToken(@Nullable String token) {
+        this.token = token;
+        this.headers = defaultHeaders(token);
+    }
+
+    /**
+     * Returns the headers sent with every request made without headers of its
+     * own.
+     *
+     * @return The default headers, which cannot be modified.
+     */
+    @NonNull
+    Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    @NonNull
+    private static Map<String, String> defaultHeaders(@Nullable String token) {
+        Map<String, String> defaults = new HashMap<>();
 
-        headers.put("Content-Type", "application/json");
-        headers.put("Accept", "application/json");
+        defaults.put("Content-Type", "application/json");
+        defaults.put("Accept", "application/json");
 
         if (token != null) {
-            headers.put("Authorization", "Bearer " + token);
+            defaults.put("Authorization", "Bearer " + token);
         }
+
+        return Collections.unmodifiableMap(defaults);
     }
 
     /**
      * Returns a RequestQueue object that can be used to send requests to the
      * API. The RequestQueue is created with the application context, so the
      * requests will continue to be processed even if the user navigates away
-     * from the activity that initiated the request.
+     * from the activity that initiated the request. Streaming multipart uploads
+     * are written to the connection by a {@link StreamingHurlStack}, unless
+     * another stack was set with {@link #setHttpStack(BaseHttpStack, int)}, and
+     * responses are cached by a {@link TieredCache} unless another cache was
+     * set with {@link #setCache(Cache)}. Requests reach the queue through the
+     * {@link LaneScheduler}, which is why the queue runs one network thread per
+     * request the scheduler lets through. The {@link NetworkQualityEstimator}
+     * starts along with the queue. The queue is created once and shared by
+     * every Api.
      *
      * @param context The context to use to create the RequestQueue.
      * @return The RequestQueue object that can be used to send requests to the
      * API.
      */
-    private RequestQueue getQueue(@NonNull Context context) {
+    private static synchronized RequestQueue getQueue(@NonNull Context context) {
         if (queue == null) {
-            queue = Volley.newRequestQueue(context.getApplicationContext());
+            if (cache == null) {
+                File cacheDir = new File(context.getApplicationContext().getCacheDir(), "volley");
+                cache = new TieredCache(cacheDir, MEMORY_CACHE_BYTES, DISK_CACHE_BYTES);
+            }
+
+            if (stack instanceof StreamingHurlStack) {
+                ((StreamingHurlStack) stack).setMetricsCollector(metrics);
+            }
+
+            queue = new RequestQueue(cache, new BasicNetwork(stack), maxConcurrentRequests);
+            queue.addRequestFinishedListener(request -> {
+                scheduler.onFinished(request);
+
+                if (request.getTag() instanceof ApiCall) {
+                    ((ApiCall<?>) request.getTag()).onRequestFinished(request);
+                }
+            });
+            queue.addRequestEventListener((request, event) -> {
+                if (event == RequestQueue.RequestEvent.REQUEST_NETWORK_DISPATCH_STARTED && request.getTag() instanceof ApiCall) {
+                    ((ApiCall<?>) request.getTag()).onNetworkDispatch(request);
+                }
+            });
+            queue.start();
+            scheduler.setQueue(queue);
+
+            qualityEstimator = new NetworkQualityEstimator(context, Api::onNetworkQualityChanged);
+            metrics.setNetworkQualityEstimator(qualityEstimator);
+            qualityEstimator.start();
         }
 
         return queue;
     }
 
     /**
-     * Sends a request to the given URL with the given HTTP method and returns
-     * the response as a string. The response will be passed to the callback
-     * method when the request is complete.
+     * Throws if the shared RequestQueue was already created, since its cache,
+     * stack and thread count can no longer change. Must be called while
+     * holding the lock on {@code Api.class}.
+     */
+    private static void requireNoQueue() {
+        if (queue != null) {
+            throw new IllegalStateException("The HTTP stack and cache must be set before the first request is sent.");
+        }
+    }
+
+    /**
+     * Replaces the response cache used by the RequestQueue of every Api. This
+     * method must be called before the first request is sent.
+     *
+     * @param cache The cache to store responses in.
+     * @throws IllegalStateException If a request was already sent.
+     */
+    static void setCache(@NonNull Cache cache) {
+        synchronized (Api.class) {
+            requireNoQueue();
+            Api.cache = cache;
+        }
+    }
+
+    /**
+     * Replaces the HTTP stack that sends the requests of every Api and sets how
+     * many requests may run at once. This method must be called before the
+     * first request is sent. Stacks other than a {@link StreamingHurlStack} still
+     * send multipart uploads, but buffer them in memory first.
+     *
+     * @param stack                 The stack to send the requests with.
+     * @param maxConcurrentRequests The maximum number of requests running at
+     *                              once; the lane limits are reset to their
+     *                              defaults for this number.
+     * @throws IllegalStateException If a request was already sent.
+     */
+    static void setHttpStack(@NonNull BaseHttpStack stack, int maxConcurrentRequests) {
+        synchronized (Api.class) {
+            requireNoQueue();
+            scheduler.setMaxConcurrent(maxConcurrentRequests);
+            Api.stack = stack;
+            Api.maxConcurrentRequests = maxConcurrentRequests;
+
+            if (stack instanceof StreamingHurlStack) {
+                ((StreamingHurlStack) stack).setCompressionThreshold(compressionThreshold);
+                ((StreamingHurlStack) stack).setOnTransferStatsListener(transferStatsListener);
+            }
+        }
+    }
+
+    /**
+     * Gzips JSON and text request bodies of every Api of at least the given
+     * size and sends them with {@code Content-Encoding: gzip}. Only enable
+     * this for servers that accept compressed request bodies. Responses are
+     * always requested compressed and inflated transparently.
+     *
+     * @param thresholdBytes The minimum body size in bytes to compress, or a
+     *                       negative value to never compress.
+     */
+    static void setRequestCompression(int thresholdBytes) {
+        synchronized (Api.class) {
+            compressionThreshold = thresholdBytes;
+
+            if (stack instanceof StreamingHurlStack) {
+                ((StreamingHurlStack) stack).setCompressionThreshold(thresholdBytes);
+            }
+        }
+    }
+
+    /**
+     * Sets the listener that receives the request and response sizes of every
+     * request of every Api, before and after compression.
+     *
+     * @param listener The listener to invoke once a response has been read, or
+     *                 null to stop reporting.
+     */
+    static void setOnTransferStatsListener(@Nullable OnTransferStatsListener listener) {
+        synchronized (Api.class) {
+            transferStatsListener = listener;
+
+            if (stack instanceof StreamingHurlStack) {
+                ((StreamingHurlStack) stack).setOnTransferStatsListener(listener);
+            }
+        }
+    }
+
+    /**
+     * Sets the listener that receives the phase timings, sizes, retry count
+     * and cache status of every attempt of every Api once it finished.
+     *
+     * @param listener The listener to invoke after each attempt, or null to
+     *                 stop reporting.
+     */
+    static void setOnRequestMetricsListener(@Nullable OnRequestMetricsListener listener) {
+        metrics.setOnRequestMetricsListener(listener);
+    }
+
+    /**
+     * Returns the latency histogram of every route seen so far. Routes are the
+     * method, host and path of the requests with identifiers replaced by
+     * {id}, e.g. "GET api.example.com/users/{id}".
+     *
+     * @return A copy of the histograms by route, in milliseconds.
+     */
+    @NonNull
+    Map<String, LatencyHistogram> getLatencyHistograms() {
+        return metrics.getHistograms();
+    }
+
+    /**
+     * Appends a snapshot of the latency histograms to the given file as one
+     * JSON line with the count, mean, p50, p90, p99 and max of every route.
+     * This method writes to disk and should not be called on the main thread.
+     *
+     * @param file The file to append the snapshot to.
+     * @throws IOException If the file cannot be written.
+     */
+    void exportMetrics(@NonNull File file) throws IOException {
+        metrics.export(file);
+    }
+
+    /**
+     * Prepares the first requests of the app, off the main thread: creates the
+     * RequestQueue and its cache, resolves the host of each URL and opens a
+     * connection to it with a HEAD request to its root, which the HTTP stack
+     * keeps in its pool for the requests that follow. Call it at app start
+     * with the hosts the first screen needs.
+     *
+     * @param ctx  The context to use to create the RequestQueue.
+     * @param urls URLs of the hosts to connect to; only their scheme, host and
+     *             port are used.
+     */
+    void warmUp(@NonNull Context ctx, @NonNull String... urls) {
+        Context appContext = ctx.getApplicationContext();
+
+        streamExecutor.execute(() -> {
+            getQueue(appContext);
+
+            for (String url : urls) {
+                Uri parsed = Uri.parse(url);
+                String host = parsed.getHost();
+                if (host == null) continue;
+
+                try {
+                    InetAddress.getAllByName(host);
+                } catch (UnknownHostException e) {
+                    continue;
+                }
+
+                String origin = parsed.getScheme() + "://" + host + (parsed.getPort() != -1 ? ":" + parsed.getPort() : "") + "/";
+                Request<Void> request = new Request<Void>(Request.Method.HEAD, origin, null) {
+                    @Override
+                    protected Response<Void> parseNetworkResponse(NetworkResponse response) {
+                        return Response.success(null, null);
+                    }
+
+                    @Override
+                    protected void deliverResponse(Void response) {
+                    }
+                };
+
+                try {
+                    HttpResponse response = stack.executeRequest(request, new HashMap<>());
+                    InputStream content = response.getContent();
+                    if (content != null) content.close();
+                } catch (IOException | AuthFailureError ignored) {
+                }
+            }
+        });
+    }
+
+    /**
+     * Fetches a GET resource into the response cache at low priority, so a
+     * later request for it is answered from the cache. The response is kept
+     * for maxAgeMs whatever caching headers the server sent. Nothing is
+     * fetched if a fresh response is already cached, or if the
+     * {@link NetworkQuality} of the network allows no prefetching; only as
+     * many prefetches as it allows run at once. A request made while the
+     * prefetch of the same URL with the same headers is running waits for it
+     * instead of downloading the resource a second time, and the prefetch is
+     * moved to the lane of the request.
+     *
+     * @param ctx      The context to use to create the RequestQueue.
+     * @param uri      The URL of the resource to fetch.
+     * @param maxAgeMs The time in milliseconds the response is served from
+     *                 the cache.
+     * @param tag      The tag to associate with the prefetch, or null if no tag
+     *                 is desired.
+     */
+    void prefetch(@NonNull Context ctx, @NonNull String uri, long maxAgeMs, @Nullable Object tag) {
+        getQueue(ctx);
+
+        Cache responseCache = cache;
+        CachePolicy cachePolicy = CachePolicy.cacheFirst(maxAgeMs);
+        Map<String, String> prefetchHeaders = headers;
+        String key = requestKey(GET, uri, prefetchHeaders, null);
+        String cacheKey = cacheKey(GET, uri, prefetchHeaders);
+
+        streamExecutor.execute(() -> {
+            Cache.Entry cached = responseCache.get(cacheKey);
+            if (cached != null && !cached.refreshNeeded()) return;
+
+            handler.post(() -> prefetcher.prefetch(key, tag, () -> newPrefetchCall(uri, prefetchHeaders, cacheKey, responseCache, cachePolicy, tag)));
+        });
+    }
+
+    /**
+     * Creates the call of a prefetch, which stores the response in the cache
+     * under the entry dictated by the cache policy.
+     */
+    @NonNull
+    private ApiCall<NetworkResponse> newPrefetchCall(@NonNull String uri, @NonNull Map<String, String> attemptHeaders, @NonNull String cacheKey, @NonNull Cache responseCache, @NonNull CachePolicy cachePolicy, @Nullable Object tag) {
+        RequestFactory<NetworkResponse> factory = (listener, errorListener) -> {
+            Request<NetworkResponse> request = new Request<NetworkResponse>(GET, uri, errorListener) {
+                @Override
+                public Map<String, String> getHeaders() {
+                    return attemptHeaders;
+                }
+
+                @Override
+                protected Response<NetworkResponse> parseNetworkResponse(NetworkResponse response) {
+                    Cache.Entry entry = cachePolicy.entryFor(response, HttpHeaderParser.parseCacheHeaders(response));
+                    if (entry != null) responseCache.put(cacheKey, entry);
+
+                    return Response.success(response, null);
+                }
+
+                @Override
+                protected void deliverResponse(NetworkResponse response) {
+                    listener.onResponse(response);
+                }
+            };
+
+            // Stored by hand above: a cacheable request would let Volley hand
+            // this NetworkResponse to foreground requests waiting on the same
+            // cache key, which expect their own parsed type.
+            request.setShouldCache(false);
+
+            return request;
+        };
+
+        return newCall(GET, uri, factory, response -> {
+        }, error -> {
+        }, Lane.BACKGROUND, refresher, tag);
+    }
+
+    /**
+     * Returns the quality class of the current network, estimated from the
+     * round-trip times and throughput of the requests sent so far. Requests
+     * use the timeout and concurrency limit of the class, and images uploaded
+     * as bitmaps its size and quality.
+     *
+     * @return The quality class, UNKNOWN before the first request.
+     */
+    @NonNull
+    NetworkQuality getNetworkQuality() {
+        return networkQuality;
+    }
+
+    /**
+     * Returns the estimated round-trip time of the current network.
+     *
+     * @return The round-trip time in milliseconds, or -1 if not enough
+     * requests were observed yet.
+     */
+    long getEstimatedRttMs() {
+        NetworkQualityEstimator estimator = qualityEstimator;
+        return estimator != null ? estimator.getRttMs() : -1;
+    }
+
+    /**
+     * Returns the estimated downstream throughput of the current network.
+     *
+     * @return The throughput in kilobits per second, or -1 if unknown.
+     */
+    long getEstimatedThroughputKbps() {
+        NetworkQualityEstimator estimator = qualityEstimator;
+        return estimator != null ? estimator.getThroughputKbps() : -1;
+    }
+
+    /**
+     * Sets the listener that is told every time the quality class of the
+     * network changes. The estimate is shared by every Api. The listener is
+     * invoked on the main thread.
+     *
+     * @param listener The listener to invoke on each change, or null to stop
+     *                 reporting.
+     */
+    static void setOnNetworkQualityListener(@Nullable OnNetworkQualityListener listener) {
+        qualityListener = listener;
+    }
+
+    private static void onNetworkQualityChanged(@NonNull NetworkQuality from, @NonNull NetworkQuality to) {
+        networkQuality = to;
+        scheduler.setThrottle(to.getMaxConcurrent());
+        prefetcher.setLimit(to.getPrefetchLimit());
+
+        OnNetworkQualityListener listener = qualityListener;
+        if (listener != null) listener.OnQualityChanged(from, to);
+    }
+
+    /**
+     * Sends the requests through the platform's HTTP/2 engine, which
+     * multiplexes concurrent requests to a host over pooled connections, and
+     * raises the number of requests running at once accordingly. This method
+     * must be called before the first request is sent.
+     * This method requires API level 34 or higher.
+     *
+     * @param ctx The context to use to create the engine.
+     * @throws IllegalStateException If a request was already sent.
+     */
+    @RequiresApi(api = Build.VERSION_CODES.UPSIDE_DOWN_CAKE)
+    static void useHttpEngine(@NonNull Context ctx) {
+        synchronized (Api.class) {
+            requireNoQueue();
+        }
+
+        setHttpStack(HttpEngineStack.create(ctx), MAX_MULTIPLEXED_REQUESTS);
+    }
+
+    /**
+     * Returns the hit, miss and revalidation counters of the response cache.
+     * Custom caches set with {@link #setCache(Cache)} report empty counters.
+     *
+     * @return A snapshot of the cache counters.
+     */
+    @NonNull
+    CacheStats getCacheStats() {
+        if (cache instanceof TieredCache) {
+            return ((TieredCache) cache).getStats();
+        }
+
+        return new CacheStats(0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Sends a request to the given URL with the given HTTP method and returns
+     * the response as a string. The response will be passed to the callback
+     * method when the request is complete.
+     *
+     * @param ctx      The context to use to create the RequestQueue.
+     * @param uri      The URL of the resource to access.
+     * @param method   The HTTP method to use to access the resource.
+     * @param callback The callback to invoke with the response.
+     * @param tag      The tag to associate with the request, or null if no tag
+     *                 is desired.
+     */
+    void requestPlainText(@NonNull Context ctx, String uri, int method, @NonNull OnTextResponseCallback callback, @Nullable Object tag) {
+        sendPlainText(ctx, uri, method, callback::OnSuccess, error -> callback.OnFailed(handleVolleyStatus(error), handleVolleyError(error)), tag);
+    }
+
+    /**
+     * Sends the plain text request and returns the action that cancels it for
+     * this caller only.
+     */
+    @NonNull
+    private Runnable sendPlainText(@NonNull Context ctx, String uri, int method, @NonNull Response.Listener<String> onResponse, @NonNull Response.ErrorListener onError, @Nullable Object tag) {
+        getQueue(ctx);
+
+        RequestFactory<String> factory = (listener, errorListener) -> {
+            Map<String, String> attemptHeaders = headers;
+            String cacheKey = cacheKey(method, uri, attemptHeaders);
+
+            return new StringRequest(method, uri, listener, errorListener) {
+                @NonNull
+                @Override
+                public Map<String, String> getHeaders() {
+                    return attemptHeaders;
+                }
+
+                @Override
+                public String getCacheKey() {
+                    return cacheKey;
+                }
+            };
+        };
+
+        return enqueue(method, uri, headers, null, "String", factory, onResponse, onError, Lane.NORMAL, tag);
+    }
+
+    /**
+     * Sends a request to the given URL with the given HTTP method and returns
+     * the response as a JSONObject. The response will be passed to the callback
+     * method when the request is complete.
+     *
+     * @param ctx      The context to use to create the RequestQueue.
+     * @param uri      The URL of the resource to access.
+     * @param method   The HTTP method to use to access the resource.
+     * @param data     The data to send with the request, or null if no data is
+     *                 desired.
+     * @param headers  The headers to send with the request, or null if the
+     *                 default headers should be used.
+     * @param callback The callback to invoke with the response.
+     * @param tag      The tag to associate with the request, or null if no tag
+     *                 is desired.
+     */
+    void requestObject(@NonNull Context ctx, String uri, int method, @Nullable JSONObject data, @Nullable Map<String, String> headers, @NonNull OnResponseCallback callback, @Nullable Object tag) {
+        requestObject(ctx, uri, method, data, headers, null, callback, tag);
+    }
+
+    /**
+     * Sends a request to the given URL with the given HTTP method and returns
+     * the response as a JSONObject, using the given cache policy. The response
+     * will be passed to the callback method when the request is complete.
+     *
+     * @param ctx         The context to use to create the RequestQueue.
+     * @param uri         The URL of the resource to access.
+     * @param method      The HTTP method to use to access the resource.
+     * @param data        The data to send with the request, or null if no data
+     *                    is desired.
+     * @param headers     The headers to send with the request, or null if the
+     *                    default headers should be used.
+     * @param cachePolicy The cache policy of the request, or null to follow the
+     *                    caching headers of the server.
+     * @param callback    The callback to invoke with the response.
+     * @param tag         The tag to associate with the request, or null if no
+     *                    tag is desired.
+     */
+    void requestObject(@NonNull Context ctx, String uri, int method, @Nullable JSONObject data, @Nullable Map<String, String> headers, @Nullable CachePolicy cachePolicy, @NonNull OnResponseCallback callback, @Nullable Object tag) {
+        sendObject(ctx, uri, method, data, headers, cachePolicy, callback::OnSuccess, error -> callback.OnFailed(handleVolleyStatus(error), handleVolleyError(error)), tag);
+    }
+
+    /**
+     * Sends the JSONObject request and returns the action that cancels it for
+     * this caller only. Writes go through the outbox while it is enabled.
+     */
+    @NonNull
+    private Runnable sendObject(@NonNull Context ctx, String uri, int method, @Nullable JSONObject data, @Nullable Map<String, String> headers, @Nullable CachePolicy cachePolicy, @NonNull Response.Listener<JSONObject> onResponse, @NonNull Response.ErrorListener onError, @Nullable Object tag) {
+        Outbox currentOutbox = outbox;
+
+        if (currentOutbox != null && cachePolicy == null && Outbox.isWrite(method)) {
+            return sendThroughOutbox(currentOutbox, ctx, uri, method, data, headers, onResponse, onError, tag);
+        }
+
+        return sendObjectOnline(ctx, uri, method, data, headers, null, cachePolicy, onResponse, onError, tag);
+    }
+
+    /**
+     * Sends a write with an idempotency key. It is queued in the outbox instead
+     * if the device is offline or earlier writes are still queued, or once it
+     * failed with a network error after its retries.
+     */
+    @NonNull
+    private Runnable sendThroughOutbox(@NonNull Outbox currentOutbox, @NonNull Context ctx, String uri, int method, @Nullable JSONObject data, @Nullable Map<String, String> headers, @NonNull Response.Listener<JSONObject> onResponse, @NonNull Response.ErrorListener onError, @Nullable Object tag) {
+        Outbox.Entry entry = new Outbox.Entry(UUID.randomUUID().toString(), currentOutbox.getAccount(), method, uri, headers, data != null ? data.toString() : null, System.currentTimeMillis());
+
+        if (currentOutbox.mustQueue()) {
+            return currentOutbox.add(entry, onResponse, onError);
+        }
+
+        AtomicReference<Runnable> cancel = new AtomicReference<>();
+
+        cancel.set(sendObjectOnline(ctx, uri, method, data, headers, entry.id, null, onResponse, error -> {
+            if (Outbox.isNetworkError(error)) {
+                cancel.set(currentOutbox.add(entry, onResponse, onError));
+            } else {
+                onError.onErrorResponse(error);
+            }
+        }, tag));
+
+        return () -> cancel.get().run();
+    }
+
+    /**
+     * Returns the given headers plus the idempotency key of a write going
+     * through the outbox. Neither the default headers nor the caller's
+     * Authorization header are persisted, so a replay uses the current token.
+     */
+    @NonNull
+    private static Map<String, String> withIdempotencyKey(@NonNull Map<String, String> headers, @Nullable String idempotencyKey) {
+        if (idempotencyKey == null) return headers;
+
+        Map<String, String> keyed = new HashMap<>(headers);
+        keyed.put(Outbox.IDEMPOTENCY_HEADER, idempotencyKey);
+        return keyed;
+    }
+
+    /**
+     * Returns the cache key of a request: the key Volley would use, prefixed
+     * with a hash of its Authorization header. The cache is shared by every
+     * Api, so without the prefix a response cached for one account would be
+     * served to another.
+     */
+    @NonNull
+    private static String cacheKey(int method, String uri, @NonNull Map<String, String> headers) {
+        String key = method == Request.Method.GET ? uri : method + "-" + uri;
+
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if ("Authorization".equalsIgnoreCase(header.getKey()) && header.getValue() != null) {
+                return sha256(header.getValue()).substring(0, 16) + ":" + key;
+            }
+        }
+
+        return key;
+    }
+
+    /**
+     * Returns the SHA-256 of the given value in hex, used to tell accounts
+     * apart without writing their identity or token to disk.
+     */
+    @NonNull
+    private static String sha256(@NonNull String value) {
+        try {
+            StringBuilder hex = new StringBuilder();
+
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8))) {
+                hex.append(String.format("%02x", b));
+            }
+
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Sends the JSONObject request without going through the outbox. Writes
+     * without a cache policy are batched while batching is enabled, and so are
+     * reads if they were opted in.
+     */
+    @NonNull
+    private Runnable sendObjectOnline(@NonNull Context ctx, String uri, int method, @Nullable JSONObject data, @Nullable Map<String, String> headers, @Nullable String idempotencyKey, @Nullable CachePolicy cachePolicy, @NonNull Response.Listener<JSONObject> onResponse, @NonNull Response.ErrorListener onError, @Nullable Object tag) {
+        RequestBatcher currentBatcher = batcher;
+
+        if (currentBatcher != null && cachePolicy == null && currentBatcher.accepts(method, uri)) {
+            return currentBatcher.add(method, uri, idempotencyKey != null ? withIdempotencyKey(headers != null ? headers : this.headers, idempotencyKey) : headers, data, onResponse, onError, tag);
+        }
+
+        getQueue(ctx);
+
+        Map<String, String> requestHeaders = headers != null ? headers : this.headers;
+
+        RequestFactory<JSONObject> factory = (listener, errorListener) -> {
+            Map<String, String> attemptHeaders = withIdempotencyKey(headers != null ? headers : this.headers, idempotencyKey);
+            String cacheKey = cacheKey(method, uri, attemptHeaders);
+            JsonObjectRequest request = new JsonObjectRequest(method, uri, data, listener, errorListener) {
+                @NonNull
+                @Override
+                public Map<String, String> getHeaders() {
+                    return attemptHeaders;
+                }
+
+                @Override
+                public String getCacheKey() {
+                    return cacheKey;
+                }
+
+                @Override
+                protected Response<JSONObject> parseNetworkResponse(NetworkResponse response) {
+                    return applyCachePolicy(super.parseNetworkResponse(response), response, cachePolicy);
+                }
+            };
+
+            if (cachePolicy != null) request.setShouldCache(cachePolicy.shouldCache());
+
+            return request;
+        };
+
+        return enqueue(method, uri, requestHeaders, data, "JSONObject " + cachePolicy, factory, onResponse, onError, Lane.NORMAL, tag);
+    }
+
+    /**
+     * Enables batching: JSONObject requests to the host of the batch endpoint
+     * that are made within windowMs of each other are sent together as one
+     * POST to the endpoint, up to maxBatchSize at a time, and each caller gets
+     * its own result back. Requests with a cache policy are never batched,
+     * and GETs only with batchReads: a batched GET is not served from the
+     * cache, not coalesced with identical requests and not retried.
+     *
+     * @param ctx          The context to use to create the RequestQueue.
+     * @param batchUrl     The URL of the batch endpoint.
+     * @param windowMs     The time in milliseconds requests are collected
+     *                     before the batch is sent.
+     * @param maxBatchSize The number of requests that sends the batch right
+     *                     away.
+     * @param envelope     The format of the batched request and response, or
+     *                     null for {@link DefaultBatchEnvelope}.
+     * @param batchReads   Whether GET requests are batched too.
+     */
+    void enableBatching(@NonNull Context ctx, @NonNull String batchUrl, long windowMs, int maxBatchSize, @Nullable BatchEnvelope envelope, boolean batchReads) {
+        Context appContext = ctx.getApplicationContext();
+
+        disableBatching();
+        batcher = new RequestBatcher(batchUrl, windowMs, maxBatchSize, envelope != null ? envelope : new DefaultBatchEnvelope(), batchReads, (body, listener, errorListener) -> sendObjectOnline(appContext, batchUrl, POST, body, null, null, null, listener, errorListener, null));
+    }
+
+    /**
+     * Disables batching. Requests that are already waiting for their batch are
+     * sent right away.
+     */
+    void disableBatching() {
+        RequestBatcher currentBatcher = batcher;
+        batcher = null;
+
+        if (currentBatcher != null) currentBatcher.flush();
+    }
+
+    /**
+     * Enables the offline outbox. POST, PUT and PATCH requests made with
+     * requestObject without a cache policy are then sent with an
+     * {@code Idempotency-Key} header. If the device is offline, or the request
+     * fails with a network error, it is written to a log on the device and
+     * replayed in order once the network returns, with the same key, so the
+     * server can drop the duplicates of a request it already applied. Replay
+     * sends one request at a time and pauses after every few requests.
+     * Requests still queued when the process dies are replayed after the next
+     * call to this method for the same account, without callbacks.
+     * <p>
+     * Each account has its own log, and its requests are only ever replayed
+     * by the Api the outbox of that account is enabled on, so with the token
+     * of that account. The outbox of an account can be enabled on one Api at
+     * a time.
+     *
+     * @param ctx       The context to use to create the RequestQueue and to
+     *                  watch the connectivity.
+     * @param accountId The identity of the account whose token this Api
+     *                  sends, such as the user id. It is only stored hashed.
+     * @throws IllegalStateException If the outbox of the account is already
+     *                               enabled on another Api.
+     */
+    void enableOutbox(@NonNull Context ctx, @NonNull String accountId) {
+        Context appContext = ctx.getApplicationContext();
+        String account = sha256(accountId);
+        File log = new File(new File(appContext.getFilesDir(), "api_outbox"), "outbox-" + account + ".log");
+
+        disableOutbox();
+        Outbox newOutbox = new Outbox(appContext, account, log, OUTBOX_BATCH_SIZE, OUTBOX_INTERVAL_MS, OUTBOX_BATCH_PAUSE_MS, (entry, listener, errorListener) -> sendObjectOnline(appContext, entry.url, entry.method, entry.body != null ? new JSONObject(entry.body) : null, entry.headersFor(headers), entry.id, null, listener, errorListener, null));
+        newOutbox.start();
+        outbox = newOutbox;
+    }
+
+    /**
+     * Disables the offline outbox. Queued requests stay on the device and are
+     * replayed once the outbox is enabled again.
+     */
+    void disableOutbox() {
+        Outbox currentOutbox = outbox;
+        outbox = null;
+
+        if (currentOutbox != null) currentOutbox.stop();
+    }
+
+    /**
+     * Replays the requests queued in the outbox now, if the device is online
+     * and the outbox is not backing off after a failed replay. Replay also
+     * starts on its own whenever a network becomes available.
+     */
+    void replayOutbox() {
+        Outbox currentOutbox = outbox;
+
+        if (currentOutbox != null) currentOutbox.replay();
+    }
+
+    /**
+     * Returns the depth of the outbox and its replay counters.
+     *
+     * @return A snapshot of the counters, all zero while the outbox is
+     * disabled.
+     */
+    @NonNull
+    OutboxStats getOutboxStats() {
+        Outbox currentOutbox = outbox;
+
+        return currentOutbox != null ? currentOutbox.getStats() : new OutboxStats(0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Sends a request to the given URL with the given HTTP method and returns
+     * the response as a JSONArray. The response will be passed to the callback
+     * method when the request is complete.
+     *
+     * @param ctx      The context to use to create the RequestQueue.
+     * @param uri      The URL of the resource to access.
+     * @param method   The HTTP method to use to access the resource.
+     * @param data     The data to send with the request, or null if no data is
+     *                 desired.
+     * @param headers  The headers to send with the request, or null if the
+     *                 default headers should be used.
+     * @param callback The callback to invoke with the response.
+     * @param tag      The tag to associate with the request, or null if no tag
+     *                 is desired.
+     */
+    void requestArray(@NonNull Context ctx, String uri, int method, @Nullable JSONArray data, @Nullable Map<String, String> headers, @NonNull OnArrayResponseCallback callback, @Nullable Object tag) {
+        requestArray(ctx, uri, method, data, headers, null, callback, tag);
+    }
+
+    /**
+     * Sends a request to the given URL with the given HTTP method and returns
+     * the response as a JSONArray, using the given cache policy. The response
+     * will be passed to the callback method when the request is complete.
+     *
+     * @param ctx         The context to use to create the RequestQueue.
+     * @param uri         The URL of the resource to access.
+     * @param method      The HTTP method to use to access the resource.
+     * @param data        The data to send with the request, or null if no data
+     *                    is desired.
+     * @param headers     The headers to send with the request, or null if the
+     *                    default headers should be used.
+     * @param cachePolicy The cache policy of the request, or null to follow the
+     *                    caching headers of the server.
+     * @param callback    The callback to invoke with the response.
+     * @param tag         The tag to associate with the request, or null if no
+     *                    tag is desired.
+     */
+    void requestArray(@NonNull Context ctx, String uri, int method, @Nullable JSONArray data, @Nullable Map<String, String> headers, @Nullable CachePolicy cachePolicy, @NonNull OnArrayResponseCallback callback, @Nullable Object tag) {
+        sendArray(ctx, uri, method, data, headers, cachePolicy, callback::OnSuccess, error -> callback.OnFailed(handleVolleyStatus(error), handleVolleyError(error)), tag);
+    }
+
+    /**
+     * Sends the JSONArray request and returns the action that cancels it for
+     * this caller only.
+     */
+    @NonNull
+    private Runnable sendArray(@NonNull Context ctx, String uri, int method, @Nullable JSONArray data, @Nullable Map<String, String> headers, @Nullable CachePolicy cachePolicy, @NonNull Response.Listener<JSONArray> onResponse, @NonNull Response.ErrorListener onError, @Nullable Object tag) {
+        getQueue(ctx);
+
+        Map<String, String> requestHeaders = headers != null ? headers : this.headers;
+
+        RequestFactory<JSONArray> factory = (listener, errorListener) -> {
+            Map<String, String> attemptHeaders = headers != null ? headers : this.headers;
+            String cacheKey = cacheKey(method, uri, attemptHeaders);
+            JsonArrayRequest request = new JsonArrayRequest(method, uri, data, listener, errorListener) {
+                @NonNull
+                @Override
+                public Map<String, String> getHeaders() {
+                    return attemptHeaders;
+                }
+
+                @Override
+                public String getCacheKey() {
+                    return cacheKey;
+                }
+
+                @Override
+                protected Response<JSONArray> parseNetworkResponse(NetworkResponse response) {
+                    return applyCachePolicy(super.parseNetworkResponse(response), response, cachePolicy);
+                }
+            };
+
+            if (cachePolicy != null) request.setShouldCache(cachePolicy.shouldCache());
+
+            return request;
+        };
+
+        return enqueue(method, uri, requestHeaders, data, "JSONArray " + cachePolicy, factory, onResponse, onError, Lane.NORMAL, tag);
+    }
+
+    /**
+     * Adds the request built by the factory to the queue. Concurrent GET
+     * requests with the same URL, headers, body and variant share a single
+     * network request whose result is delivered to every caller. A GET request
+     * whose URL is being prefetched with the same headers waits for the
+     * prefetch and is then answered from the cache.
+     *
+     * @param method        The HTTP method of the request.
+     * @param uri           The URL of the request.
+     * @param headers       The headers sent with the request.
+     * @param data          The body of the request, or null if there is none.
+     * @param variant       Anything else that changes the response, such as the
+     *                      cache policy or the decoding adapter, or null.
+     * @param factory       Creates the request wired to the given listeners.
+     * @param listener      The listener to invoke with the response.
+     * @param errorListener The listener to invoke with the error.
+     * @param defaultLane   The lane used unless another one was set for the
+     *                      tag with {@link #setLane(Object, Lane)}.
+     * @param tag           The tag to associate with the request, or null if no
+     *                      tag is desired.
+     * @return The action that cancels the request for this caller only.
+     */
+    @NonNull
+    private <T> Runnable enqueue(int method, String uri, @NonNull Map<String, String> headers, @Nullable Object data, @Nullable Object variant, @NonNull RequestFactory<T> factory, @NonNull Response.Listener<T> listener, @NonNull Response.ErrorListener errorListener, @NonNull Lane defaultLane, @Nullable Object tag) {
+        Lane lane = laneFor(tag, defaultLane);
+        // Only requests sent with the default headers carry the token the
+        // authenticator refreshes.
+        TokenRefresher callRefresher = headers == this.headers ? refresher : null;
+
+        if (method == GET) {
+            AtomicReference<Runnable> cancel = new AtomicReference<>();
+            Runnable attached = prefetcher.attach(requestKey(method, uri, headers, data), lane, tag, () -> cancel.set(enqueueGet(method, uri, headers, data, variant, factory, listener, errorListener, lane, callRefresher, tag)));
+
+            if (attached != null) {
+                cancel.compareAndSet(null, attached);
+                return () -> cancel.get().run();
+            }
+
+            return enqueueGet(method, uri, headers, data, variant, factory, listener, errorListener, lane, callRefresher, tag);
+        }
+
+        ApiCall<T> call = newCall(method, uri, factory, listener, errorListener, lane, callRefresher, tag);
+        call.start();
+
+        return call::cancel;
+    }
+
+    /**
+     * Sends a GET request through the coalescer, so identical requests in
+     * flight share one call.
+     */
+    @NonNull
+    private <T> Runnable enqueueGet(int method, String uri, @NonNull Map<String, String> headers, @Nullable Object data, @Nullable Object variant, @NonNull RequestFactory<T> factory, @NonNull Response.Listener<T> listener, @NonNull Response.ErrorListener errorListener, @NonNull Lane lane, @Nullable TokenRefresher callRefresher, @Nullable Object tag) {
+        String key = requestKey(method, uri, headers, data) + "\n" + variant;
+        return coalescer.execute(key, tag, listener, errorListener, (sharedListener, sharedErrorListener) -> newCall(method, uri, factory, sharedListener, sharedErrorListener, lane, callRefresher, null));
+    }
+
+    /**
+     * Returns the identity of a request on the network: its method, URL,
+     * headers and body. Requests with the same identity download the same
+     * response, so the coalescer and the prefetcher share them.
+     */
+    @NonNull
+    private static String requestKey(int method, String uri, @NonNull Map<String, String> headers, @Nullable Object data) {
+        return method + " " + uri + "\n" + new TreeMap<>(headers) + "\n" + (data != null ? Integer.toHexString(data.toString().hashCode()) : "");
+    }
+
+    /**
+     * Creates a call that sends the requests built by the factory, retrying
+     * failed attempts as decided by the retry controller. The call is tracked
+     * until it finishes, so it can be cancelled by tag.
+     *
+     * @param method        The HTTP method of the request.
+     * @param uri           The URL of the request.
+     * @param factory       Creates the request of each attempt.
+     * @param listener      The listener to invoke with the response.
+     * @param errorListener The listener to invoke with the error.
+     * @param lane          The lane of the call.
+     * @param refresher     Refreshes the token on 401, or null.
+     * @param tag           The tag to associate with the call, or null if no
+     *                      tag is desired.
+     * @return The call, not started yet.
+     */
+    @NonNull
+    private <T> ApiCall<T> newCall(int method, String uri, @NonNull RequestFactory<T> factory, @NonNull Response.Listener<T> listener, @NonNull Response.ErrorListener errorListener, @NonNull Lane lane, @Nullable TokenRefresher refresher, @Nullable Object tag) {
+        ApiCall<T> call = new ApiCall<>(scheduler, lane, networkQuality.getTimeoutMs(), method, uri, factory, listener, errorListener, tag, retryController, retryListener, breakerFor(uri), metrics, refresher);
+
+        synchronized (calls) {
+            calls.add(call);
+        }
+
+        call.addOnFinishedListener(() -> {
+            synchronized (calls) {
+                calls.remove(call);
+            }
+        });
+
+        return call;
+    }
+
+    /**
+     * Replaces the retry controller used by requests sent after this call. By
+     * default every instance uses the same controller, so the retry budget is
+     * shared by all accounts.
+     *
+     * @param retryController The controller deciding whether and when failed
+     *                        requests are retried.
+     */
+    void setRetryController(@NonNull RetryController retryController) {
+        this.retryController = retryController;
+    }
+
+    /**
+     * Sets the listener that is told about every retry, with its attempt
+     * number, delay and the status of the failed attempt.
+     *
+     * @param listener The listener to invoke before each retry, or null to
+     *                 stop reporting.
+     */
+    void setOnRetryListener(@Nullable OnRetryListener listener) {
+        this.retryListener = listener;
+    }
+
+    /**
+     * Replaces the circuit breaker of a host, for hosts that need other
+     * thresholds than the defaults of {@link CircuitBreaker#defaults(String)}.
+     *
+     * @param breaker The breaker to use for the host it guards.
+     */
+    static void setCircuitBreaker(@NonNull CircuitBreaker breaker) {
+        synchronized (breakers) {
+            breaker.setOnCircuitStateListener(circuitStateListener);
+            breakers.put(breaker.getHost(), breaker);
+        }
+    }
+
+    /**
+     * Returns the state of the circuit breaker of the given host.
+     *
+     * @param host The host to check.
+     * @return The state, CLOSED if no request was sent to the host yet.
+     */
+    @NonNull
+    CircuitBreaker.State getCircuitState(@NonNull String host) {
+        synchronized (breakers) {
+            CircuitBreaker breaker = breakers.get(host);
+            return breaker != null ? breaker.getState() : CircuitBreaker.State.CLOSED;
+        }
+    }
+
+    /**
+     * Sets the listener that is told every time the circuit breaker of a host
+     * opens, becomes half-open or closes. Breakers are shared by every Api.
+     *
+     * @param listener The listener to invoke on each transition, or null to
+     *                 stop reporting.
+     */
+    static void setOnCircuitStateListener(@Nullable OnCircuitStateListener listener) {
+        synchronized (breakers) {
+            circuitStateListener = listener;
+
+            for (CircuitBreaker breaker : breakers.values()) {
+                breaker.setOnCircuitStateListener(listener);
+            }
+        }
+    }
+
+    /**
+     * Sends every request made with the given tag from now on in the given
+     * lane. Without a lane, uploads use {@link Lane#BULK} and every other
+     * request uses {@link Lane#NORMAL}. The tag is held weakly.
+     *
+     * @param tag  The tag of the requests.
+     * @param lane The lane to send them in.
+     */
+    void setLane(@NonNull Object tag, @NonNull Lane lane) {
+        synchronized (lanes) {
+            lanes.put(tag, lane);
+        }
+    }
+
+    /**
+     * Sets how many requests of a lane may run at once. The limits of all
+     * lanes together may exceed the number of requests the Api runs at once;
+     * the more urgent lanes get the free slots first.
+     *
+     * @param lane  The lane to limit.
+     * @param limit The maximum number of running requests of the lane.
+     */
+    static void setLaneLimit(@NonNull Lane lane, int limit) {
+        scheduler.setLimit(lane, limit);
+    }
+
+    /**
+     * Returns the queue depth, running requests and waiting times of a lane.
+     *
+     * @param lane The lane to get the counters of.
+     * @return A snapshot of the counters of the lane.
+     */
+    @NonNull
+    LaneStats getLaneStats(@NonNull Lane lane) {
+        return scheduler.getStats(lane);
+    }
+
+    @NonNull
+    private Lane laneFor(@Nullable Object tag, @NonNull Lane defaultLane) {
+        if (tag == null) return defaultLane;
+
+        synchronized (lanes) {
+            Lane lane = lanes.get(tag);
+            return lane != null ? lane : defaultLane;
+        }
+    }
+
+    /**
+     * Returns the circuit breaker of the host of the given URL, creating it
+     * with the default settings on first use.
      *
-     * @param ctx      The context to use to create the RequestQueue.
-     * @param uri      The URL of the resource to access.
-     * @param method   The HTTP method to use to access the resource.
-     * @param callback The callback to invoke with the response.
-     * @param tag      The tag to associate with the request, or null if no tag
-     *                 is desired.
+     * @param uri The URL of the request.
+     * @return The breaker, or null if the URL has no host.
      */
-    void requestPlainText(@NonNull Context ctx, String uri, int method, @NonNull OnTextResponseCallback callback, @Nullable Object tag) {
-        queue = getQueue(ctx);
+    @Nullable
+    private CircuitBreaker breakerFor(String uri) {
+        String host = uri != null ? Uri.parse(uri).getHost() : null;
+        if (host == null) return null;
 
-        StringRequest request = new StringRequest(method, uri, callback::OnSuccess, error -> callback.OnFailed(handleVolleyStatus(error), handleVolleyError(error))) {
-            @NonNull
-            @Override
-            public Map<String, String> getHeaders() {
-                return headers;
-            }
-        };
+        synchronized (breakers) {
+            CircuitBreaker breaker = breakers.get(host);
 
-        if (tag != null) request.setTag(tag);
+            if (breaker == null) {
+                breaker = CircuitBreaker.defaults(host);
+                breaker.setOnCircuitStateListener(circuitStateListener);
+                breakers.put(host, breaker);
+            }
 
-        queue.add(request);
+            return breaker;
+        }
     }
 
     /**
-     * Sends a request to the given URL with the given HTTP method and returns
-     * the response as a JSONObject. The response will be passed to the callback
-     * method when the request is complete.
+     * Sends a request to the given URL with the given HTTP method and decodes
+     * the JSON response with the given adapter. Decoding happens on the network
+     * thread with a streaming reader, so the callback receives the finished
+     * object without a JSONObject tree being built.
      *
      * @param ctx      The context to use to create the RequestQueue.
      * @param uri      The URL of the resource to access.
@@ -103,30 +1265,56 @@ class Api {
      *                 desired.
      * @param headers  The headers to send with the request, or null if the
      *                 default headers should be used.
-     * @param callback The callback to invoke with the response.
+     * @param adapter  The adapter that decodes the response.
+     * @param callback The callback to invoke with the decoded response.
      * @param tag      The tag to associate with the request, or null if no tag
      *                 is desired.
      */
-    void requestObject(@NonNull Context ctx, String uri, int method, @Nullable JSONObject data, @Nullable Map<String, String> headers, @NonNull OnResponseCallback callback, @Nullable Object tag) {
-        queue = getQueue(ctx);
+    <T> void requestTyped(@NonNull Context ctx, String uri, int method, @Nullable JSONObject data, @Nullable Map<String, String> headers, @NonNull TypeAdapter<T> adapter, @NonNull OnTypedResponseCallback<T> callback, @Nullable Object tag) {
+        sendTyped(ctx, uri, method, data, headers, adapter, callback::OnSuccess, error -> callback.OnFailed(handleVolleyStatus(error), handleVolleyError(error)), tag);
+    }
 
-        JsonObjectRequest request = new JsonObjectRequest(method, uri, data, callback::OnSuccess, error -> callback.OnFailed(handleVolleyStatus(error), handleVolleyError(error))) {
-            @NonNull
-            @Override
-            public Map<String, String> getHeaders() {
-                return headers != null ? headers : Api.this.headers;
-            }
-        };
+    /**
+     * Sends the typed request and returns the action that cancels it for
+     * this caller only.
+     */
+    @NonNull
+    private <T> Runnable sendTyped(@NonNull Context ctx, String uri, int method, @Nullable JSONObject data, @Nullable Map<String, String> headers, @NonNull TypeAdapter<T> adapter, @NonNull Response.Listener<T> onResponse, @NonNull Response.ErrorListener onError, @Nullable Object tag) {
+        getQueue(ctx);
 
-        if (tag != null) request.setTag(tag);
+        Map<String, String> requestHeaders = headers != null ? headers : this.headers;
+        OnParseStatsListener statsListener = parseStatsListener;
 
-        queue.add(request);
+        RequestFactory<T> factory = (listener, errorListener) -> {
+            Map<String, String> attemptHeaders = headers != null ? headers : this.headers;
+            String cacheKey = cacheKey(method, uri, attemptHeaders);
+
+            return new TypedRequest<T>(method, uri, data, adapter, listener, errorListener, statsListener) {
+                @NonNull
+                @Override
+                public Map<String, String> getHeaders() {
+                    return attemptHeaders;
+                }
+
+                @Override
+                public String getCacheKey() {
+                    return cacheKey;
+                }
+
+                @Override
+                protected Response<T> parseNetworkResponse(NetworkResponse response) {
+                    return applyCachePolicy(super.parseNetworkResponse(response), response, null);
+                }
+            };
+        };
+
+        return enqueue(method, uri, requestHeaders, data, adapter, factory, onResponse, onError, Lane.NORMAL, tag);
     }
 
     /**
-     * Sends a request to the given URL with the given HTTP method and returns
-     * the response as a JSONArray. The response will be passed to the callback
-     * method when the request is complete.
+     * Sends a request to the given URL with the given HTTP method and decodes
+     * the JSON response into an instance of the given model class, matching
+     * JSON names to field names.
      *
      * @param ctx      The context to use to create the RequestQueue.
      * @param uri      The URL of the resource to access.
@@ -135,24 +1323,237 @@ class Api {
      *                 desired.
      * @param headers  The headers to send with the request, or null if the
      *                 default headers should be used.
-     * @param callback The callback to invoke with the response.
+     * @param type     The model class to decode. It must have a no-argument
+     *                 constructor.
+     * @param callback The callback to invoke with the decoded response.
      * @param tag      The tag to associate with the request, or null if no tag
      *                 is desired.
      */
-    void requestArray(@NonNull Context ctx, String uri, int method, @Nullable JSONArray data, @Nullable Map<String, String> headers, @NonNull OnArrayResponseCallback callback, @Nullable Object tag) {
-        queue = getQueue(ctx);
+    <T> void requestTyped(@NonNull Context ctx, String uri, int method, @Nullable JSONObject data, @Nullable Map<String, String> headers, @NonNull Class<T> type, @NonNull OnTypedResponseCallback<T> callback, @Nullable Object tag) {
+        requestTyped(ctx, uri, method, data, headers, JsonAdapters.forClass(type), callback, tag);
+    }
+
+    /**
+     * Sends a request to the given URL with the given HTTP method and returns
+     * a future of the response as a string. Cancelling the future cancels the
+     * request.
+     * This method requires API level 24 or higher.
+     *
+     * @param ctx        The context to use to create the RequestQueue.
+     * @param uri        The URL of the resource to access.
+     * @param method     The HTTP method to use to access the resource.
+     * @param deadlineMs The time in milliseconds after which the request is
+     *                   cancelled and the future fails with a
+     *                   TimeoutException, or 0 for no deadline.
+     * @param tag        The tag to associate with the request, or null if no
+     *                   tag is desired.
+     * @return A future completed with the response, or exceptionally with the
+     * VolleyError of the request.
+     */
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    CompletableFuture<String> requestPlainTextAsync(@NonNull Context ctx, String uri, int method, long deadlineMs, @Nullable Object tag) {
+        return ApiFutures.send(deadlineMs, (listener, errorListener) -> sendPlainText(ctx, uri, method, listener, errorListener, tag));
+    }
+
+    /**
+     * Sends a request to the given URL with the given HTTP method and returns
+     * a future of the response as a JSONObject. Cancelling the future cancels
+     * the request. Combine several calls with
+     * {@link ApiFutures#allOf(CompletableFuture[])} to run them in parallel.
+     * This method requires API level 24 or higher.
+     *
+     * @param ctx         The context to use to create the RequestQueue.
+     * @param uri         The URL of the resource to access.
+     * @param method      The HTTP method to use to access the resource.
+     * @param data        The data to send with the request, or null if no data
+     *                    is desired.
+     * @param headers     The headers to send with the request, or null if the
+     *                    default headers should be used.
+     * @param cachePolicy The cache policy of the request, or null to follow the
+     *                    caching headers of the server.
+     * @param deadlineMs  The time in milliseconds after which the request is
+     *                    cancelled and the future fails with a
+     *                    TimeoutException, or 0 for no deadline.
+     * @param tag         The tag to associate with the request, or null if no
+     *                    tag is desired.
+     * @return A future completed with the response, or exceptionally with the
+     * VolleyError of the request.
+     */
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    CompletableFuture<JSONObject> requestObjectAsync(@NonNull Context ctx, String uri, int method, @Nullable JSONObject data, @Nullable Map<String, String> headers, @Nullable CachePolicy cachePolicy, long deadlineMs, @Nullable Object tag) {
+        return ApiFutures.send(deadlineMs, (listener, errorListener) -> sendObject(ctx, uri, method, data, headers, cachePolicy, listener, errorListener, tag));
+    }
+
+    /**
+     * Sends a request to the given URL with the given HTTP method and returns
+     * a future of the response as a JSONArray. Cancelling the future cancels
+     * the request.
+     * This method requires API level 24 or higher.
+     *
+     * @param ctx         The context to use to create the RequestQueue.
+     * @param uri         The URL of the resource to access.
+     * @param method      The HTTP method to use to access the resource.
+     * @param data        The data to send with the request, or null if no data
+     *                    is desired.
+     * @param headers     The headers to send with the request, or null if the
+     *                    default headers should be used.
+     * @param cachePolicy The cache policy of the request, or null to follow the
+     *                    caching headers of the server.
+     * @param deadlineMs  The time in milliseconds after which the request is
+     *                    cancelled and the future fails with a
+     *                    TimeoutException, or 0 for no deadline.
+     * @param tag         The tag to associate with the request, or null if no
+     *                    tag is desired.
+     * @return A future completed with the response, or exceptionally with the
+     * VolleyError of the request.
+     */
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    CompletableFuture<JSONArray> requestArrayAsync(@NonNull Context ctx, String uri, int method, @Nullable JSONArray data, @Nullable Map<String, String> headers, @Nullable CachePolicy cachePolicy, long deadlineMs, @Nullable Object tag) {
+        return ApiFutures.send(deadlineMs, (listener, errorListener) -> sendArray(ctx, uri, method, data, headers, cachePolicy, listener, errorListener, tag));
+    }
+
+    /**
+     * Sends a request to the given URL with the given HTTP method and returns
+     * a future of the response decoded with the given adapter. Cancelling the
+     * future cancels the request.
+     * This method requires API level 24 or higher.
+     *
+     * @param ctx        The context to use to create the RequestQueue.
+     * @param uri        The URL of the resource to access.
+     * @param method     The HTTP method to use to access the resource.
+     * @param data       The data to send with the request, or null if no data
+     *                   is desired.
+     * @param headers    The headers to send with the request, or null if the
+     *                   default headers should be used.
+     * @param adapter    The adapter that decodes the response.
+     * @param deadlineMs The time in milliseconds after which the request is
+     *                   cancelled and the future fails with a
+     *                   TimeoutException, or 0 for no deadline.
+     * @param tag        The tag to associate with the request, or null if no
+     *                   tag is desired.
+     * @return A future completed with the decoded response, or exceptionally
+     * with the VolleyError of the request.
+     */
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    <T> CompletableFuture<T> requestTypedAsync(@NonNull Context ctx, String uri, int method, @Nullable JSONObject data, @Nullable Map<String, String> headers, @NonNull TypeAdapter<T> adapter, long deadlineMs, @Nullable Object tag) {
+        return ApiFutures.send(deadlineMs, (listener, errorListener) -> sendTyped(ctx, uri, method, data, headers, adapter, listener, errorListener, tag));
+    }
+
+    /**
+     * Sends a request to the given URL with the given HTTP method and returns
+     * a future of the response decoded into an instance of the given model
+     * class. Cancelling the future cancels the request.
+     * This method requires API level 24 or higher.
+     *
+     * @param ctx        The context to use to create the RequestQueue.
+     * @param uri        The URL of the resource to access.
+     * @param method     The HTTP method to use to access the resource.
+     * @param data       The data to send with the request, or null if no data
+     *                   is desired.
+     * @param headers    The headers to send with the request, or null if the
+     *                   default headers should be used.
+     * @param type       The model class to decode. It must have a no-argument
+     *                   constructor.
+     * @param deadlineMs The time in milliseconds after which the request is
+     *                   cancelled and the future fails with a
+     *                   TimeoutException, or 0 for no deadline.
+     * @param tag        The tag to associate with the request, or null if no
+     *                   tag is desired.
+     * @return A future completed with the decoded response, or exceptionally
+     * with the VolleyError of the request.
+     */
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    <T> CompletableFuture<T> requestTypedAsync(@NonNull Context ctx, String uri, int method, @Nullable JSONObject data, @Nullable Map<String, String> headers, @NonNull Class<T> type, long deadlineMs, @Nullable Object tag) {
+        return requestTypedAsync(ctx, uri, method, data, headers, JsonAdapters.forClass(type), deadlineMs, tag);
+    }
+
+    /**
+     * Sets the listener that receives the size and decode time of every typed
+     * response.
+     *
+     * @param listener The listener to invoke after each typed response, or
+     *                 null to stop reporting.
+     */
+    void setOnParseStatsListener(@Nullable OnParseStatsListener listener) {
+        this.parseStatsListener = listener;
+    }
+
+    /**
+     * Sends a request to the given URL and reads the JSON array response
+     * element by element, passing the decoded elements to the callback in
+     * batches of the given size. Batches are delivered on a background thread
+     * and the next element is only read once the callback returns, so a slow
+     * consumer pauses the download instead of buffering the remaining payload.
+     * Completion and failure are delivered on the main thread.
+     * <p>
+     * The stream asks the circuit breaker of its host before it is sent, and
+     * fails with {@link #STATUS_CIRCUIT_OPEN} while it is open. Sent with the
+     * default headers, it waits for a running token refresh and is replayed
+     * once with the new token after a 401. It does not take a lane slot: its
+     * connection stays open for as long as the consumer takes, so it runs on
+     * its own threads instead of the RequestQueue. It is neither cached,
+     * coalesced nor retried.
+     *
+     * @param ctx       The context to use to create the RequestQueue.
+     * @param uri       The URL of the resource to access.
+     * @param method    The HTTP method to use to access the resource.
+     * @param data      The data to send with the request, or null if no data
+     *                  is desired.
+     * @param headers   The headers to send with the request, or null if the
+     *                  default headers should be used.
+     * @param adapter   The adapter that decodes each array element, e.g.
+     *                  {@code JsonAdapters.JSON_OBJECT}.
+     * @param batchSize The number of elements per batch.
+     * @param callback  The callback to invoke with the batches.
+     * @param tag       The tag to associate with the request, or null if no
+     *                  tag is desired.
+     */
+    <T> void requestArrayStream(@NonNull Context ctx, String uri, int method, @Nullable JSONObject data, @Nullable Map<String, String> headers, @NonNull TypeAdapter<T> adapter, int batchSize, @NonNull OnArrayBatchCallback<T> callback, @Nullable Object tag) {
+        getQueue(ctx);
 
-        JsonArrayRequest request = new JsonArrayRequest(method, uri, data, callback::OnSuccess, error -> callback.OnFailed(handleVolleyStatus(error), handleVolleyError(error))) {
-            @NonNull
+        Request<Void> request = new Request<Void>(method, uri, null) {
             @Override
             public Map<String, String> getHeaders() {
                 return headers != null ? headers : Api.this.headers;
             }
+
+            @Override
+            public String getBodyContentType() {
+                return "application/json; charset=utf-8";
+            }
+
+            @Override
+            public byte[] getBody() {
+                return data != null ? data.toString().getBytes(StandardCharsets.UTF_8) : null;
+            }
+
+            @Override
+            protected Response<Void> parseNetworkResponse(NetworkResponse response) {
+                return null;
+            }
+
+            @Override
+            protected void deliverResponse(Void response) {
+            }
         };
 
+        request.setRetryPolicy(new DefaultRetryPolicy(STREAM_TIMEOUT_MS, 0, DefaultRetryPolicy.DEFAULT_BACKOFF_MULT));
+
         if (tag != null) request.setTag(tag);
 
-        queue.add(request);
+        AtomicReference<ArrayStream<T>> self = new AtomicReference<>();
+        ArrayStream<T> stream = new ArrayStream<>(stack, streamExecutor, request, adapter, batchSize, callback, breakerFor(uri), headers == null ? refresher : null, () -> {
+            synchronized (streams) {
+                streams.remove(self.get());
+            }
+        });
+        self.set(stream);
+
+        synchronized (streams) {
+            streams.add(stream);
+        }
+
+        stream.start();
     }
 
     /**
@@ -169,63 +1570,418 @@ class Api {
      * @param tag      The tag to associate with the request, or null if no tag is desired.
      */
     void uploadImage(@NonNull Context ctx, String url, @NonNull Map<String, String> params, @NonNull String fileName, @NonNull byte[] fileData, @NonNull String mimeType, @NonNull OnUploadCallback callback, @Nullable Object tag) {
-        queue = getQueue(ctx);
+        upload(ctx, url, params, new MultipartRequest.DataPart(fileName, fileData, mimeType), callback, tag);
+    }
 
-        MultipartRequest multipartRequest = new MultipartRequest(Request.Method.POST, url, response -> {
-            try {
-                String result = new String(response.data, HttpHeaderParser.parseCharset(response.headers));
-                callback.OnSuccess(result);
-            } catch (UnsupportedEncodingException e) {
-                callback.OnFailed("Encoding error: " + e.getMessage());
+    /**
+     * Uploads a bitmap as a JPEG image to the specified URL using a multipart
+     * request. The bitmap is scaled down to the maximum size and encoded with
+     * the quality of the current {@link NetworkQuality} by the image upload
+     * pipeline, so slow networks get smaller files and the encoding of one
+     * image overlaps the upload of the previous one. The bitmap is read on a
+     * pipeline thread some time after this call returns, so it must not be
+     * recycled or modified until the callback fires.
+     *
+     * @param ctx      The context to use to create the RequestQueue.
+     * @param url      The URL to which the image is to be uploaded.
+     * @param params   The parameters to include in the multipart request.
+     * @param fileName The name of the file to be uploaded.
+     * @param bitmap   The image to upload. It is not recycled by the upload,
+     *                 and must stay valid until the callback fires.
+     * @param callback The callback to invoke with the result of the upload.
+     * @param tag      The tag to associate with the request, or null if no tag is desired.
+     */
+    void uploadImage(@NonNull Context ctx, String url, @NonNull Map<String, String> params, @NonNull String fileName, @NonNull Bitmap bitmap, @NonNull OnUploadCallback callback, @Nullable Object tag) {
+        if (!imagePipeline().submit(fileName, bitmap, imageUploader(ctx, url, params, fileName, tag), callback, tag)) {
+            callback.OnFailed("Image error (" + fileName + "): the upload pipeline was closed.");
+        }
+    }
+
+    /**
+     * Uploads an encoded image, e.g. a photo from the camera or the gallery,
+     * as a JPEG image to the specified URL using a multipart request. The
+     * image is decoded at a reduced sample size, scaled down to the maximum
+     * size and encoded with the quality of the current {@link NetworkQuality}
+     * by the image upload pipeline. Only the source is kept until the image's
+     * turn comes, so many photos can be queued at once.
+     *
+     * @param ctx      The context to use to create the RequestQueue.
+     * @param url      The URL to which the image is to be uploaded.
+     * @param params   The parameters to include in the multipart request.
+     * @param fileName The name of the file to be uploaded.
+     * @param source   Opens the encoded image. It is opened twice.
+     * @param callback The callback to invoke with the result of the upload.
+     * @param tag      The tag to associate with the request, or null if no tag is desired.
+     */
+    void uploadImage(@NonNull Context ctx, String url, @NonNull Map<String, String> params, @NonNull String fileName, @NonNull MultipartRequest.StreamOpener source, @NonNull OnUploadCallback callback, @Nullable Object tag) {
+        if (!imagePipeline().submit(fileName, source, imageUploader(ctx, url, params, fileName, tag), callback, tag)) {
+            callback.OnFailed("Image error (" + fileName + "): the upload pipeline was closed.");
+        }
+    }
+
+    /**
+     * Replaces the image upload pipeline shared by every Api with one of the
+     * given queue capacity and parallelism per stage. Images already queued
+     * are still uploaded by the previous pipeline.
+     *
+     * @param queueCapacity The number of images each queue between two stages
+     *                      holds at most; a full queue makes the previous
+     *                      stage wait.
+     * @param decodeThreads The number of images decoded at once.
+     * @param resizeThreads The number of images resized at once.
+     * @param encodeThreads The number of images encoded at once.
+     * @param uploadSlots   The number of images uploaded at once.
+     */
+    static void setImagePipelineParallelism(int queueCapacity, int decodeThreads, int resizeThreads, int encodeThreads, int uploadSlots) {
+        ImageUploadPipeline pipeline = new ImageUploadPipeline(queueCapacity, decodeThreads, resizeThreads, encodeThreads, uploadSlots, () -> networkQuality);
+        ImageUploadPipeline previous;
+
+        synchronized (Api.class) {
+            previous = imagePipeline;
+            imagePipeline = pipeline;
+        }
+
+        if (previous != null) previous.close();
+    }
+
+    /**
+     * Returns the throughput, queue occupancy and waiting times of each stage
+     * of the image upload pipeline: decode, resize, encode and upload.
+     *
+     * @return One snapshot per stage, in pipeline order.
+     */
+    @NonNull
+    List<PipelineStageStats> getImagePipelineStats() {
+        return imagePipeline().getStats();
+    }
+
+    @NonNull
+    private static synchronized ImageUploadPipeline imagePipeline() {
+        if (imagePipeline == null) {
+            imagePipeline = new ImageUploadPipeline(IMAGE_QUEUE_CAPACITY, IMAGE_DECODE_THREADS, IMAGE_RESIZE_THREADS, IMAGE_ENCODE_THREADS, IMAGE_UPLOAD_SLOTS, () -> networkQuality);
+        }
+
+        return imagePipeline;
+    }
+
+    @NonNull
+    private ImageUploadPipeline.Uploader imageUploader(@NonNull Context ctx, String url, @NonNull Map<String, String> params, @NonNull String fileName, @Nullable Object tag) {
+        return (data, callback) -> upload(ctx, url, params, new MultipartRequest.DataPart(fileName, data, "image/jpeg"), callback, tag);
+    }
+
+    /**
+     * Uploads a file to the specified URL using a streaming multipart request.
+     * The file is read in chunks while the request is written, so it is never
+     * loaded into memory as a whole.
+     *
+     * @param ctx      The context to use to create the RequestQueue.
+     * @param url      The URL to which the file is to be uploaded.
+     * @param params   The parameters to include in the multipart request.
+     * @param fileName The name of the file to be uploaded.
+     * @param file     The file to upload.
+     * @param mimeType The MIME type of the file.
+     * @param callback The callback to invoke with the result of the upload.
+     * @param tag      The tag to associate with the request, or null if no tag is desired.
+     */
+    void uploadFile(@NonNull Context ctx, String url, @NonNull Map<String, String> params, @NonNull String fileName, @NonNull File file, @NonNull String mimeType, @NonNull OnUploadCallback callback, @Nullable Object tag) {
+        upload(ctx, url, params, new MultipartRequest.DataPart(fileName, file, mimeType), callback, tag);
+    }
+
+    /**
+     * Uploads the content behind a Uri, e.g. a picture returned by the gallery,
+     * using a streaming multipart request. The content is opened through the
+     * ContentResolver and read in chunks while the request is written.
+     *
+     * @param ctx      The context to use to create the RequestQueue and to
+     *                 resolve the Uri.
+     * @param url      The URL to which the content is to be uploaded.
+     * @param params   The parameters to include in the multipart request.
+     * @param fileName The name of the file to be uploaded.
+     * @param uri      The Uri of the content to upload.
+     * @param mimeType The MIME type of the content.
+     * @param callback The callback to invoke with the result of the upload.
+     * @param tag      The tag to associate with the request, or null if no tag is desired.
+     */
+    void uploadFile(@NonNull Context ctx, String url, @NonNull Map<String, String> params, @NonNull String fileName, @NonNull Uri uri, @NonNull String mimeType, @NonNull OnUploadCallback callback, @Nullable Object tag) {
+        long length = AssetFileDescriptor.UNKNOWN_LENGTH;
+
+        try (AssetFileDescriptor descriptor = ctx.getContentResolver().openAssetFileDescriptor(uri, "r")) {
+            if (descriptor != null) length = descriptor.getLength();
+        } catch (IOException e) {
+            callback.OnFailed("File error: " + e.getMessage());
+            return;
+        }
+
+        upload(ctx, url, params, new MultipartRequest.DataPart(fileName, () -> ctx.getContentResolver().openInputStream(uri), length, mimeType), callback, tag);
+    }
+
+    /**
+     * Uploads many files to the specified URL, each one as its own streaming
+     * multipart request. At most maxConcurrent uploads and maxInFlightBytes
+     * bytes of file data are in flight at any time; the remaining files wait
+     * until earlier ones finish.
+     *
+     * @param ctx              The context to use to create the RequestQueue.
+     * @param url              The URL to which the files are to be uploaded.
+     * @param params           The parameters to include in every multipart
+     *                         request.
+     * @param parts            The files to upload, sent under the "file" name.
+     * @param maxConcurrent    The maximum number of uploads running at once.
+     * @param maxInFlightBytes The maximum number of file bytes being uploaded
+     *                         at once.
+     * @param callback         The callback to invoke with the progress and the
+     *                         per-file results of the batch. Cancelling the
+     *                         tag completes the batch, with the files not
+     *                         finished yet reported as cancelled.
+     * @param tag              The tag to associate with the requests, or null
+     *                         if no tag is desired.
+     */
+    void uploadBatch(@NonNull Context ctx, String url, @NonNull Map<String, String> params, @NonNull List<MultipartRequest.DataPart> parts, int maxConcurrent, long maxInFlightBytes, @NonNull OnBatchUploadCallback callback, @Nullable Object tag) {
+        AtomicReference<UploadBatch> batch = new AtomicReference<>();
+
+        batch.set(new UploadBatch(parts, maxConcurrent, maxInFlightBytes, (part, partCallback) -> upload(ctx, url, params, part, partCallback, tag), new OnBatchUploadCallback() {
+            @Override
+            public void OnProgress(int completed, int total, long bytesUploaded, long totalBytes) {
+                callback.OnProgress(completed, total, bytesUploaded, totalBytes);
             }
-        }, error -> {
-            callback.OnFailed("Error (" + handleVolleyStatus(error) + "): " + handleVolleyError(error));
-        }) {
+
             @Override
-            protected Map<String, String> getParams() {
-                return params;
+            public void OnComplete(List<UploadResult> results) {
+                synchronized (batches) {
+                    batches.remove(batch.get());
+                }
+
+                callback.OnComplete(results);
             }
+        }, tag));
+
+        synchronized (batches) {
+            batches.add(batch.get());
+        }
+
+        batch.get().start();
+    }
+
+    /**
+     * Uploads many files to the specified URL with bounded concurrency and
+     * in-flight bytes. The returned future is completed with the per-file
+     * results once every upload has finished, or once the tag is cancelled.
+     * This method requires API level 24 or higher.
+     *
+     * @param ctx              The context to use to create the RequestQueue.
+     * @param url              The URL to which the files are to be uploaded.
+     * @param params           The parameters to include in every multipart
+     *                         request.
+     * @param parts            The files to upload, sent under the "file" name.
+     * @param maxConcurrent    The maximum number of uploads running at once.
+     * @param maxInFlightBytes The maximum number of file bytes being uploaded
+     *                         at once.
+     * @param tag              The tag to associate with the requests, or null
+     *                         if no tag is desired.
+     * @return A future that is completed with the result of every file, in the
+     * order of the given parts.
+     */
+    @RequiresApi(api = Build.VERSION_CODES.N)
+    CompletableFuture<List<UploadResult>> uploadBatch(@NonNull Context ctx, String url, @NonNull Map<String, String> params, @NonNull List<MultipartRequest.DataPart> parts, int maxConcurrent, long maxInFlightBytes, @Nullable Object tag) {
+        CompletableFuture<List<UploadResult>> future = new CompletableFuture<>();
 
+        uploadBatch(ctx, url, params, parts, maxConcurrent, maxInFlightBytes, new OnBatchUploadCallback() {
             @Override
-            protected Map<String, DataPart> getByteData() {
-                Map<String, DataPart> data = new HashMap<>();
-                data.put("file", new DataPart(fileName, fileData, mimeType));
-                return data;
+            public void OnProgress(int completed, int total, long bytesUploaded, long totalBytes) {
             }
 
             @Override
-            public Map<String, String> getHeaders() {
-                return headers;
+            public void OnComplete(List<UploadResult> results) {
+                future.complete(results);
             }
-        };
+        }, tag);
+
+        return future;
+    }
+
+    /**
+     * Uploads a file in chunks of the given size, persisting the acknowledged
+     * offset under the app's files directory. If the upload fails or the
+     * process dies, calling this method again with the same URL and file
+     * resumes from the last byte the server acknowledged. Every chunk is sent
+     * with the current default headers, and a 401 goes through the
+     * {@link TokenAuthenticator} like any other request.
+     *
+     * @param ctx       The context to use to create the RequestQueue.
+     * @param url       The URL to which the file chunks are sent.
+     * @param file      The file to upload.
+     * @param mimeType  The MIME type of the file.
+     * @param chunkSize The size of each chunk in bytes.
+     * @param callback  The callback to invoke with the progress and result of
+     *                  the upload.
+     * @param tag       The tag to associate with the chunk requests, or null if
+     *                  no tag is desired.
+     * @return The running upload, which can be cancelled and resumed later.
+     */
+    ResumableUpload uploadResumable(@NonNull Context ctx, String url, @NonNull File file, @NonNull String mimeType, int chunkSize, @NonNull OnUploadProgressCallback callback, @Nullable Object tag) {
+        getQueue(ctx);
+
+        File stateDir = new File(ctx.getFilesDir(), "resumable_uploads");
+        ResumableUpload upload = new ResumableUpload(scheduler, laneFor(tag, Lane.BULK), this::getHeaders, refresher, stateDir, url, file, mimeType, chunkSize, callback, tag);
+        upload.start();
+
+        return upload;
+    }
+
+    /**
+     * Sends the given data part and parameters as a streaming multipart request.
+     *
+     * @param ctx      The context to use to create the RequestQueue.
+     * @param url      The URL to which the data is to be uploaded.
+     * @param params   The parameters to include in the multipart request.
+     * @param part     The data part sent under the "file" name.
+     * @param callback The callback to invoke with the result of the upload.
+     * @param tag      The tag to associate with the request, or null if no tag is desired.
+     */
+    private void upload(@NonNull Context ctx, String url, @NonNull Map<String, String> params, @NonNull MultipartRequest.DataPart part, @NonNull OnUploadCallback callback, @Nullable Object tag) {
+        getQueue(ctx);
 
-        if (tag != null) multipartRequest.setTag(tag);
+        Map<String, String> requestHeaders = headers;
 
-        queue.add(multipartRequest);
+        RequestFactory<NetworkResponse> factory = (listener, errorListener) -> {
+            Map<String, String> attemptHeaders = headers;
+            String cacheKey = cacheKey(Request.Method.POST, url, attemptHeaders);
+            MultipartRequest multipartRequest = new MultipartRequest(Request.Method.POST, url, listener, errorListener) {
+                @Override
+                protected Map<String, String> getParams() {
+                    return params;
+                }
+
+                @Override
+                protected Map<String, DataPart> getByteData() {
+                    Map<String, DataPart> data = new HashMap<>();
+                    data.put("file", part);
+                    return data;
+                }
+
+                @Override
+                public Map<String, String> getHeaders() {
+                    return attemptHeaders;
+                }
+
+                @Override
+                public String getCacheKey() {
+                    return cacheKey;
+                }
+            };
+
+            multipartRequest.setStreaming(true);
+
+            return multipartRequest;
+        };
+
+        enqueue(Request.Method.POST, url, requestHeaders, null, null, factory, response -> {
+            try {
+                String result = new String(response.data, HttpHeaderParser.parseCharset(response.headers));
+                callback.OnSuccess(result);
+            } catch (UnsupportedEncodingException e) {
+                callback.OnFailed("Encoding error: " + e.getMessage());
+            }
+        }, error -> {
+            callback.OnFailed("Error (" + handleVolleyStatus(error) + "): " + handleVolleyError(error));
+        }, Lane.BULK, tag);
     }
 
     /**
      * Cancels all requests in the queue with the given tag. If the tag is null,
-     * all requests in the queue will be cancelled.
+     * all requests in the queue will be cancelled. A GET request shared with
+     * other callers keeps running until none of its callers is left.
      *
      * @param tag The tag to use to identify the requests to cancel, or null to
      *            cancel all requests in the queue.
      */
     void cancelAllRequests(@NonNull Object tag) {
+        coalescer.cancel(tag);
+        prefetcher.cancel(tag);
+
+        ImageUploadPipeline pipeline;
+
+        synchronized (Api.class) {
+            pipeline = imagePipeline;
+        }
+
+        if (pipeline != null) pipeline.cancel(tag);
+
+        List<UploadBatch> taggedBatches = new ArrayList<>();
+
+        synchronized (batches) {
+            for (UploadBatch batch : batches) {
+                if (tag.equals(batch.getTag())) taggedBatches.add(batch);
+            }
+        }
+
+        for (UploadBatch batch : taggedBatches) {
+            batch.cancel();
+        }
+
+        synchronized (streams) {
+            for (ArrayStream<?> stream : new ArrayList<>(streams)) {
+                if (tag.equals(stream.getTag())) stream.cancel();
+            }
+        }
+
+        List<ApiCall<?>> tagged = new ArrayList<>();
+
+        synchronized (calls) {
+            for (ApiCall<?> call : calls) {
+                if (tag.equals(call.getTag())) tagged.add(call);
+            }
+        }
+
+        for (ApiCall<?> call : tagged) {
+            call.cancel();
+        }
+
+        RequestBatcher currentBatcher = batcher;
+        if (currentBatcher != null) currentBatcher.cancel(tag);
+
+        scheduler.cancelAll(tag);
+
         if (queue != null) {
             queue.cancelAll(tag);
         }
     }
 
     /**
-     * Returns the HTTP status code of the given VolleyError, or -1 if the
-     * VolleyError does not contain a network response.
+     * Counts 304 revalidations and replaces the cache entry of a parsed
+     * response with the one dictated by the cache policy.
+     *
+     * @param parsed      The response parsed by the request.
+     * @param response    The network response the request was parsed from.
+     * @param cachePolicy The cache policy of the request, or null to keep the
+     *                    entry built from the server's caching headers.
+     * @return The response with the cache entry to store.
+     */
+    private <T> Response<T> applyCachePolicy(@NonNull Response<T> parsed, @NonNull NetworkResponse response, @Nullable CachePolicy cachePolicy) {
+        if (response.notModified && cache instanceof TieredCache) {
+            ((TieredCache) cache).recordRevalidation();
+        }
+
+        if (cachePolicy == null || !parsed.isSuccess()) {
+            return parsed;
+        }
+
+        return Response.success(parsed.result, cachePolicy.entryFor(response, parsed.cacheEntry));
+    }
+
+    /**
+     * Returns the HTTP status code of the given VolleyError, -1 if the
+     * VolleyError does not contain a network response, or
+     * {@link #STATUS_CIRCUIT_OPEN} if the request was not sent because the
+     * circuit breaker of its host is open.
      *
      * @param error The VolleyError to get the status code from.
-     * @return The HTTP status code of the given VolleyError, or -1 if the
-     * VolleyError does not contain a network response.
+     * @return The HTTP status code of the given VolleyError, or a negative
+     * status if the VolleyError does not contain a network response.
      */
     private int handleVolleyStatus(@NonNull VolleyError error) {
+        if (error instanceof CircuitOpenError) return STATUS_CIRCUIT_OPEN;
+
         return error.networkResponse != null ? error.networkResponse.statusCode : -1;
     }
 
@@ -239,6 +1995,8 @@ class Api {
      */
     @NonNull
     private String handleVolleyError(@NonNull VolleyError error) {
+        if (error instanceof CircuitOpenError) return error.getMessage();
+
         if (error.networkResponse != null && error.networkResponse.data != null) {
             return new String(error.networkResponse.data);
         }
@@ -0,0 +1,401 @@
+package com.example.mylist_betalist.Api;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.volley.DefaultRetryPolicy;
+import com.android.volley.Request;
+import com.android.volley.Response;
+import com.android.volley.VolleyError;
+import com.example.mylist_betalist.Api.Interfaces.OnRetryListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One logical request made through {@link Api}, which may take several
+ * attempts. Each attempt is a new Volley request built by the factory and
+ * tagged with this call; Volley's own immediate retries are disabled and the
+ * {@link RetryController} schedules the next attempt after a backoff instead.
+ * Every attempt asks the host's {@link CircuitBreaker} when Volley dispatches
+ * it to the network; while it is open the attempt is dropped there and the
+ * call fails with a {@link CircuitOpenError}. Responses served from the
+ * cache, including a soft-expired one delivered before it is revalidated,
+ * neither take a half-open probe nor count towards the breaker.
+ * With a {@link TokenRefresher}, attempts wait while the token is refreshed,
+ * and a 401 is answered by one refresh and a single replay of the call.
+ *
+ * @param <T> The type of the parsed response.
+ */
+class ApiCall<T> {
+    private final LaneScheduler scheduler;
+    private Lane lane;
+    private final int timeoutMs;
+    private final int method;
+    private final String url;
+    private final RequestFactory<T> factory;
+    private final Response.Listener<T> listener;
+    private final Response.ErrorListener errorListener;
+    private final Object tag;
+    private final RetryController retryController;
+    private final OnRetryListener retryListener;
+    private final CircuitBreaker breaker;
+    private final RequestMetricsCollector metrics;
+    private final TokenRefresher refresher;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable attempt = this::attempt;
+    private final List<Runnable> finishedListeners = new ArrayList<>();
+    private Request<T> current;
+    private int retries;
+    private long attemptStart;
+    private int authVersion;
+    private boolean reauthenticated;
+    private boolean inFlight;
+    private boolean circuitOpen;
+    private boolean responded;
+    private boolean retryPending;
+    private boolean canceled;
+    private boolean finished;
+
+    /**
+     * @param scheduler       The scheduler the attempts are submitted to.
+     * @param lane            The lane of the attempts.
+     * @param timeoutMs       The socket timeout in milliseconds of each
+     *                        attempt.
+     * @param method          The HTTP method of the request.
+     * @param url             The URL of the request.
+     * @param factory         Creates the Volley request of each attempt.
+     * @param listener        The listener to invoke with the response.
+     * @param errorListener   The listener to invoke once no attempt is left.
+     * @param tag             The caller's tag, or null if no tag is desired.
+     * @param retryController Decides whether and when to retry.
+     * @param retryListener   The listener to invoke before each retry, or null.
+     * @param breaker         The circuit breaker of the host, or null.
+     * @param metrics         The collector following each attempt, or null.
+     * @param refresher       Refreshes the token on 401, or null.
+     */
+    ApiCall(@NonNull LaneScheduler scheduler, @NonNull Lane lane, int timeoutMs, int method, String url, @NonNull RequestFactory<T> factory, @NonNull Response.Listener<T> listener, @NonNull Response.ErrorListener errorListener, @Nullable Object tag, @NonNull RetryController retryController, @Nullable OnRetryListener retryListener, @Nullable CircuitBreaker breaker, @Nullable RequestMetricsCollector metrics, @Nullable TokenRefresher refresher) {
+        this.scheduler = scheduler;
+        this.lane = lane;
+        this.timeoutMs = timeoutMs;
+        this.method = method;
+        this.url = url;
+        this.factory = factory;
+        this.listener = listener;
+        this.errorListener = errorListener;
+        this.tag = tag;
+        this.retryController = retryController;
+        this.retryListener = retryListener;
+        this.breaker = breaker;
+        this.metrics = metrics;
+        this.refresher = refresher;
+    }
+
+    /**
+     * Sends the first attempt.
+     */
+    void start() {
+        attempt();
+    }
+
+    /**
+     * Cancels the running attempt and any scheduled retry. No response or
+     * error is delivered afterwards.
+     */
+    void cancel() {
+        Request<T> running;
+
+        synchronized (this) {
+            if (canceled || finished) return;
+
+            canceled = true;
+            retryPending = false;
+            handler.removeCallbacks(attempt);
+            running = inFlight ? current : null;
+        }
+
+        if (running != null) {
+            running.cancel();
+        } else {
+            finish();
+        }
+    }
+
+    /**
+     * Moves the call to a more urgent lane, including its attempt if that is
+     * still waiting in the scheduler.
+     *
+     * @param lane The lane to move the call to.
+     */
+    void promote(@NonNull Lane lane) {
+        Request<T> queued;
+
+        synchronized (this) {
+            if (lane.ordinal() >= this.lane.ordinal()) return;
+
+            this.lane = lane;
+            queued = inFlight ? current : null;
+        }
+
+        if (queued != null) scheduler.promote(queued, lane);
+    }
+
+    /**
+     * Returns the caller's tag.
+     *
+     * @return The tag, or null if no tag was set.
+     */
+    @Nullable
+    Object getTag() {
+        return tag;
+    }
+
+    /**
+     * Returns the HTTP method of the request.
+     *
+     * @return The HTTP method.
+     */
+    int getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns the URL of the request.
+     *
+     * @return The URL.
+     */
+    String getUrl() {
+        return url;
+    }
+
+    /**
+     * Returns the number of retries made so far.
+     *
+     * @return The retry count.
+     */
+    synchronized int getRetries() {
+        return retries;
+    }
+
+    /**
+     * Registers a listener invoked once the call is over: its last attempt
+     * finished, or it was cancelled.
+     *
+     * @param finishedListener The listener to invoke.
+     */
+    synchronized void addOnFinishedListener(@NonNull Runnable finishedListener) {
+        finishedListeners.add(finishedListener);
+    }
+
+    /**
+     * Invoked by the queue's event listener when Volley dispatches an attempt
+     * of this call to the network, that is once no fresh cache entry answered
+     * it. Asks the breaker for permission and starts timing the attempt; if
+     * the breaker is open the attempt is cancelled before it is sent.
+     *
+     * @param request The request of the attempt.
+     */
+    void onNetworkDispatch(@NonNull Request<?> request) {
+        synchronized (this) {
+            if (request != current || canceled) return;
+
+            if (breaker == null || breaker.allowRequest()) {
+                attemptStart = SystemClock.elapsedRealtime();
+                if (metrics != null) metrics.onNetworkDispatch(request);
+                return;
+            }
+
+            circuitOpen = true;
+        }
+
+        request.cancel();
+    }
+
+    /**
+     * Invoked by the queue's finished listener when an attempt of this call
+     * finished.
+     *
+     * @param request The request of the attempt.
+     */
+    void onRequestFinished(@NonNull Request<?> request) {
+        if (metrics != null) metrics.finish(request);
+
+        boolean rejected;
+
+        synchronized (this) {
+            if (request != current) return;
+
+            inFlight = false;
+            if (retryPending) return;
+
+            rejected = circuitOpen;
+        }
+
+        if (rejected) {
+            handler.post(this::failFast);
+        } else {
+            finish();
+        }
+    }
+
+    private void attempt() {
+        Request<T> request;
+
+        synchronized (this) {
+            if (canceled) return;
+
+            retryPending = false;
+
+            if (refresher != null) {
+                int version = refresher.enter(attempt);
+
+                if (version < 0) {
+                    retryPending = true;
+                    return;
+                }
+
+                authVersion = version;
+            }
+
+            request = factory.create(this::onResponse, this::onError);
+            request.setTag(this);
+            request.setRetryPolicy(new DefaultRetryPolicy(timeoutMs, 0, DefaultRetryPolicy.DEFAULT_BACKOFF_MULT));
+            current = request;
+            inFlight = true;
+            circuitOpen = false;
+            attemptStart = 0;
+
+            if (metrics != null) metrics.begin(request, method, url, retries);
+        }
+
+        scheduler.add(request, currentLane());
+    }
+
+    private synchronized Lane currentLane() {
+        return lane;
+    }
+
+    /**
+     * Fails the call whose attempt the open breaker dropped, unless it was
+     * cancelled or the caller already has a soft-expired cached response.
+     */
+    private void failFast() {
+        boolean deliver;
+
+        synchronized (this) {
+            deliver = !canceled && !responded;
+        }
+
+        if (deliver) errorListener.onErrorResponse(new CircuitOpenError(breaker.getHost()));
+        finish();
+    }
+
+    private void onResponse(T response) {
+        long duration = attemptDuration();
+        if (duration >= 0 && breaker != null) breaker.onSuccess(duration);
+        if (metrics != null) metrics.onDelivered(currentRequest(), null);
+
+        synchronized (this) {
+            responded = true;
+        }
+
+        listener.onResponse(response);
+    }
+
+    /**
+     * Returns the duration of the running attempt if it reached the network,
+     * the first time it is asked for, and -1 otherwise. A response served
+     * from the cache is delivered before the attempt is dispatched, so it is
+     * never recorded.
+     */
+    private synchronized long attemptDuration() {
+        if (attemptStart == 0) return -1;
+
+        long duration = SystemClock.elapsedRealtime() - attemptStart;
+        attemptStart = 0;
+        return duration;
+    }
+
+    private void onError(@NonNull VolleyError error) {
+        long duration = attemptDuration();
+        if (duration >= 0 && breaker != null) breaker.onError(error, duration);
+        if (metrics != null) metrics.onDelivered(currentRequest(), error);
+
+        if (refresher != null && error.networkResponse != null && error.networkResponse.statusCode == 401) {
+            int version = -1;
+
+            synchronized (this) {
+                if (canceled) return;
+
+                if (!reauthenticated) {
+                    reauthenticated = true;
+                    retryPending = true;
+                    version = authVersion;
+                }
+            }
+
+            if (version >= 0) {
+                refresher.onUnauthorized(version, attempt, () -> failUnauthorized(error));
+                return;
+            }
+        }
+
+        long delay;
+        int attemptNumber;
+
+        synchronized (this) {
+            if (canceled) return;
+
+            delay = retryController.nextDelay(method, error, retries);
+            if (delay >= 0) {
+                retries++;
+                retryPending = true;
+                handler.postDelayed(attempt, delay);
+            }
+            attemptNumber = retries;
+        }
+
+        if (delay >= 0) {
+            if (retryListener != null) {
+                retryListener.OnRetry(url, attemptNumber, delay, error.networkResponse != null ? error.networkResponse.statusCode : -1);
+            }
+            return;
+        }
+
+        errorListener.onErrorResponse(error);
+    }
+
+    private void failUnauthorized(@NonNull VolleyError error) {
+        synchronized (this) {
+            if (canceled) return;
+
+            retryPending = false;
+        }
+
+        errorListener.onErrorResponse(error);
+        finish();
+    }
+
+    private synchronized Request<T> currentRequest() {
+        return current;
+    }
+
+    private void finish() {
+        List<Runnable> listeners;
+
+        synchronized (this) {
+            if (finished) return;
+
+            finished = true;
+            listeners = new ArrayList<>(finishedListeners);
+        }
+
+        for (Runnable finishedListener : listeners) {
+            finishedListener.run();
+        }
+    }
+}
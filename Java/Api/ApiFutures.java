@@ -0,0 +1,145 @@
+package com.example.mylist_betalist.Api;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+
+import com.android.volley.Response;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bridges the listener-based requests of {@link Api} to CompletableFutures.
+ * Cancelling a future returned here, or letting its deadline pass, cancels
+ * the underlying Volley request. Futures derived from it with thenApply and
+ * friends do not propagate cancellation back; cancel the original future or
+ * use {@link #allOf(CompletableFuture[])} and
+ * {@link #anyOf(CompletableFuture[])}, which do.
+ * This class requires API level 24 or higher.
+ */
+@RequiresApi(api = Build.VERSION_CODES.N)
+final class ApiFutures {
+    /**
+     * Sends a request wired to the given listeners and returns the action that
+     * cancels it.
+     */
+    interface Sender<T> {
+        @NonNull
+        Runnable send(@NonNull Response.Listener<T> listener, @NonNull Response.ErrorListener errorListener);
+    }
+
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+
+    private ApiFutures() {
+    }
+
+    /**
+     * Sends a request and returns a future completed with its response, or
+     * exceptionally with its VolleyError.
+     *
+     * @param deadlineMs The time in milliseconds after which the future fails
+     *                   with a TimeoutException and the request is cancelled,
+     *                   or 0 for no deadline.
+     * @param sender     Sends the request.
+     * @param <T>        The type of the response.
+     * @return The future of the response.
+     */
+    @NonNull
+    static <T> CompletableFuture<T> send(long deadlineMs, @NonNull Sender<T> sender) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Runnable cancel = sender.send(future::complete, future::completeExceptionally);
+        Runnable timeout = () -> future.completeExceptionally(new TimeoutException("Deadline of " + deadlineMs + " ms exceeded."));
+
+        if (deadlineMs > 0) handler.postDelayed(timeout, deadlineMs);
+
+        future.whenComplete((result, error) -> {
+            handler.removeCallbacks(timeout);
+
+            if (error != null) cancel.run();
+        });
+
+        return future;
+    }
+
+    /**
+     * Returns a future completed once every given future completed. If one of
+     * them fails, the result fails right away and the others are cancelled;
+     * cancelling the result cancels all of them.
+     *
+     * @param futures The futures to wait for.
+     * @return A future completed when all futures succeeded.
+     */
+    @NonNull
+    static CompletableFuture<Void> allOf(@NonNull CompletableFuture<?>... futures) {
+        CompletableFuture<Void> all = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(futures.length);
+
+        if (futures.length == 0) {
+            all.complete(null);
+            return all;
+        }
+
+        for (CompletableFuture<?> future : futures) {
+            future.whenComplete((result, error) -> {
+                if (error != null) {
+                    all.completeExceptionally(error);
+                } else if (remaining.decrementAndGet() == 0) {
+                    all.complete(null);
+                }
+            });
+        }
+
+        all.whenComplete((result, error) -> {
+            if (error != null) cancelAll(futures);
+        });
+
+        return all;
+    }
+
+    /**
+     * Returns a future completed with the first successful result among the
+     * given futures, cancelling the others. It fails only if every future
+     * fails, with the error of the last one; cancelling it cancels all of
+     * them.
+     *
+     * @param futures The futures to race.
+     * @param <T>     The type of the results.
+     * @return A future completed with the first successful result.
+     */
+    @NonNull
+    @SafeVarargs
+    static <T> CompletableFuture<T> anyOf(@NonNull CompletableFuture<T>... futures) {
+        CompletableFuture<T> any = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(futures.length);
+
+        if (futures.length == 0) {
+            any.completeExceptionally(new IllegalArgumentException("No futures given."));
+            return any;
+        }
+
+        for (CompletableFuture<T> future : futures) {
+            future.whenComplete((result, error) -> {
+                if (error == null) {
+                    any.complete(result);
+                } else if (remaining.decrementAndGet() == 0) {
+                    any.completeExceptionally(error);
+                }
+            });
+        }
+
+        any.whenComplete((result, error) -> cancelAll(futures));
+
+        return any;
+    }
+
+    private static void cancelAll(@NonNull CompletableFuture<?>[] futures) {
+        for (CompletableFuture<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.mylist_betalist.Api;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.JsonReader;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.volley.AuthFailureError;
+import com.android.volley.Header;
+import com.android.volley.NetworkError;
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.ServerError;
+import com.android.volley.toolbox.BaseHttpStack;
+import com.android.volley.toolbox.HttpHeaderParser;
+import com.android.volley.toolbox.HttpResponse;
+import com.example.mylist_betalist.Api.Interfaces.OnArrayBatchCallback;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reads a JSON array response element by element and hands the elements to the
+ * callback in batches, without buffering the whole body.
+ * <p>
+ * Batches are delivered on the worker thread that reads the response, and the
+ * next element is not read until {@code OnBatch} returns. A slow consumer, such
+ * as a database insert, therefore pauses the download instead of letting the
+ * rest of the payload pile up in memory. Completion and failure are delivered
+ * on the main thread.
+ * <p>
+ * Like an {@link ApiCall}, the stream asks the host's {@link CircuitBreaker}
+ * before it is sent and reports to it how long the server took to answer
+ * with headers; the time spent reading the body is paced by the consumer and
+ * is not counted. With a {@link TokenRefresher}, the stream waits while the
+ * token is refreshed, and a 401 is answered by one refresh and a single
+ * replay. There are no other retries, since batches may already have been
+ * consumed when a read fails.
+ *
+ * @param <T> The type of the array elements.
+ */
+class ArrayStream<T> implements Runnable {
+    private final BaseHttpStack stack;
+    private final Executor executor;
+    private final Request<?> request;
+    private final TypeAdapter<T> adapter;
+    private final int batchSize;
+    private final OnArrayBatchCallback<T> callback;
+    private final CircuitBreaker breaker;
+    private final TokenRefresher refresher;
+    private final Runnable onFinished;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean finished = new AtomicBoolean();
+    private volatile boolean canceled;
+    private volatile InputStream content;
+    private int authVersion;
+    private boolean reauthenticated;
+
+    /**
+     * @param stack      The HTTP stack that executes the request.
+     * @param executor   The executor the stream is read on.
+     * @param request    The request describing the URL, method, headers and
+     *                   body. Its headers are read again for a replay.
+     * @param adapter    The adapter decoding each element.
+     * @param batchSize  The number of elements per batch.
+     * @param callback   The callback to invoke with the batches.
+     * @param breaker    The circuit breaker of the host, or null.
+     * @param refresher  Refreshes the token on 401, or null.
+     * @param onFinished Invoked once the stream is over: it completed,
+     *                   failed or was cancelled.
+     */
+    ArrayStream(@NonNull BaseHttpStack stack, @NonNull Executor executor, @NonNull Request<?> request, @NonNull TypeAdapter<T> adapter, int batchSize, @NonNull OnArrayBatchCallback<T> callback, @Nullable CircuitBreaker breaker, @Nullable TokenRefresher refresher, @NonNull Runnable onFinished) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("The batch size must be positive.");
+        }
+
+        this.stack = stack;
+        this.executor = executor;
+        this.request = request;
+        this.adapter = adapter;
+        this.batchSize = batchSize;
+        this.callback = callback;
+        this.breaker = breaker;
+        this.refresher = refresher;
+        this.onFinished = onFinished;
+    }
+
+    /**
+     * Sends the request on the executor.
+     */
+    void start() {
+        executor.execute(this);
+    }
+
+    /**
+     * Returns the tag of the underlying request.
+     *
+     * @return The tag, or null if no tag was set.
+     */
+    @Nullable
+    Object getTag() {
+        return request.getTag();
+    }
+
+    /**
+     * Stops reading. No further batch, completion or failure is delivered.
+     * The response stream is closed, which releases the connection and makes
+     * a read blocked on the network return at once.
+     */
+    void cancel() {
+        canceled = true;
+        close(content);
+    }
+
+    @Override
+    public void run() {
+        if (canceled) {
+            finish();
+            return;
+        }
+
+        if (refresher != null) {
+            int version = refresher.enter(this::start);
+            if (version < 0) return;
+
+            authVersion = version;
+        }
+
+        if (breaker != null && !breaker.allowRequest()) {
+            fail(Api.STATUS_CIRCUIT_OPEN, new CircuitOpenError(breaker.getHost()).getMessage());
+            return;
+        }
+
+        try {
+            long start = SystemClock.elapsedRealtime();
+            HttpResponse response;
+
+            try {
+                response = stack.executeRequest(request, Collections.emptyMap());
+            } catch (IOException e) {
+                if (breaker != null) breaker.onError(new NetworkError(e), SystemClock.elapsedRealtime() - start);
+                throw e;
+            }
+
+            long duration = SystemClock.elapsedRealtime() - start;
+            int status = response.getStatusCode();
+            InputStream content = response.getContent();
+            this.content = content;
+
+            if (breaker != null) {
+                if (status >= 200 && status <= 299) {
+                    breaker.onSuccess(duration);
+                } else {
+                    breaker.onError(new ServerError(new NetworkResponse(status, null, false, duration, response.getHeaders())), duration);
+                }
+            }
+
+            if (canceled) {
+                close(content);
+                finish();
+                return;
+            }
+
+            if (status < 200 || status > 299) {
+                String body = content != null ? readError(content) : "";
+                String message = body.isEmpty() ? "Unknown error occurred." : body;
+
+                if (status == 401 && refresher != null && !reauthenticated) {
+                    reauthenticated = true;
+                    refresher.onUnauthorized(authVersion, this::start, () -> fail(status, message));
+                    return;
+                }
+
+                fail(status, message);
+                return;
+            }
+
+            if (content == null) {
+                fail(status, "Empty response.");
+                return;
+            }
+
+            int count = read(content, charset(response.getHeaders()));
+            if (!canceled) handler.post(() -> callback.OnComplete(count));
+            finish();
+        } catch (IOException | AuthFailureError | RuntimeException e) {
+            fail(-1, e.getMessage() != null ? e.getMessage() : "Unknown error occurred.");
+        }
+    }
+
+    private int read(@NonNull InputStream content, @NonNull String charset) throws IOException {
+        int count = 0;
+
+        try (JsonReader reader = new JsonReader(new InputStreamReader(content, charset))) {
+            List<T> batch = new ArrayList<>(batchSize);
+            reader.beginArray();
+
+            while (!canceled && reader.hasNext()) {
+                batch.add(adapter.read(reader));
+                count++;
+
+                if (batch.size() == batchSize) {
+                    callback.OnBatch(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+
+            if (canceled) return count;
+
+            if (!batch.isEmpty()) callback.OnBatch(batch);
+
+            reader.endArray();
+        }
+
+        return count;
+    }
+
+    private static void close(@Nullable InputStream content) {
+        if (content == null) return;
+
+        try {
+            content.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void fail(int status, @NonNull String message) {
+        if (!canceled) handler.post(() -> callback.OnFailed(status, message));
+        finish();
+    }
+
+    private void finish() {
+        if (!finished.getAndSet(true)) onFinished.run();
+    }
+
+    @NonNull
+    private String readError(@NonNull InputStream content) throws IOException {
+        ByteArrayOutputStream error = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8 * 1024];
+        int len;
+
+        try (InputStream in = content) {
+            while ((len = in.read(buffer)) != -1) {
+                error.write(buffer, 0, len);
+            }
+        }
+
+        return error.toString();
+    }
+
+    @NonNull
+    private String charset(@Nullable List<Header> headers) {
+        Map<String, String> map = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        if (headers != null) {
+            for (Header header : headers) {
+                map.put(header.getName(), header.getValue());
+            }
+        }
+
+        return HttpHeaderParser.parseCharset(map, "utf-8");
+    }
+}
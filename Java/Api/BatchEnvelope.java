@@ -0,0 +1,144 @@
+package com.example.mylist_betalist.Api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wire format of a batched request: how the calls collected by the
+ * {@link RequestBatcher} are packed into the body of one request, and how the
+ * response to it is split back into one result per call.
+ */
+public interface BatchEnvelope {
+    /**
+     * Builds the body of the batched request.
+     *
+     * @param calls The calls of the batch, in the order they were made.
+     * @return The body to POST to the batch endpoint.
+     * @throws JSONException If the body cannot be built.
+     */
+    @NonNull
+    JSONObject encode(@NonNull List<Call> calls) throws JSONException;
+
+    /**
+     * Splits the response of the batch endpoint into one result per call.
+     *
+     * @param response The response of the batch endpoint.
+     * @param calls    The calls of the batch, in the order they were made.
+     * @return The result of each call, in the same order; null entries mean
+     * the response had no result for that call.
+     * @throws JSONException If the response is not in the expected format.
+     */
+    @NonNull
+    Result[] decode(@NonNull JSONObject response, @NonNull List<Call> calls) throws JSONException;
+
+    /**
+     * One call of a batch.
+     */
+    final class Call {
+        private final int method;
+        private final String url;
+        private final Map<String, String> headers;
+        private final JSONObject body;
+
+        Call(int method, @NonNull String url, @Nullable Map<String, String> headers, @Nullable JSONObject body) {
+            this.method = method;
+            this.url = url;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        /**
+         * Getter method.
+         *
+         * @return the Volley HTTP method of the call
+         */
+        public int getMethod() {
+            return method;
+        }
+
+        /**
+         * Getter url.
+         *
+         * @return the full URL of the call
+         */
+        @NonNull
+        public String getUrl() {
+            return url;
+        }
+
+        /**
+         * Getter headers.
+         *
+         * @return the headers given for this call only, or null
+         */
+        @Nullable
+        public Map<String, String> getHeaders() {
+            return headers;
+        }
+
+        /**
+         * Getter body.
+         *
+         * @return the body of the call, or null
+         */
+        @Nullable
+        public JSONObject getBody() {
+            return body;
+        }
+    }
+
+    /**
+     * The outcome of one call of a batch.
+     */
+    final class Result {
+        private final int status;
+        private final JSONObject body;
+        private final String error;
+
+        /**
+         * @param status The HTTP status of the call.
+         * @param body   The JSON body of the call, or null.
+         * @param error  The error text of a failed call, or null.
+         */
+        public Result(int status, @Nullable JSONObject body, @Nullable String error) {
+            this.status = status;
+            this.body = body;
+            this.error = error;
+        }
+
+        /**
+         * Getter status.
+         *
+         * @return the HTTP status of the call
+         */
+        public int getStatus() {
+            return status;
+        }
+
+        /**
+         * Getter body.
+         *
+         * @return the JSON body of the call, or null
+         */
+        @Nullable
+        public JSONObject getBody() {
+            return body;
+        }
+
+        /**
+         * Getter error.
+         *
+         * @return the error text of a failed call, or null
+         */
+        @Nullable
+        public String getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.mylist_betalist.Api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.volley.Cache;
+import com.android.volley.NetworkResponse;
+import com.android.volley.toolbox.HttpHeaderParser;
+
+/**
+ * Per-call cache behaviour for GET requests. Requests without a policy follow
+ * the Cache-Control headers sent by the server.
+ * <p>
+ * Expired entries that carry an ETag or Last-Modified header are revalidated
+ * with If-None-Match / If-Modified-Since, so an unchanged response costs a
+ * 304 instead of a full download.
+ */
+public final class CachePolicy {
+    private enum Mode {
+        NETWORK_ONLY,
+        CACHE_FIRST,
+        CACHE_THEN_NETWORK
+    }
+
+    private final Mode mode;
+    private final long maxAgeMs;
+    private final long staleWhileRevalidateMs;
+
+    private CachePolicy(Mode mode, long maxAgeMs, long staleWhileRevalidateMs) {
+        this.mode = mode;
+        this.maxAgeMs = maxAgeMs;
+        this.staleWhileRevalidateMs = staleWhileRevalidateMs;
+    }
+
+    /**
+     * Always goes to the network and never stores the response.
+     *
+     * @return A network-only policy.
+     */
+    @NonNull
+    public static CachePolicy networkOnly() {
+        return new CachePolicy(Mode.NETWORK_ONLY, 0, 0);
+    }
+
+    /**
+     * Answers from the cache while the entry is younger than maxAgeMs, and
+     * revalidates it with the server afterwards, whatever caching headers the
+     * server sent.
+     *
+     * @param maxAgeMs The time in milliseconds a response is served from the
+     *                 cache without contacting the server.
+     * @return A cache-first policy.
+     */
+    @NonNull
+    public static CachePolicy cacheFirst(long maxAgeMs) {
+        return new CachePolicy(Mode.CACHE_FIRST, maxAgeMs, 0);
+    }
+
+    /**
+     * Delivers the cached response immediately, if there is one younger than
+     * maxStaleMs, and then always refreshes it from the network. The callback
+     * is invoked a second time only if the response changed.
+     *
+     * @param maxStaleMs The maximum age in milliseconds of a cached response
+     *                   that may be shown before the network answers.
+     * @return A cache-then-network policy.
+     */
+    @NonNull
+    public static CachePolicy cacheThenNetwork(long maxStaleMs) {
+        return new CachePolicy(Mode.CACHE_THEN_NETWORK, maxStaleMs, 0);
+    }
+
+    /**
+     * Returns a copy of this policy that keeps serving a cached response for
+     * up to the given time after it went stale, while it is revalidated in the
+     * background.
+     *
+     * @param staleWhileRevalidateMs The time in milliseconds a stale response
+     *                               may still be served.
+     * @return A policy with the given stale-while-revalidate window.
+     */
+    @NonNull
+    public CachePolicy staleWhileRevalidate(long staleWhileRevalidateMs) {
+        return new CachePolicy(mode, maxAgeMs, staleWhileRevalidateMs);
+    }
+
+    /**
+     * Returns true if responses fetched with this policy are stored.
+     *
+     * @return False for network-only, true otherwise.
+     */
+    boolean shouldCache() {
+        return mode != Mode.NETWORK_ONLY;
+    }
+
+    /**
+     * Builds the cache entry stored for a response under this policy.
+     *
+     * @param response The network response, possibly a 304 merged with the
+     *                 cached entry.
+     * @param parsed   The entry built from the server's caching headers, or
+     *                 null if the server did not allow caching.
+     * @return The entry to store, or null if nothing should be stored.
+     */
+    @Nullable
+    Cache.Entry entryFor(@NonNull NetworkResponse response, @Nullable Cache.Entry parsed) {
+        if (mode == Mode.NETWORK_ONLY) return null;
+
+        Cache.Entry entry = parsed != null ? parsed : newEntry(response);
+        long now = System.currentTimeMillis();
+
+        if (mode == Mode.CACHE_FIRST) {
+            entry.softTtl = now + maxAgeMs;
+            entry.ttl = entry.softTtl + staleWhileRevalidateMs;
+        } else {
+            entry.softTtl = now;
+            entry.ttl = now + Math.max(maxAgeMs, staleWhileRevalidateMs);
+        }
+
+        return entry;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return mode + "(maxAge=" + maxAgeMs + ", staleWhileRevalidate=" + staleWhileRevalidateMs + ")";
+    }
+
+    @NonNull
+    private static Cache.Entry newEntry(@NonNull NetworkResponse response) {
+        Cache.Entry entry = new Cache.Entry();
+        entry.data = response.data;
+        entry.responseHeaders = response.headers;
+        entry.allResponseHeaders = response.allHeaders;
+
+        if (response.headers != null) {
+            entry.etag = response.headers.get("ETag");
+
+            String date = response.headers.get("Date");
+            if (date != null) entry.serverDate = HttpHeaderParser.parseDateAsEpoch(date);
+
+            String lastModified = response.headers.get("Last-Modified");
+            if (lastModified != null) entry.lastModified = HttpHeaderParser.parseDateAsEpoch(lastModified);
+        }
+
+        return entry;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.mylist_betalist.Api;
+
+/**
+ * Snapshot of the response cache counters.
+ */
+public class CacheStats {
+    private final long memoryHits;
+    private final long diskHits;
+    private final long misses;
+    private final long expired;
+    private final long revalidations;
+    private final long memoryBytes;
+
+    CacheStats(long memoryHits, long diskHits, long misses, long expired, long revalidations, long memoryBytes) {
+        this.memoryHits = memoryHits;
+        this.diskHits = diskHits;
+        this.misses = misses;
+        this.expired = expired;
+        this.revalidations = revalidations;
+        this.memoryBytes = memoryBytes;
+    }
+
+    /**
+     * Getter memory hits.
+     *
+     * @return lookups answered by the in-memory tier
+     */
+    public long getMemoryHits() {
+        return memoryHits;
+    }
+
+    /**
+     * Getter disk hits.
+     *
+     * @return lookups answered by the disk tier
+     */
+    public long getDiskHits() {
+        return diskHits;
+    }
+
+    /**
+     * Getter misses.
+     *
+     * @return lookups that found no entry
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Getter expired.
+     *
+     * @return lookups that found an expired entry, sent as conditional requests
+     */
+    public long getExpired() {
+        return expired;
+    }
+
+    /**
+     * Getter revalidations.
+     *
+     * @return conditional requests answered with 304 Not Modified
+     */
+    public long getRevalidations() {
+        return revalidations;
+    }
+
+    /**
+     * Getter memory bytes.
+     *
+     * @return bytes of response data held by the in-memory tier
+     */
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    /**
+     * Getter hit ratio.
+     *
+     * @return share of lookups answered by either tier, between 0 and 1
+     */
+    public double getHitRatio() {
+        long lookups = memoryHits + diskHits + misses;
+        return lookups == 0 ? 0 : (double) (memoryHits + diskHits) / lookups;
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.mylist_betalist.Api;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.VolleyError;
+import com.example.mylist_betalist.Api.Interfaces.OnCircuitStateListener;
+
+/**
+ * Client-side circuit breaker for one host. It keeps the outcome of the last
+ * {@code windowSize} requests and opens when, after at least
+ * {@code minimumCalls} requests, the share of failures or of calls slower than
+ * {@code slowCallMs} reaches its threshold. While open, requests fail fast
+ * without touching the network. After {@code openMs} it lets
+ * {@code halfOpenProbes} requests through: if they all succeed it closes
+ * again, otherwise it reopens. A probe that never reports, because its call
+ * was cancelled, gives its slot back once it has been running for
+ * {@code openMs}, so the host is not blocked for good.
+ */
+public class CircuitBreaker {
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String host;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long slowCallMs;
+    private final double slowCallRateThreshold;
+    private final long openMs;
+    private final int halfOpenProbes;
+    private final boolean[] failures;
+    private final boolean[] slowCalls;
+    private OnCircuitStateListener listener;
+    private State state = State.CLOSED;
+    private int position;
+    private int recorded;
+    private long openedAt;
+    private int probesStarted;
+    private int probesSucceeded;
+    private long lastProbeAt;
+
+    /**
+     * @param host                  The host guarded by the breaker.
+     * @param windowSize            The number of recent calls considered.
+     * @param minimumCalls          The number of calls needed before the
+     *                              breaker may open.
+     * @param failureRateThreshold  The share of failed calls, between 0 and
+     *                              1, that opens the breaker.
+     * @param slowCallMs            The duration in milliseconds above which a
+     *                              call counts as slow.
+     * @param slowCallRateThreshold The share of slow calls, between 0 and 1,
+     *                              that opens the breaker.
+     * @param openMs                The time in milliseconds the breaker stays
+     *                              open before probing.
+     * @param halfOpenProbes        The number of probe calls let through while
+     *                              half-open.
+     */
+    CircuitBreaker(@NonNull String host, int windowSize, int minimumCalls, double failureRateThreshold, long slowCallMs, double slowCallRateThreshold, long openMs, int halfOpenProbes) {
+        this.host = host;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallMs = slowCallMs;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openMs = openMs;
+        this.halfOpenProbes = Math.max(1, halfOpenProbes);
+        this.failures = new boolean[windowSize];
+        this.slowCalls = new boolean[windowSize];
+    }
+
+    /**
+     * Returns a breaker with the default settings: a window of 20 calls, at
+     * least 10 calls, 50% failures or 50% calls slower than 5 s to open, 30 s
+     * open and 3 probes.
+     *
+     * @param host The host guarded by the breaker.
+     * @return A new breaker with the default settings.
+     */
+    @NonNull
+    static CircuitBreaker defaults(@NonNull String host) {
+        return new CircuitBreaker(host, 20, 10, 0.5, 5000, 0.5, 30000, 3);
+    }
+
+    /**
+     * Getter state. An open breaker only becomes half-open when the next
+     * request asks for permission after the open period.
+     *
+     * @return The current state.
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Getter host.
+     *
+     * @return The host guarded by the breaker.
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Sets the listener told about every state transition.
+     *
+     * @param listener The listener, or null to stop reporting.
+     */
+    synchronized void setOnCircuitStateListener(@Nullable OnCircuitStateListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns true if a request may be sent now. While half-open only the
+     * probe requests are allowed.
+     *
+     * @return False if the request must fail fast.
+     */
+    boolean allowRequest() {
+        State from;
+        boolean allowed;
+
+        synchronized (this) {
+            if (state == State.CLOSED) return true;
+
+            long now = SystemClock.elapsedRealtime();
+
+            if (state == State.OPEN) {
+                if (now - openedAt < openMs) return false;
+
+                from = state;
+                state = State.HALF_OPEN;
+                probesStarted = 0;
+                probesSucceeded = 0;
+            } else {
+                from = null;
+
+                if (probesStarted >= halfOpenProbes && now - lastProbeAt >= openMs) {
+                    probesStarted = probesSucceeded;
+                }
+            }
+
+            allowed = probesStarted < halfOpenProbes;
+
+            if (allowed) {
+                probesStarted++;
+                lastProbeAt = now;
+            }
+        }
+
+        notifyTransition(from, State.HALF_OPEN);
+        return allowed;
+    }
+
+    /**
+     * Records the outcome of a request that received a response.
+     *
+     * @param durationMs The duration of the request in milliseconds.
+     */
+    void onSuccess(long durationMs) {
+        record(false, durationMs);
+    }
+
+    /**
+     * Records the outcome of a failed request. Client errors (4xx) count as
+     * successes, since they say nothing about the health of the host.
+     *
+     * @param error      The error of the request.
+     * @param durationMs The duration of the request in milliseconds.
+     */
+    void onError(@NonNull VolleyError error, long durationMs) {
+        NetworkResponse response = error.networkResponse;
+        boolean failure = response == null || response.statusCode >= 500;
+
+        record(failure, durationMs);
+    }
+
+    private void record(boolean failure, long durationMs) {
+        State from;
+        State to;
+
+        synchronized (this) {
+            from = state;
+            boolean slow = durationMs >= slowCallMs;
+
+            if (state == State.HALF_OPEN) {
+                if (failure || slow) {
+                    open();
+                } else if (++probesSucceeded >= halfOpenProbes) {
+                    state = State.CLOSED;
+                    recorded = 0;
+                    position = 0;
+                }
+            } else if (state == State.CLOSED) {
+                failures[position] = failure;
+                slowCalls[position] = slow;
+                position = (position + 1) % failures.length;
+                recorded = Math.min(recorded + 1, failures.length);
+
+                if (recorded >= minimumCalls && (rate(failures) >= failureRateThreshold || rate(slowCalls) >= slowCallRateThreshold)) {
+                    open();
+                }
+            }
+
+            to = state;
+        }
+
+        notifyTransition(from, to);
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = SystemClock.elapsedRealtime();
+    }
+
+    private double rate(@NonNull boolean[] outcomes) {
+        int count = 0;
+
+        for (int i = 0; i < recorded; i++) {
+            if (outcomes[i]) count++;
+        }
+
+        return (double) count / recorded;
+    }
+
+    private void notifyTransition(@Nullable State from, @NonNull State to) {
+        OnCircuitStateListener current;
+
+        synchronized (this) {
+            current = listener;
+        }
+
+        if (from != null && from != to && current != null) {
+            current.OnStateChanged(host, from, to);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.mylist_betalist.Api;
+
+import com.android.volley.VolleyError;
+
+/**
+ * Error delivered without contacting the server while the circuit breaker of
+ * the request's host is open.
+ */
+class CircuitOpenError extends VolleyError {
+    CircuitOpenError(String host) {
+        super("Circuit open for " + host + ".");
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.mylist_betalist.Api;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+
+import com.android.volley.Request;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The batch format used unless another {@link BatchEnvelope} is given:
+ * <pre>
+ * {"requests": [{"id": "0", "method": "GET", "url": "/path?query",
+ *                "headers": {...}, "body": {...}}, ...]}
+ * {"responses": [{"id": "0", "status": 200, "body": {...}}, ...]}
+ * </pre>
+ * URLs are sent relative to the host of the batch endpoint. Responses are
+ * matched to calls by id, so the server may answer in any order.
+ */
+class DefaultBatchEnvelope implements BatchEnvelope {
+    @NonNull
+    @Override
+    public JSONObject encode(@NonNull List<Call> calls) throws JSONException {
+        JSONArray requests = new JSONArray();
+
+        for (int i = 0; i < calls.size(); i++) {
+            Call call = calls.get(i);
+            Uri uri = Uri.parse(call.getUrl());
+            String query = uri.getEncodedQuery();
+
+            JSONObject request = new JSONObject();
+            request.put("id", String.valueOf(i));
+            request.put("method", methodName(call.getMethod()));
+            request.put("url", uri.getEncodedPath() + (query != null ? "?" + query : ""));
+
+            if (call.getHeaders() != null) {
+                JSONObject headers = new JSONObject();
+                for (Map.Entry<String, String> header : call.getHeaders().entrySet()) {
+                    headers.put(header.getKey(), header.getValue());
+                }
+                request.put("headers", headers);
+            }
+
+            if (call.getBody() != null) request.put("body", call.getBody());
+
+            requests.put(request);
+        }
+
+        return new JSONObject().put("requests", requests);
+    }
+
+    @NonNull
+    @Override
+    public Result[] decode(@NonNull JSONObject response, @NonNull List<Call> calls) throws JSONException {
+        JSONArray responses = response.getJSONArray("responses");
+        Result[] results = new Result[calls.size()];
+
+        for (int i = 0; i < responses.length(); i++) {
+            JSONObject item = responses.getJSONObject(i);
+            int index = Integer.parseInt(item.getString("id"));
+            if (index < 0 || index >= results.length) continue;
+
+            int status = item.getInt("status");
+            JSONObject body = item.optJSONObject("body");
+            String error = status >= 200 && status < 300 ? null : (body != null ? body.toString() : item.optString("body", null));
+
+            results[index] = new Result(status, body, error);
+        }
+
+        return results;
+    }
+
+    @NonNull
+    private static String methodName(int method) {
+        switch (method) {
+            case Request.Method.POST:
+                return "POST";
+            case Request.Method.PUT:
+                return "PUT";
+            case Request.Method.DELETE:
+                return "DELETE";
+            case Request.Method.PATCH:
+                return "PATCH";
+            default:
+                return "GET";
+        }
+    }
+}
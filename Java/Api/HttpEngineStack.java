@@ -0,0 +1,61 @@
+package com.example.mylist_betalist.Api;
+
+import android.content.Context;
+import android.net.http.HttpEngine;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * HTTP stack that opens its connections through the platform's
+ * {@link HttpEngine} instead of the default HttpURLConnection implementation.
+ * The engine speaks HTTP/2 (and QUIC where the server offers it) and keeps a
+ * pool of connections, so concurrent requests to the same host are
+ * multiplexed over one connection instead of each opening its own. Streaming
+ * multipart uploads keep working, since they also go through
+ * {@link #createConnection(URL)}. The engine negotiates gzip and Brotli and
+ * decodes responses itself, so only the decoded response sizes are reported.
+ */
+@RequiresApi(api = Build.VERSION_CODES.UPSIDE_DOWN_CAKE)
+class HttpEngineStack extends StreamingHurlStack {
+    private final HttpEngine engine;
+
+    HttpEngineStack(@NonNull HttpEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Creates a stack backed by a new engine with HTTP/2, QUIC and Brotli
+     * enabled.
+     *
+     * @param context The context to use to create the engine.
+     * @return A new stack.
+     */
+    @NonNull
+    static HttpEngineStack create(@NonNull Context context) {
+        HttpEngine engine = new HttpEngine.Builder(context.getApplicationContext())
+                .setEnableHttp2(true)
+                .setEnableQuic(true)
+                .setEnableBrotli(true)
+                .build();
+
+        return new HttpEngineStack(engine);
+    }
+
+    @Override
+    protected boolean negotiatesEncoding() {
+        return false;
+    }
+
+    @Override
+    protected HttpURLConnection createConnection(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) engine.openConnection(url);
+        connection.setInstanceFollowRedirects(HttpURLConnection.getFollowRedirects());
+        return connection;
+    }
+}
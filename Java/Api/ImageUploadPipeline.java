@@ -0,0 +1,484 @@
+package com.example.mylist_betalist.Api;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.app.Utils.BitmapScaling;
+import com.example.app.Utils.EncodeFormat;
+import com.example.app.Utils.ImageEncoder;
+import com.example.mylist_betalist.Api.Interfaces.OnUploadCallback;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decodes, resizes, encodes and uploads images in four stages connected by
+ * queues, each stage with its own worker threads, so the encoding of one
+ * image overlaps the upload of the previous one. The queues between stages
+ * are bounded and a worker blocks until the next stage has room, which
+ * bounds the number of decoded bitmaps and encoded files held in memory.
+ * Only the queue of images waiting to be decoded is unbounded; it holds the
+ * sources, not their pixels.
+ * <p>
+ * The size and JPEG quality follow the {@link NetworkQuality} at the time an
+ * image is decoded. An upload keeps its slot in the upload stage until its
+ * request is over.
+ */
+class ImageUploadPipeline {
+    /**
+     * Sends the encoded bytes of an image and reports the outcome.
+     */
+    interface Uploader {
+        void upload(@NonNull byte[] data, @NonNull OnUploadCallback callback);
+    }
+
+    /**
+     * Returns the current network quality.
+     */
+    interface QualitySource {
+        @NonNull
+        NetworkQuality get();
+    }
+
+    private interface Step {
+        /**
+         * Processes the item, returning false if it failed and was reported.
+         */
+        boolean process(@NonNull Item item) throws Exception;
+    }
+
+    private static final long POLL_MS = 1000;
+
+    private final QualitySource qualitySource;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final List<Stage> stages = new ArrayList<>();
+    private final Set<Item> live = new HashSet<>();
+    private final long startedAt = SystemClock.elapsedRealtime();
+    private volatile boolean closed;
+
+    /**
+     * @param queueCapacity    The number of images each queue between two
+     *                         stages holds at most.
+     * @param decodeThreads    The number of images decoded at once.
+     * @param resizeThreads    The number of images resized at once.
+     * @param encodeThreads    The number of images encoded at once.
+     * @param uploadSlots      The number of images uploaded at once.
+     * @param qualitySource    Returns the network quality that sets the size
+     *                         and quality of the images.
+     */
+    ImageUploadPipeline(int queueCapacity, int decodeThreads, int resizeThreads, int encodeThreads, int uploadSlots, @NonNull QualitySource qualitySource) {
+        if (queueCapacity <= 0 || decodeThreads <= 0 || resizeThreads <= 0 || encodeThreads <= 0 || uploadSlots <= 0) {
+            throw new IllegalArgumentException("The queue capacity and the parallelism of every stage must be positive.");
+        }
+
+        this.qualitySource = qualitySource;
+
+        stages.add(new Stage("decode", decodeThreads, new LinkedBlockingQueue<>(), -1, this::decode));
+        stages.add(new Stage("resize", resizeThreads, new ArrayBlockingQueue<>(queueCapacity), queueCapacity, this::resize));
+        stages.add(new Stage("encode", encodeThreads, new ArrayBlockingQueue<>(queueCapacity), queueCapacity, this::encode));
+        stages.add(new Stage("upload", uploadSlots, new ArrayBlockingQueue<>(queueCapacity), queueCapacity, this::upload));
+
+        for (int i = 0; i < stages.size(); i++) {
+            Stage stage = stages.get(i);
+            stage.previous = i > 0 ? stages.get(i - 1) : null;
+            stage.next = i + 1 < stages.size() ? stages.get(i + 1) : null;
+            stage.start();
+        }
+    }
+
+    /**
+     * Queues an encoded image, read from the source when its turn to be
+     * decoded comes. Never blocks.
+     *
+     * @param fileName The name of the image, used in error messages.
+     * @param source   Opens the encoded image; it is opened twice.
+     * @param uploader Sends the encoded bytes.
+     * @param callback The callback to invoke with the result of the upload.
+     * @param tag      The tag of the upload, or null.
+     * @return False if the pipeline is closed and the image was not queued.
+     */
+    boolean submit(@NonNull String fileName, @NonNull MultipartRequest.StreamOpener source, @NonNull Uploader uploader, @NonNull OnUploadCallback callback, @Nullable Object tag) {
+        return submit(new Item(fileName, source, null, uploader, callback, tag));
+    }
+
+    /**
+     * Queues an already decoded image, which skips the decode stage. Never
+     * blocks.
+     *
+     * @param fileName The name of the image, used in error messages.
+     * @param bitmap   The image. It is not recycled.
+     * @param uploader Sends the encoded bytes.
+     * @param callback The callback to invoke with the result of the upload.
+     * @param tag      The tag of the upload, or null.
+     * @return False if the pipeline is closed and the image was not queued.
+     */
+    boolean submit(@NonNull String fileName, @NonNull Bitmap bitmap, @NonNull Uploader uploader, @NonNull OnUploadCallback callback, @Nullable Object tag) {
+        return submit(new Item(fileName, null, bitmap, uploader, callback, tag));
+    }
+
+    /**
+     * Drops the images with the given tag. Queued images are removed, images
+     * being processed stop after their current stage, and the upload slots of
+     * the ones being uploaded, whose requests are cancelled by the caller,
+     * are freed. No result is delivered for them.
+     *
+     * @param tag The tag of the uploads to cancel.
+     */
+    void cancel(@NonNull Object tag) {
+        List<Item> canceled = new ArrayList<>();
+
+        synchronized (live) {
+            for (Item item : live) {
+                if (tag.equals(item.tag)) canceled.add(item);
+            }
+
+            live.removeAll(canceled);
+        }
+
+        for (Item item : canceled) {
+            item.canceled = true;
+            item.done.countDown();
+
+            for (Stage stage : stages) {
+                if (stage.input.remove(item)) item.release();
+            }
+        }
+    }
+
+    /**
+     * Stops accepting images. The images already queued are still uploaded,
+     * and the worker threads end once every stage is drained.
+     */
+    void close() {
+        closed = true;
+    }
+
+    /**
+     * Returns the counters of every stage, in pipeline order.
+     *
+     * @return One snapshot per stage.
+     */
+    @NonNull
+    List<PipelineStageStats> getStats() {
+        long elapsed = SystemClock.elapsedRealtime() - startedAt;
+        List<PipelineStageStats> stats = new ArrayList<>();
+
+        for (Stage stage : stages) {
+            stats.add(new PipelineStageStats(stage.name, stage.parallelism, stage.active.get(), stage.input.size(), stage.peakQueued.get(),
+                    stage.capacity, stage.processed.get(), stage.failed.get(), stage.busyNs.get() / 1000000, stage.blockedNs.get() / 1000000, elapsed));
+        }
+
+        return stats;
+    }
+
+    private boolean submit(@NonNull Item item) {
+        if (closed) return false;
+
+        synchronized (live) {
+            live.add(item);
+        }
+
+        stages.get(0).offer(item);
+        return true;
+    }
+
+    /**
+     * Decodes an encoded image at the largest power-of-two sample size that
+     * still covers the maximum dimension, as {@link BitmapScaling} decides it
+     * for every image of the app.
+     */
+    private boolean decode(@NonNull Item item) throws IOException {
+        item.quality = qualitySource.get();
+        if (item.bitmap != null) return true;
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+
+        try (InputStream in = item.source.open()) {
+            BitmapFactory.decodeStream(in, null, options);
+        }
+
+        if (options.outWidth <= 0 || options.outHeight <= 0) throw new IOException("Unsupported image.");
+
+        int maxDimension = item.quality.getMaxImageDimension();
+        int sampleSize = BitmapScaling.calculateSampleSize(options.outWidth, options.outHeight, maxDimension, maxDimension);
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+
+        try (InputStream in = item.source.open()) {
+            item.bitmap = BitmapFactory.decodeStream(in, null, options);
+        }
+
+        if (item.bitmap == null) throw new IOException("Unsupported image.");
+
+        item.ownsBitmap = true;
+        return true;
+    }
+
+    private boolean resize(@NonNull Item item) {
+        Bitmap bitmap = item.bitmap;
+        int maxDimension = item.quality.getMaxImageDimension();
+        Bitmap scaled = BitmapScaling.scaleToFit(bitmap, maxDimension, maxDimension);
+
+        if (scaled != bitmap) {
+            if (item.ownsBitmap) bitmap.recycle();
+            item.bitmap = scaled;
+            item.ownsBitmap = true;
+        }
+
+        return true;
+    }
+
+    private boolean encode(@NonNull Item item) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(item.bitmap.getWidth() * item.bitmap.getHeight() / 8);
+        boolean encoded = ImageEncoder.encode(item.bitmap, EncodeFormat.JPEG, item.quality.getImageQuality(), outputStream);
+
+        item.releaseBitmap();
+        if (!encoded) throw new IOException("Could not encode the image.");
+
+        item.data = outputStream.toByteArray();
+        return true;
+    }
+
+    private boolean upload(@NonNull Item item) throws InterruptedException {
+        if (item.canceled) {
+            item.data = null;
+            return true;
+        }
+
+        byte[] data = item.data;
+        boolean[] succeeded = new boolean[1];
+
+        handler.post(() -> {
+            if (item.canceled) return;
+
+            item.uploader.upload(data, new OnUploadCallback() {
+                @Override
+                public void OnSuccess(String response) {
+                    if (item.canceled) return;
+
+                    succeeded[0] = true;
+                    item.callback.OnSuccess(response);
+                    item.done.countDown();
+                }
+
+                @Override
+                public void OnFailed(String error) {
+                    if (item.canceled) return;
+
+                    item.callback.OnFailed(error);
+                    item.done.countDown();
+                }
+            });
+        });
+
+        try {
+            item.done.await();
+        } finally {
+            synchronized (live) {
+                live.remove(item);
+            }
+
+            item.data = null;
+        }
+
+        return succeeded[0] || item.canceled;
+    }
+
+    private void fail(@NonNull Item item, @NonNull String error) {
+        synchronized (live) {
+            live.remove(item);
+        }
+
+        item.release();
+        if (!item.canceled) handler.post(() -> item.callback.OnFailed(error));
+    }
+
+    /**
+     * An image on its way through the stages.
+     */
+    private static final class Item {
+        final String fileName;
+        final MultipartRequest.StreamOpener source;
+        final Uploader uploader;
+        final OnUploadCallback callback;
+        final Object tag;
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile boolean canceled;
+        NetworkQuality quality;
+        Bitmap bitmap;
+        boolean ownsBitmap;
+        byte[] data;
+
+        Item(@NonNull String fileName, @Nullable MultipartRequest.StreamOpener source, @Nullable Bitmap bitmap, @NonNull Uploader uploader, @NonNull OnUploadCallback callback, @Nullable Object tag) {
+            this.fileName = fileName;
+            this.source = source;
+            this.bitmap = bitmap;
+            this.uploader = uploader;
+            this.callback = callback;
+            this.tag = tag;
+        }
+
+        void releaseBitmap() {
+            if (bitmap != null && ownsBitmap) bitmap.recycle();
+
+            bitmap = null;
+            ownsBitmap = false;
+        }
+
+        void release() {
+            releaseBitmap();
+            data = null;
+        }
+    }
+
+    /**
+     * One stage: its input queue and the workers taking items from it and
+     * handing them to the next stage.
+     */
+    private final class Stage {
+        final String name;
+        final int parallelism;
+        final BlockingQueue<Item> input;
+        final int capacity;
+        final Step step;
+        final AtomicInteger alive = new AtomicInteger();
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger peakQueued = new AtomicInteger();
+        final AtomicLong processed = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong busyNs = new AtomicLong();
+        final AtomicLong blockedNs = new AtomicLong();
+        Stage previous;
+        Stage next;
+
+        Stage(@NonNull String name, int parallelism, @NonNull BlockingQueue<Item> input, int capacity, @NonNull Step step) {
+            this.name = name;
+            this.parallelism = parallelism;
+            this.input = input;
+            this.capacity = capacity;
+            this.step = step;
+        }
+
+        void start() {
+            for (int i = 0; i < parallelism; i++) {
+                Thread worker = new Thread(this::run, "ImageUpload-" + name + "-" + i);
+                worker.setDaemon(true);
+                alive.incrementAndGet();
+                worker.start();
+            }
+        }
+
+        void offer(@NonNull Item item) {
+            input.add(item);
+            updatePeak();
+        }
+
+        /**
+         * Hands the item to this stage, waiting while its queue is full.
+         */
+        void put(@NonNull Item item) throws InterruptedException {
+            input.put(item);
+            updatePeak();
+        }
+
+        private void run() {
+            try {
+                while (true) {
+                    Item item = input.poll(POLL_MS, TimeUnit.MILLISECONDS);
+
+                    if (item == null) {
+                        if (closed && (previous == null || previous.alive.get() == 0) && input.isEmpty()) return;
+                        continue;
+                    }
+
+                    if (!process(item)) return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                alive.decrementAndGet();
+            }
+        }
+
+        /**
+         * Runs the step on the item and forwards it, returning false if the
+         * worker was interrupted.
+         */
+        private boolean process(@NonNull Item item) {
+            active.incrementAndGet();
+            long start = System.nanoTime();
+            boolean ok;
+
+            try {
+                ok = step.process(item);
+            } catch (InterruptedException e) {
+                fail(item, "Upload interrupted.");
+                failed.incrementAndGet();
+                return false;
+            } catch (Exception | OutOfMemoryError e) {
+                // An image too large for the heap fails alone; the worker and
+                // the other images carry on once its buffers are released.
+                fail(item, "Image error (" + item.fileName + "): " + e.getMessage());
+                ok = false;
+            } finally {
+                busyNs.addAndGet(System.nanoTime() - start);
+                active.decrementAndGet();
+            }
+
+            if (!ok) {
+                failed.incrementAndGet();
+                return true;
+            }
+
+            processed.incrementAndGet();
+            if (next == null) return true;
+
+            if (item.canceled) {
+                item.release();
+                return true;
+            }
+
+            long blockedFrom = System.nanoTime();
+
+            try {
+                next.put(item);
+            } catch (InterruptedException e) {
+                fail(item, "Upload interrupted.");
+                return false;
+            } finally {
+                blockedNs.addAndGet(System.nanoTime() - blockedFrom);
+            }
+
+            return true;
+        }
+
+        private void updatePeak() {
+            int size = input.size();
+            int peak = peakQueued.get();
+
+            while (size > peak && !peakQueued.compareAndSet(peak, size)) {
+                peak = peakQueued.get();
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.app.Api.Interfaces;
+
+import java.util.List;
+
+/**
+ * Receives a streamed JSON array. {@code OnBatch} is invoked on the worker
+ * thread that reads the response, and the next element is only read once it
+ * returns; {@code OnComplete} and {@code OnFailed} are invoked on the main
+ * thread.
+ */
+public interface OnArrayBatchCallback<T> {
+    void OnBatch(List<T> batch);
+
+    void OnComplete(int count);
+
+    void OnFailed(int status, String message);
+}
@@ -0,0 +1,11 @@
+package com.example.app.Api.Interfaces;
+
+import com.example.app.Api.UploadResult;
+
+import java.util.List;
+
+public interface OnBatchUploadCallback {
+    void OnProgress(int completed, int total, long bytesUploaded, long totalBytes);
+
+    void OnComplete(List<UploadResult> results);
+}
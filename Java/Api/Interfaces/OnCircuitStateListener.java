@@ -0,0 +1,7 @@
+package com.example.app.Api.Interfaces;
+
+import com.example.app.Api.CircuitBreaker;
+
+public interface OnCircuitStateListener {
+    void OnStateChanged(String host, CircuitBreaker.State from, CircuitBreaker.State to);
+}
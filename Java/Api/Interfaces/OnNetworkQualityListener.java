@@ -0,0 +1,7 @@
+package com.example.app.Api.Interfaces;
+
+import com.example.app.Api.NetworkQuality;
+
+public interface OnNetworkQualityListener {
+    void OnQualityChanged(NetworkQuality from, NetworkQuality to);
+}
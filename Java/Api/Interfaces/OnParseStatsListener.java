@@ -0,0 +1,7 @@
+package com.example.app.Api.Interfaces;
+
+import com.example.app.Api.ParseStats;
+
+public interface OnParseStatsListener {
+    void OnParsed(ParseStats stats);
+}
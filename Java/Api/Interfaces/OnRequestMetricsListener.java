@@ -0,0 +1,7 @@
+package com.example.app.Api.Interfaces;
+
+import com.example.app.Api.RequestMetrics;
+
+public interface OnRequestMetricsListener {
+    void OnRequestFinished(RequestMetrics metrics);
+}
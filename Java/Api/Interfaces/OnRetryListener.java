@@ -0,0 +1,5 @@
+package com.example.app.Api.Interfaces;
+
+public interface OnRetryListener {
+    void OnRetry(String url, int attempt, long delayMs, int status);
+}
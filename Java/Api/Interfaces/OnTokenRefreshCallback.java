@@ -0,0 +1,7 @@
+package com.example.app.Api.Interfaces;
+
+public interface OnTokenRefreshCallback {
+    void OnSuccess(String token);
+
+    void OnFailed(String error);
+}
@@ -0,0 +1,7 @@
+package com.example.app.Api.Interfaces;
+
+import com.example.app.Api.TransferStats;
+
+public interface OnTransferStatsListener {
+    void OnTransfer(TransferStats stats);
+}
@@ -0,0 +1,7 @@
+package com.example.app.Api.Interfaces;
+
+public interface OnTypedResponseCallback<T> {
+    void OnSuccess(T response);
+
+    void OnFailed(int status, String message);
+}
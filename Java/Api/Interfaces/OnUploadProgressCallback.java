@@ -0,0 +1,5 @@
+package com.example.app.Api.Interfaces;
+
+public interface OnUploadProgressCallback extends OnUploadCallback {
+    void OnProgress(long bytesSent, long totalBytes, double bytesPerSecond);
+}
@@ -0,0 +1,5 @@
+package com.example.app.Api.Interfaces;
+
+public interface TokenAuthenticator {
+    void OnRefresh(String expiredToken, OnTokenRefreshCallback callback);
+}
@@ -0,0 +1,259 @@
+package com.example.mylist_betalist.Api;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ready-made {@link TypeAdapter}s. {@link #forClass(Class)} decodes plain model
+ * classes by matching JSON names to field names; fields may be primitives,
+ * their boxed types, String, List of a supported type, or other model
+ * classes. Unknown names are skipped.
+ */
+final class JsonAdapters {
+    private static final Map<Class<?>, TypeAdapter<?>> adapters = new ConcurrentHashMap<>();
+
+    static final TypeAdapter<String> STRING = reader -> {
+        JsonToken token = reader.peek();
+
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        return token == JsonToken.BOOLEAN ? String.valueOf(reader.nextBoolean()) : reader.nextString();
+    };
+
+    static final TypeAdapter<Integer> INTEGER = reader -> isNull(reader) ? null : reader.nextInt();
+
+    static final TypeAdapter<Long> LONG = reader -> isNull(reader) ? null : reader.nextLong();
+
+    static final TypeAdapter<Double> DOUBLE = reader -> isNull(reader) ? null : reader.nextDouble();
+
+    static final TypeAdapter<Float> FLOAT = reader -> isNull(reader) ? null : (float) reader.nextDouble();
+
+    static final TypeAdapter<Boolean> BOOLEAN = reader -> isNull(reader) ? null : reader.nextBoolean();
+
+    static final TypeAdapter<JSONObject> JSON_OBJECT = reader -> isNull(reader) ? null : (JSONObject) readValue(reader);
+
+    private JsonAdapters() {
+    }
+
+    /**
+     * Returns an adapter that decodes a JSON array with the given element
+     * adapter.
+     *
+     * @param elementAdapter The adapter of the array elements.
+     * @param <T>            The type of the array elements.
+     * @return An adapter producing a list, or null for a JSON null.
+     */
+    @NonNull
+    static <T> TypeAdapter<List<T>> listOf(@NonNull TypeAdapter<T> elementAdapter) {
+        return reader -> {
+            if (isNull(reader)) return null;
+
+            List<T> list = new ArrayList<>();
+            reader.beginArray();
+
+            while (reader.hasNext()) {
+                list.add(elementAdapter.read(reader));
+            }
+
+            reader.endArray();
+            return list;
+        };
+    }
+
+    /**
+     * Returns the adapter of the given class. Model classes need a no-argument
+     * constructor; adapters are built once per class and reused.
+     *
+     * @param type The class to decode.
+     * @param <T>  The type to decode.
+     * @return The adapter of the class.
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    static <T> TypeAdapter<T> forClass(@NonNull Class<T> type) {
+        return (TypeAdapter<T>) forType(type);
+    }
+
+    @NonNull
+    private static TypeAdapter<?> forType(@NonNull Type type) {
+        if (type instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType) type;
+            Class<?> raw = (Class<?>) parameterized.getRawType();
+
+            if (raw == List.class || raw == Collection.class || raw == ArrayList.class) {
+                return listOf(forType(parameterized.getActualTypeArguments()[0]));
+            }
+
+            return forType(raw);
+        }
+
+        Class<?> raw = (Class<?>) type;
+
+        if (raw == String.class) return STRING;
+        if (raw == int.class || raw == Integer.class) return INTEGER;
+        if (raw == long.class || raw == Long.class) return LONG;
+        if (raw == double.class || raw == Double.class) return DOUBLE;
+        if (raw == float.class || raw == Float.class) return FLOAT;
+        if (raw == boolean.class || raw == Boolean.class) return BOOLEAN;
+        if (raw.isPrimitive() || raw.isArray() || raw.isInterface()) {
+            throw new IllegalArgumentException("Unsupported data type: " + raw);
+        }
+
+        TypeAdapter<?> adapter = adapters.get(raw);
+
+        if (adapter == null) {
+            adapter = new ReflectiveAdapter<>(raw);
+            adapters.put(raw, adapter);
+        }
+
+        return adapter;
+    }
+
+    /**
+     * Reads any JSON value into its org.json representation, for callers that
+     * still want JSONObjects for the elements of a streamed array.
+     */
+    private static Object readValue(@NonNull JsonReader reader) throws IOException {
+        try {
+            switch (reader.peek()) {
+                case BEGIN_OBJECT:
+                    JSONObject object = new JSONObject();
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        object.put(reader.nextName(), readValue(reader));
+                    }
+                    reader.endObject();
+                    return object;
+                case BEGIN_ARRAY:
+                    JSONArray array = new JSONArray();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        array.put(readValue(reader));
+                    }
+                    reader.endArray();
+                    return array;
+                case BOOLEAN:
+                    return reader.nextBoolean();
+                case NUMBER:
+                    String number = reader.nextString();
+                    try {
+                        return Long.parseLong(number);
+                    } catch (NumberFormatException e) {
+                        return Double.parseDouble(number);
+                    }
+                case NULL:
+                    reader.nextNull();
+                    return JSONObject.NULL;
+                default:
+                    return reader.nextString();
+            }
+        } catch (JSONException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static boolean isNull(@NonNull JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.NULL) return false;
+
+        reader.nextNull();
+        return true;
+    }
+
+    /**
+     * Decodes a JSON object into a new instance of a model class, field by
+     * field. Field adapters are resolved on first use, so model classes may
+     * refer to themselves.
+     */
+    private static final class ReflectiveAdapter<T> implements TypeAdapter<T> {
+        private final Constructor<T> constructor;
+        private final Map<String, Field> fields = new HashMap<>();
+        private final Map<String, TypeAdapter<?>> fieldAdapters = new ConcurrentHashMap<>();
+
+        ReflectiveAdapter(@NonNull Class<T> type) {
+            try {
+                constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException(type + " has no no-argument constructor.", e);
+            }
+
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || fields.containsKey(field.getName())) {
+                        continue;
+                    }
+
+                    field.setAccessible(true);
+                    fields.put(field.getName(), field);
+                }
+            }
+        }
+
+        @Override
+        public T read(@NonNull JsonReader reader) throws IOException {
+            if (isNull(reader)) return null;
+
+            T instance;
+
+            try {
+                instance = constructor.newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IOException("Could not create " + constructor.getDeclaringClass(), e);
+            }
+
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                Field field = fields.get(name);
+
+                if (field == null) {
+                    reader.skipValue();
+                    continue;
+                }
+
+                TypeAdapter<?> adapter = fieldAdapters.get(name);
+                if (adapter == null) {
+                    adapter = forType(field.getGenericType());
+                    fieldAdapters.put(name, adapter);
+                }
+
+                Object value = adapter.read(reader);
+
+                if (value != null || !field.getType().isPrimitive()) {
+                    try {
+                        field.set(instance, value);
+                    } catch (IllegalAccessException e) {
+                        throw new IOException("Could not set " + field, e);
+                    }
+                }
+            }
+
+            reader.endObject();
+            return instance;
+        }
+    }
+}
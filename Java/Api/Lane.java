@@ -0,0 +1,25 @@
+package com.example.mylist_betalist.Api;
+
+/**
+ * Priority lanes of the requests sent through {@link Api}, from the most to
+ * the least urgent. Each lane has its own concurrency limit in the
+ * {@link LaneScheduler}.
+ */
+public enum Lane {
+    /**
+     * Requests whose result is on screen right now.
+     */
+    INTERACTIVE,
+    /**
+     * Regular requests. This is the lane of every request sent without one.
+     */
+    NORMAL,
+    /**
+     * Prefetching and synchronisation the user is not waiting for.
+     */
+    BACKGROUND,
+    /**
+     * Uploads and other large transfers.
+     */
+    BULK
+}
@@ -0,0 +1,287 @@
+package com.example.mylist_betalist.Api;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import com.android.volley.Request;
+import com.android.volley.RequestQueue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds requests in per-lane queues and hands them to the RequestQueue only
+ * when a slot is free, so that no more than {@code maxConcurrent} requests are
+ * in the RequestQueue at once and no lane exceeds its own limit. The queue
+ * must run at least {@code maxConcurrent} network threads, so a dispatched
+ * request starts right away and an interactive request never waits behind
+ * bulk work already queued.
+ * <p>
+ * When a slot frees up, the oldest request of the most urgent lane under its
+ * limit is dispatched. A request gains one lane of urgency for every
+ * {@code agingMs} it waits, so lower lanes are never starved.
+ */
+class LaneScheduler {
+    private static final Lane[] LANES = Lane.values();
+
+    private int maxConcurrent;
+    private final long agingMs;
+    private final int[] limits = new int[LANES.length];
+    private final int[] running = new int[LANES.length];
+    private final long[] dispatched = new long[LANES.length];
+    private final long[] totalWaitMs = new long[LANES.length];
+    private final long[] maxWaitMs = new long[LANES.length];
+    private final List<ArrayDeque<Entry>> queues = new ArrayList<>();
+    private final Map<Request<?>, Lane> inFlight = new IdentityHashMap<>();
+    private RequestQueue queue;
+    private int total;
+    private int throttle = Integer.MAX_VALUE;
+
+    /**
+     * @param maxConcurrent The maximum number of requests in the RequestQueue
+     *                      at once.
+     * @param agingMs       The waiting time in milliseconds after which a
+     *                      request is treated as one lane more urgent.
+     */
+    LaneScheduler(int maxConcurrent, long agingMs) {
+        this.agingMs = agingMs;
+
+        for (Lane lane : LANES) {
+            queues.add(new ArrayDeque<>());
+        }
+
+        setMaxConcurrent(maxConcurrent);
+    }
+
+    /**
+     * Sets how many requests may be in the RequestQueue at once, and resets
+     * the lane limits to their defaults for that number: all of it for
+     * interactive, two thirds for normal, a third for background and a
+     * quarter for bulk requests.
+     *
+     * @param maxConcurrent The maximum number of requests in the RequestQueue
+     *                      at once.
+     */
+    void setMaxConcurrent(int maxConcurrent) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("The concurrency limit must be positive.");
+        }
+
+        synchronized (this) {
+            this.maxConcurrent = maxConcurrent;
+
+            limits[Lane.INTERACTIVE.ordinal()] = maxConcurrent;
+            limits[Lane.NORMAL.ordinal()] = Math.max(1, maxConcurrent * 2 / 3);
+            limits[Lane.BACKGROUND.ordinal()] = Math.max(1, maxConcurrent / 3);
+            limits[Lane.BULK.ordinal()] = Math.max(1, maxConcurrent / 4);
+        }
+
+        dispatch();
+    }
+
+    /**
+     * Sets the RequestQueue that dispatched requests are added to, and
+     * dispatches the requests submitted before it existed.
+     *
+     * @param queue The RequestQueue to use.
+     */
+    void setQueue(@NonNull RequestQueue queue) {
+        synchronized (this) {
+            this.queue = queue;
+        }
+
+        dispatch();
+    }
+
+    /**
+     * Lowers how many requests may be in the RequestQueue at once without
+     * touching the lane limits, e.g. while the network is slow. Requests
+     * already running are not interrupted.
+     *
+     * @param throttle The maximum number of requests in the RequestQueue at
+     *                 once, or Integer.MAX_VALUE to only apply maxConcurrent.
+     */
+    void setThrottle(int throttle) {
+        if (throttle <= 0) {
+            throw new IllegalArgumentException("The concurrency limit must be positive.");
+        }
+
+        synchronized (this) {
+            this.throttle = throttle;
+        }
+
+        dispatch();
+    }
+
+    /**
+     * Sets how many requests of a lane may run at once.
+     *
+     * @param lane  The lane to limit.
+     * @param limit The maximum number of running requests of the lane.
+     */
+    void setLimit(@NonNull Lane lane, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("The concurrency limit must be positive.");
+        }
+
+        synchronized (this) {
+            limits[lane.ordinal()] = limit;
+        }
+
+        dispatch();
+    }
+
+    /**
+     * Queues a request in the given lane.
+     *
+     * @param request The request to send.
+     * @param lane    The lane of the request.
+     */
+    void add(@NonNull Request<?> request, @NonNull Lane lane) {
+        synchronized (this) {
+            queues.get(lane.ordinal()).add(new Entry(request, lane, SystemClock.elapsedRealtime()));
+        }
+
+        dispatch();
+    }
+
+    /**
+     * Moves a request that is still queued to a more urgent lane, ahead of the
+     * requests already waiting there. Requests already dispatched, or already
+     * in that lane or a more urgent one, are left alone.
+     *
+     * @param request The request to promote.
+     * @param lane    The lane to move it to.
+     */
+    void promote(@NonNull Request<?> request, @NonNull Lane lane) {
+        synchronized (this) {
+            for (int i = lane.ordinal() + 1; i < LANES.length; i++) {
+                Iterator<Entry> entries = queues.get(i).iterator();
+
+                while (entries.hasNext()) {
+                    Entry entry = entries.next();
+                    if (entry.request != request) continue;
+
+                    entries.remove();
+                    queues.get(lane.ordinal()).addFirst(new Entry(request, lane, entry.queuedAt));
+                    i = LANES.length;
+                    break;
+                }
+            }
+        }
+
+        dispatch();
+    }
+
+    /**
+     * Frees the slot of a request that finished. Requests that were not
+     * dispatched by this scheduler are ignored.
+     *
+     * @param request The request that finished.
+     */
+    void onFinished(@NonNull Request<?> request) {
+        synchronized (this) {
+            Lane lane = inFlight.remove(request);
+            if (lane == null) return;
+
+            running[lane.ordinal()]--;
+            total--;
+        }
+
+        dispatch();
+    }
+
+    /**
+     * Cancels the queued requests with the given tag. They are still handed
+     * to the RequestQueue in turn, which finishes them without sending them,
+     * so their finished listeners run as usual.
+     *
+     * @param tag The tag of the requests to cancel.
+     */
+    synchronized void cancelAll(@NonNull Object tag) {
+        for (ArrayDeque<Entry> lane : queues) {
+            for (Entry entry : lane) {
+                if (tag.equals(entry.request.getTag())) entry.request.cancel();
+            }
+        }
+    }
+
+    /**
+     * Returns the counters of a lane.
+     *
+     * @param lane The lane to get the counters of.
+     * @return A snapshot of the counters.
+     */
+    @NonNull
+    synchronized LaneStats getStats(@NonNull Lane lane) {
+        int i = lane.ordinal();
+        return new LaneStats(lane, queues.get(i).size(), running[i], dispatched[i], totalWaitMs[i], maxWaitMs[i]);
+    }
+
+    private void dispatch() {
+        List<Request<?>> ready = new ArrayList<>();
+        RequestQueue target;
+
+        synchronized (this) {
+            target = queue;
+            if (target == null) return;
+
+            long now = SystemClock.elapsedRealtime();
+            Entry next;
+
+            while (total < Math.min(maxConcurrent, throttle) && (next = pick(now)) != null) {
+                int i = next.lane.ordinal();
+                long waited = now - next.queuedAt;
+
+                queues.get(i).poll();
+                running[i]++;
+                total++;
+                dispatched[i]++;
+                totalWaitMs[i] += waited;
+                maxWaitMs[i] = Math.max(maxWaitMs[i], waited);
+                inFlight.put(next.request, next.lane);
+                ready.add(next.request);
+            }
+        }
+
+        for (Request<?> request : ready) {
+            target.add(request);
+        }
+    }
+
+    private Entry pick(long now) {
+        Entry best = null;
+        double bestRank = Double.MAX_VALUE;
+
+        for (int i = 0; i < LANES.length; i++) {
+            Entry head = queues.get(i).peek();
+            if (head == null || running[i] >= limits[i]) continue;
+
+            double rank = agingMs > 0 ? i - (double) (now - head.queuedAt) / agingMs : i;
+
+            if (rank < bestRank) {
+                best = head;
+                bestRank = rank;
+            }
+        }
+
+        return best;
+    }
+
+    private static final class Entry {
+        final Request<?> request;
+        final Lane lane;
+        final long queuedAt;
+
+        Entry(Request<?> request, Lane lane, long queuedAt) {
+            this.request = request;
+            this.lane = lane;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
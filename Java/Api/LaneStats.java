@@ -0,0 +1,77 @@
+package com.example.mylist_betalist.Api;
+
+/**
+ * Snapshot of the counters of one {@link Lane}.
+ */
+public class LaneStats {
+    private final Lane lane;
+    private final int queued;
+    private final int running;
+    private final long dispatched;
+    private final long totalWaitMs;
+    private final long maxWaitMs;
+
+    LaneStats(Lane lane, int queued, int running, long dispatched, long totalWaitMs, long maxWaitMs) {
+        this.lane = lane;
+        this.queued = queued;
+        this.running = running;
+        this.dispatched = dispatched;
+        this.totalWaitMs = totalWaitMs;
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    /**
+     * Getter lane.
+     *
+     * @return the lane the counters belong to
+     */
+    public Lane getLane() {
+        return lane;
+    }
+
+    /**
+     * Getter queued.
+     *
+     * @return requests waiting for a free slot
+     */
+    public int getQueued() {
+        return queued;
+    }
+
+    /**
+     * Getter running.
+     *
+     * @return requests handed to the RequestQueue and not finished yet
+     */
+    public int getRunning() {
+        return running;
+    }
+
+    /**
+     * Getter dispatched.
+     *
+     * @return requests handed to the RequestQueue so far
+     */
+    public long getDispatched() {
+        return dispatched;
+    }
+
+    /**
+     * Getter max wait.
+     *
+     * @return longest time in milliseconds a request waited in the lane
+     */
+    public long getMaxWaitMs() {
+        return maxWaitMs;
+    }
+
+    /**
+     * Getter average wait.
+     *
+     * @return average time in milliseconds a dispatched request waited in the
+     * lane
+     */
+    public double getAverageWaitMs() {
+        return dispatched == 0 ? 0 : (double) totalWaitMs / dispatched;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.mylist_betalist.Api;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Log-linear latency histogram in the style of HdrHistogram: values below 64
+ * are counted exactly, larger ones in buckets that are at most about 3% wide,
+ * so percentiles keep two significant digits whatever the range, in a fixed
+ * amount of memory.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKETS = 64;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int MAX_SHIFT = 40;
+
+    private final long[] counts = new long[SUB_BUCKETS + MAX_SHIFT * HALF];
+    private long totalCount;
+    private long sum;
+    private long max;
+
+    LatencyHistogram() {
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @param value The value to add; negative values are ignored.
+     */
+    synchronized void record(long value) {
+        if (value < 0) return;
+
+        counts[indexOf(value)]++;
+        totalCount++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Getter total count.
+     *
+     * @return number of recorded values
+     */
+    public synchronized long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Getter max.
+     *
+     * @return largest recorded value
+     */
+    public synchronized long getMax() {
+        return max;
+    }
+
+    /**
+     * Getter mean.
+     *
+     * @return mean of the recorded values
+     */
+    public synchronized double getMean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded
+     * values fall, within the precision of the buckets.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The value at the percentile, or 0 if nothing was recorded.
+     */
+    public synchronized long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) return 0;
+
+        long target = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * totalCount));
+        long seen = 0;
+
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) return Math.min(highestValueOf(i), max);
+        }
+
+        return max;
+    }
+
+    /**
+     * Returns a copy of the histogram.
+     *
+     * @return A new histogram with the same counts.
+     */
+    @NonNull
+    synchronized LatencyHistogram copy() {
+        LatencyHistogram copy = new LatencyHistogram();
+        System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+        copy.totalCount = totalCount;
+        copy.sum = sum;
+        copy.max = max;
+        return copy;
+    }
+
+    private int indexOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+
+        int shift = Math.min(63 - Long.numberOfLeadingZeros(value) - 5, MAX_SHIFT);
+        int sub = (int) Math.min(value >>> shift, SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (shift - 1) * HALF + (sub - HALF);
+    }
+
+    private long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) return index;
+
+        int shift = (index - SUB_BUCKETS) / HALF + 1;
+        int sub = (index - SUB_BUCKETS) % HALF + HALF;
+        return ((long) (sub + 1) << shift) - 1;
+    }
+}
@@ -10,20 +10,28 @@ import com.android.volley.Response;
 import com.android.volley.VolleyError;
 import com.android.volley.toolbox.HttpHeaderParser;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class MultipartRequest extends Request<NetworkResponse> {
     protected final String boundary = "apiclient-" + System.currentTimeMillis();
     private final String twoHyphens = "--";
     private final String lineEnd = "\r\n";
+    private final int chunkSize = 64 * 1024;
     private final Response.Listener<NetworkResponse> mListener;
     private final Response.ErrorListener mErrorListener;
     private Map<String, String> mHeaders;
+    private boolean streaming;
 
     /**
      * Default constructor with predefined header and post method.
@@ -64,26 +72,17 @@ public class MultipartRequest extends Request<NetworkResponse> {
         return "multipart/form-data;boundary=" + boundary;
     }
 
+    /**
+     * Builds the whole multipart payload in memory. Requests in streaming mode
+     * are written by {@link StreamingHurlStack} through {@link #writeBody}
+     * instead, so this is only used as a fallback by other stacks.
+     */
     @Override
     public byte[] getBody() throws AuthFailureError {
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        DataOutputStream dos = new DataOutputStream(bos);
 
         try {
-            // populate text payload
-            Map<String, String> params = getParams();
-            if (params != null && params.size() > 0) {
-                textParse(dos, params, getParamsEncoding());
-            }
-
-            // populate data byte payload
-            Map<String, DataPart> data = getByteData();
-            if (data != null && data.size() > 0) {
-                dataParse(dos, data);
-            }
-
-            // close multipart form data after text and file data
-            dos.writeBytes(twoHyphens + boundary + twoHyphens + lineEnd);
+            writeBody(bos);
 
             return bos.toByteArray();
         } catch (IOException e) {
@@ -92,6 +91,84 @@ public class MultipartRequest extends Request<NetworkResponse> {
         return null;
     }
 
+    /**
+     * Enables or disables streaming mode. In streaming mode the body is written
+     * straight to the connection in fixed-size chunks and never held in memory
+     * as a whole.
+     *
+     * @param streaming true to stream the body, false to buffer it
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * Getter streaming mode.
+     *
+     * @return true if the body is streamed to the connection
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Computes the exact size of the multipart body without building it.
+     *
+     * @return body size in bytes, or -1 if a data part has an unknown length
+     * @throws AuthFailureError
+     * @throws IOException
+     */
+    public long getBodyLength() throws AuthFailureError, IOException {
+        long length = 0;
+
+        Map<String, String> params = getParams();
+        if (params != null && params.size() > 0) {
+            for (Map.Entry<String, String> entry : params.entrySet()) {
+                length += textPartHeader(entry.getKey()).length() + String.valueOf(entry.getValue()).length() + lineEnd.length();
+            }
+        }
+
+        Map<String, DataPart> data = getByteData();
+        if (data != null && data.size() > 0) {
+            for (Map.Entry<String, DataPart> entry : data.entrySet()) {
+                long partLength = entry.getValue().getLength();
+                if (partLength < 0) return -1;
+
+                length += dataPartHeader(entry.getValue(), entry.getKey()).length() + partLength + lineEnd.length();
+            }
+        }
+
+        return length + (twoHyphens + boundary + twoHyphens + lineEnd).length();
+    }
+
+    /**
+     * Writes the multipart body to the given stream, text parts first and then
+     * data parts, copying file content in chunks of {@code chunkSize} bytes.
+     *
+     * @param outputStream destination of the body, usually the connection stream
+     * @throws AuthFailureError
+     * @throws IOException
+     */
+    public void writeBody(@NonNull OutputStream outputStream) throws AuthFailureError, IOException {
+        DataOutputStream dos = new DataOutputStream(outputStream);
+
+        // populate text payload
+        Map<String, String> params = getParams();
+        if (params != null && params.size() > 0) {
+            textParse(dos, params, getParamsEncoding());
+        }
+
+        // populate data byte payload
+        Map<String, DataPart> data = getByteData();
+        if (data != null && data.size() > 0) {
+            dataParse(dos, data);
+        }
+
+        // close multipart form data after text and file data
+        dos.writeBytes(twoHyphens + boundary + twoHyphens + lineEnd);
+        dos.flush();
+    }
+
     /**
      * Custom method handle data payload.
      *
@@ -161,10 +238,7 @@ public class MultipartRequest extends Request<NetworkResponse> {
      * @throws IOException
      */
     private void buildTextPart(@NonNull DataOutputStream dataOutputStream, String parameterName, String parameterValue) throws IOException {
-        dataOutputStream.writeBytes(twoHyphens + boundary + lineEnd);
-        dataOutputStream.writeBytes("Content-Disposition: form-data; name=\"" + parameterName + "\"" + lineEnd);
-        //dataOutputStream.writeBytes("Content-Type: text/plain; charset=UTF-8" + lineEnd);
-        dataOutputStream.writeBytes(lineEnd);
+        dataOutputStream.writeBytes(textPartHeader(parameterName));
         dataOutputStream.writeBytes(parameterValue + lineEnd);
     }
 
@@ -177,39 +251,63 @@ public class MultipartRequest extends Request<NetworkResponse> {
      * @throws IOException
      */
     private void buildDataPart(@NonNull DataOutputStream dataOutputStream, @NonNull DataPart dataFile, String inputName) throws IOException {
-        dataOutputStream.writeBytes(twoHyphens + boundary + lineEnd);
-        dataOutputStream.writeBytes("Content-Disposition: form-data; name=\"" + inputName + "\"; filename=\"" + dataFile.getFileName() + "\"" + lineEnd);
-        if (dataFile.getType() != null && !dataFile.getType().trim().isEmpty()) {
-            dataOutputStream.writeBytes("Content-Type: " + dataFile.getType() + lineEnd);
-        }
+        dataOutputStream.writeBytes(dataPartHeader(dataFile, inputName));
+        dataFile.writeTo(dataOutputStream, new byte[chunkSize]);
         dataOutputStream.writeBytes(lineEnd);
+    }
 
-        ByteArrayInputStream fileInputStream = new ByteArrayInputStream(dataFile.getContent());
-        int bytesAvailable = fileInputStream.available();
-
-        int maxBufferSize = 1024 * 1024;
-        int bufferSize = Math.min(bytesAvailable, maxBufferSize);
-        byte[] buffer = new byte[bufferSize];
-
-        int bytesRead = fileInputStream.read(buffer, 0, bufferSize);
+    /**
+     * Boundary and headers written before the value of a text part.
+     *
+     * @param parameterName name of input
+     * @return part header
+     */
+    @NonNull
+    private String textPartHeader(String parameterName) {
+        return twoHyphens + boundary + lineEnd
+                + "Content-Disposition: form-data; name=\"" + parameterName + "\"" + lineEnd
+                //+ "Content-Type: text/plain; charset=UTF-8" + lineEnd
+                + lineEnd;
+    }
 
-        while (bytesRead > 0) {
-            dataOutputStream.write(buffer, 0, bufferSize);
-            bytesAvailable = fileInputStream.available();
-            bufferSize = Math.min(bytesAvailable, maxBufferSize);
-            bytesRead = fileInputStream.read(buffer, 0, bufferSize);
+    /**
+     * Boundary and headers written before the content of a data part.
+     *
+     * @param dataFile  data part being written
+     * @param inputName name of data input
+     * @return part header
+     */
+    @NonNull
+    private String dataPartHeader(@NonNull DataPart dataFile, String inputName) {
+        String header = twoHyphens + boundary + lineEnd
+                + "Content-Disposition: form-data; name=\"" + inputName + "\"; filename=\"" + dataFile.getFileName() + "\"" + lineEnd;
+        if (dataFile.getType() != null && !dataFile.getType().trim().isEmpty()) {
+            header += "Content-Type: " + dataFile.getType() + lineEnd;
         }
 
-        dataOutputStream.writeBytes(lineEnd);
+        return header + lineEnd;
     }
 
     /**
-     * Simple data container use for passing byte file
+     * Opens a fresh stream over a data source each time the body is written, so
+     * retried requests can send the same part again.
      */
-    public class DataPart {
+    public interface StreamOpener {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * Simple data container use for passing byte file, or a file, channel or
+     * stream that is read in chunks while the body is written.
+     */
+    public static class DataPart {
         private String fileName;
         private byte[] content;
         private String type;
+        private File file;
+        private FileChannel channel;
+        private StreamOpener opener;
+        private long length = -1;
 
         /**
          * Default data part
@@ -241,6 +339,134 @@ public class MultipartRequest extends Request<NetworkResponse> {
             type = mimeType;
         }
 
+        /**
+         * Constructor with a file read while the body is written.
+         *
+         * @param name     label of data
+         * @param file     file data
+         * @param mimeType mime data like "image/jpeg"
+         */
+        public DataPart(String name, File file, String mimeType) {
+            fileName = name;
+            this.file = file;
+            type = mimeType;
+        }
+
+        /**
+         * Constructor with a file channel read from its start while the body is
+         * written. The channel is not closed.
+         *
+         * @param name     label of data
+         * @param channel  channel data
+         * @param mimeType mime data like "image/jpeg"
+         */
+        public DataPart(String name, FileChannel channel, String mimeType) {
+            fileName = name;
+            this.channel = channel;
+            type = mimeType;
+        }
+
+        /**
+         * Constructor with a stream source, e.g. a content {@code Uri}, opened
+         * each time the body is written.
+         *
+         * @param name     label of data
+         * @param opener   opens the stream data
+         * @param length   stream size in bytes, or -1 if unknown
+         * @param mimeType mime data like "image/jpeg"
+         */
+        public DataPart(String name, StreamOpener opener, long length, String mimeType) {
+            fileName = name;
+            this.opener = opener;
+            this.length = length;
+            type = mimeType;
+        }
+
+        /**
+         * Constructor with an already open stream. The stream can only be read
+         * once, so the part is sent at most once: a retry or a replay after a
+         * token refresh fails with an IOException instead of sending a
+         * truncated body. Use a {@link StreamOpener} for a part that may be
+         * sent again.
+         *
+         * @param name     label of data
+         * @param stream   stream data, closed after it is written
+         * @param length   stream size in bytes, or -1 if unknown
+         * @param mimeType mime data like "image/jpeg"
+         */
+        public DataPart(String name, InputStream stream, long length, String mimeType) {
+            this(name, oneShot(name, stream), length, mimeType);
+        }
+
+        @NonNull
+        private static StreamOpener oneShot(String name, @NonNull InputStream stream) {
+            AtomicBoolean opened = new AtomicBoolean();
+
+            return () -> {
+                if (opened.getAndSet(true)) {
+                    throw new IOException("The stream of " + name + " was already sent and cannot be sent again.");
+                }
+
+                return stream;
+            };
+        }
+
+        /**
+         * Getter content size.
+         *
+         * @return size in bytes, or -1 if unknown
+         * @throws IOException
+         */
+        public long getLength() throws IOException {
+            if (content != null) return content.length;
+            if (file != null) return file.length();
+            if (channel != null) return channel.size();
+
+            return length;
+        }
+
+        /**
+         * Copy content into the output stream using the given buffer, so at
+         * most one chunk of a file or stream is held in memory.
+         *
+         * @param outputStream destination of the content
+         * @param buffer       chunk buffer
+         * @throws IOException
+         */
+        public void writeTo(@NonNull OutputStream outputStream, @NonNull byte[] buffer) throws IOException {
+            if (content != null) {
+                for (int offset = 0; offset < content.length; offset += buffer.length) {
+                    outputStream.write(content, offset, Math.min(buffer.length, content.length - offset));
+                }
+            } else if (file != null) {
+                try (InputStream inputStream = new FileInputStream(file)) {
+                    copy(inputStream, outputStream, buffer);
+                }
+            } else if (channel != null) {
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+                long position = 0;
+                int bytesRead;
+
+                while ((bytesRead = channel.read(byteBuffer, position)) > 0) {
+                    outputStream.write(buffer, 0, bytesRead);
+                    position += bytesRead;
+                    byteBuffer.clear();
+                }
+            } else if (opener != null) {
+                try (InputStream inputStream = opener.open()) {
+                    copy(inputStream, outputStream, buffer);
+                }
+            }
+        }
+
+        private void copy(@NonNull InputStream inputStream, @NonNull OutputStream outputStream, @NonNull byte[] buffer) throws IOException {
+            int bytesRead;
+
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, bytesRead);
+            }
+        }
+
         /**
          * Getter file name.
          *
@@ -0,0 +1,93 @@
+package com.example.mylist_betalist.Api;
+
+/**
+ * Quality classes of the current network, as estimated from the round-trip
+ * times and throughput of the requests sent through {@link Api}. Each class
+ * carries the request policy {@link Api} applies while it lasts.
+ */
+public enum NetworkQuality {
+    /**
+     * No network is available.
+     */
+    OFFLINE(2500, 1, 0, 60, 1024),
+    /**
+     * Not enough requests were observed yet; the default policy applies.
+     */
+    UNKNOWN(2500, Integer.MAX_VALUE, 2, 85, 2048),
+    /**
+     * Round trips of 1.4 s or more, or less than 150 kbps, as on 2G.
+     */
+    POOR(15000, 2, 0, 60, 1024),
+    /**
+     * Round trips of 400 ms or more, or less than 1 Mbps, as on 3G.
+     */
+    MODERATE(8000, 4, 1, 75, 1600),
+    /**
+     * Round trips of 100 ms or more, or less than 10 Mbps.
+     */
+    GOOD(2500, Integer.MAX_VALUE, 3, 85, 2048),
+    /**
+     * Faster round trips and higher throughput than every other class.
+     */
+    EXCELLENT(2500, Integer.MAX_VALUE, 6, 92, 4096);
+
+    private final int timeoutMs;
+    private final int maxConcurrent;
+    private final int prefetchLimit;
+    private final int imageQuality;
+    private final int maxImageDimension;
+
+    NetworkQuality(int timeoutMs, int maxConcurrent, int prefetchLimit, int imageQuality, int maxImageDimension) {
+        this.timeoutMs = timeoutMs;
+        this.maxConcurrent = maxConcurrent;
+        this.prefetchLimit = prefetchLimit;
+        this.imageQuality = imageQuality;
+        this.maxImageDimension = maxImageDimension;
+    }
+
+    /**
+     * Getter timeoutMs.
+     *
+     * @return socket timeout in milliseconds of each attempt
+     */
+    public int getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    /**
+     * Getter maxConcurrent.
+     *
+     * @return maximum number of requests running at once, capped by the
+     * concurrency of the HTTP stack
+     */
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * Getter prefetchLimit.
+     *
+     * @return number of prefetches that may run at once, 0 to skip them
+     */
+    public int getPrefetchLimit() {
+        return prefetchLimit;
+    }
+
+    /**
+     * Getter imageQuality.
+     *
+     * @return JPEG quality of uploaded images, from 0 to 100
+     */
+    public int getImageQuality() {
+        return imageQuality;
+    }
+
+    /**
+     * Getter maxImageDimension.
+     *
+     * @return longest side in pixels of uploaded images
+     */
+    public int getMaxImageDimension() {
+        return maxImageDimension;
+    }
+}
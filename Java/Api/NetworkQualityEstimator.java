@@ -0,0 +1,312 @@
+package com.example.mylist_betalist.Api;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.net.NetworkRequest;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.mylist_betalist.Api.Interfaces.OnNetworkQualityListener;
+
+/**
+ * Estimates the {@link NetworkQuality} of the current network. The round-trip
+ * time is the time to first byte of the requests that reached the network,
+ * and the throughput is measured on the responses of at least
+ * {@link #MIN_THROUGHPUT_BYTES}; both are exponentially weighted moving
+ * averages. Until enough requests were observed, the downstream bandwidth
+ * reported by the platform for the link stands in for the throughput.
+ * <p>
+ * Connectivity is followed with a {@link ConnectivityManager.NetworkCallback}
+ * rather than polled; the averages start over whenever the default network
+ * changes. Before API 24 there is no callback for the default network, so
+ * every callback re-reads the active network instead of trusting the network
+ * it was called for.
+ * <p>
+ * The listener is always invoked on the main thread, in the order of the
+ * changes, whatever thread observed them.
+ */
+class NetworkQualityEstimator {
+    static final long MIN_THROUGHPUT_BYTES = 16 * 1024;
+    private static final double WEIGHT = 0.25;
+    private static final int MIN_SAMPLES = 3;
+
+    private final Context context;
+    private final OnNetworkQualityListener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private ConnectivityManager.NetworkCallback networkCallback;
+    private Network network;
+    private boolean connected;
+    private int linkKbps = -1;
+    private double rttMs = -1;
+    private double throughputKbps = -1;
+    private int rttSamples;
+    private int throughputSamples;
+    private NetworkQuality quality = NetworkQuality.UNKNOWN;
+
+    /**
+     * @param context  The context to use to watch the connectivity.
+     * @param listener The listener to invoke on the main thread when the
+     *                 quality class changes.
+     */
+    NetworkQualityEstimator(@NonNull Context context, @NonNull OnNetworkQualityListener listener) {
+        this.context = context.getApplicationContext();
+        this.listener = listener;
+    }
+
+    /**
+     * Starts following the connectivity of the device.
+     */
+    void start() {
+        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager == null) return;
+
+        NetworkInfo info = connectivityManager.getActiveNetworkInfo();
+
+        synchronized (this) {
+            connected = info != null && info.isConnectedOrConnecting();
+        }
+
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            update();
+            return;
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            networkCallback = new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network available) {
+                    onNetwork(available, null);
+                }
+
+                @Override
+                public void onCapabilitiesChanged(Network changed, NetworkCapabilities capabilities) {
+                    onNetwork(changed, capabilities);
+                }
+
+                @Override
+                public void onLost(Network lost) {
+                    onNetworkLost(lost);
+                }
+            };
+
+            connectivityManager.registerDefaultNetworkCallback(networkCallback);
+        } else {
+            networkCallback = new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network available) {
+                    onActiveNetworkChanged(connectivityManager);
+                }
+
+                @Override
+                public void onCapabilitiesChanged(Network changed, NetworkCapabilities capabilities) {
+                    onActiveNetworkChanged(connectivityManager);
+                }
+
+                @Override
+                public void onLost(Network lost) {
+                    onActiveNetworkChanged(connectivityManager);
+                }
+            };
+
+            NetworkRequest request = new NetworkRequest.Builder()
+                    .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                    .build();
+            connectivityManager.registerNetworkCallback(request, networkCallback);
+        }
+
+        update();
+    }
+
+    /**
+     * Stops following the connectivity. The last estimate is kept.
+     */
+    void stop() {
+        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+
+        if (connectivityManager != null && networkCallback != null) {
+            connectivityManager.unregisterNetworkCallback(networkCallback);
+            networkCallback = null;
+        }
+    }
+
+    /**
+     * Adds the round-trip time and throughput of a finished attempt to the
+     * estimate. Attempts that did not reach the server are ignored.
+     *
+     * @param metrics The metrics of the attempt.
+     */
+    void onRequestFinished(@NonNull RequestMetrics metrics) {
+        RequestMetrics.CacheStatus cacheStatus = metrics.getCacheStatus();
+        if (cacheStatus != RequestMetrics.CacheStatus.MISS && cacheStatus != RequestMetrics.CacheStatus.REVALIDATED) return;
+
+        long ttfbMs = metrics.getTtfbMs();
+        long downloadMs = metrics.getDownloadMs();
+        long bytesIn = metrics.getBytesIn();
+
+        synchronized (this) {
+            if (ttfbMs >= 0) {
+                rttMs = rttMs < 0 ? ttfbMs : rttMs + WEIGHT * (ttfbMs - rttMs);
+                rttSamples++;
+            }
+
+            if (bytesIn >= MIN_THROUGHPUT_BYTES && downloadMs > 0) {
+                double kbps = bytesIn * 8.0 / downloadMs;
+                throughputKbps = throughputKbps < 0 ? kbps : throughputKbps + WEIGHT * (kbps - throughputKbps);
+                throughputSamples++;
+            }
+        }
+
+        update();
+    }
+
+    /**
+     * Returns the current quality class.
+     *
+     * @return The quality class.
+     */
+    @NonNull
+    synchronized NetworkQuality getQuality() {
+        return quality;
+    }
+
+    /**
+     * Returns the estimated round-trip time.
+     *
+     * @return The round-trip time in milliseconds, or -1 if not enough
+     * requests were observed on the current network.
+     */
+    synchronized long getRttMs() {
+        return rttSamples >= MIN_SAMPLES ? Math.round(rttMs) : -1;
+    }
+
+    /**
+     * Returns the estimated downstream throughput.
+     *
+     * @return The throughput in kilobits per second, measured or reported by
+     * the platform, or -1 if unknown.
+     */
+    synchronized long getThroughputKbps() {
+        return throughputSamples >= MIN_SAMPLES ? Math.round(throughputKbps) : linkKbps;
+    }
+
+    private void onNetwork(@NonNull Network current, @Nullable NetworkCapabilities capabilities) {
+        synchronized (this) {
+            if (!current.equals(network)) {
+                network = current;
+                linkKbps = -1;
+                rttMs = -1;
+                throughputKbps = -1;
+                rttSamples = 0;
+                throughputSamples = 0;
+            }
+
+            connected = true;
+
+            if (capabilities != null) {
+                int kbps = capabilities.getLinkDownstreamBandwidthKbps();
+                linkKbps = kbps > 0 ? kbps : -1;
+            }
+        }
+
+        update();
+    }
+
+    /**
+     * Follows the active network before API 24, where the callbacks report
+     * every network with internet access, not only the default one.
+     */
+    private void onActiveNetworkChanged(@NonNull ConnectivityManager connectivityManager) {
+        Network active = activeNetwork(connectivityManager);
+
+        if (active == null) {
+            NetworkInfo info = connectivityManager.getActiveNetworkInfo();
+
+            synchronized (this) {
+                network = null;
+                connected = info != null && info.isConnectedOrConnecting();
+            }
+
+            update();
+            return;
+        }
+
+        onNetwork(active, connectivityManager.getNetworkCapabilities(active));
+    }
+
+    /**
+     * Returns the network the active network info belongs to. Before API 23
+     * there is no getActiveNetwork, so the networks are matched by type.
+     */
+    @Nullable
+    private static Network activeNetwork(@NonNull ConnectivityManager connectivityManager) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            return connectivityManager.getActiveNetwork();
+        }
+
+        NetworkInfo active = connectivityManager.getActiveNetworkInfo();
+        if (active == null || !active.isConnectedOrConnecting()) return null;
+
+        for (Network candidate : connectivityManager.getAllNetworks()) {
+            NetworkInfo info = connectivityManager.getNetworkInfo(candidate);
+            if (info != null && info.getType() == active.getType() && info.isConnectedOrConnecting()) return candidate;
+        }
+
+        return null;
+    }
+
+    private void onNetworkLost(@NonNull Network lost) {
+        synchronized (this) {
+            if (network != null && !lost.equals(network)) return;
+
+            network = null;
+            connected = false;
+        }
+
+        update();
+    }
+
+    /**
+     * Classifies the network again and posts the change, if any, to the main
+     * thread. The post is made under the lock so changes seen by different
+     * threads reach the listener in order.
+     */
+    private void update() {
+        synchronized (this) {
+            NetworkQuality from = quality;
+            NetworkQuality to = classify(connected, getRttMs(), getThroughputKbps());
+            quality = to;
+
+            if (from != to) handler.post(() -> listener.OnQualityChanged(from, to));
+        }
+    }
+
+    /**
+     * Returns the class of a network from its round-trip time and throughput;
+     * the worse of the two decides.
+     */
+    @NonNull
+    private static NetworkQuality classify(boolean connected, long rttMs, long throughputKbps) {
+        if (!connected) return NetworkQuality.OFFLINE;
+        if (rttMs < 0 && throughputKbps < 0) return NetworkQuality.UNKNOWN;
+
+        NetworkQuality byRtt = rttMs < 0 ? NetworkQuality.EXCELLENT
+                : rttMs >= 1400 ? NetworkQuality.POOR
+                : rttMs >= 400 ? NetworkQuality.MODERATE
+                : rttMs >= 100 ? NetworkQuality.GOOD
+                : NetworkQuality.EXCELLENT;
+        NetworkQuality byThroughput = throughputKbps < 0 ? NetworkQuality.EXCELLENT
+                : throughputKbps < 150 ? NetworkQuality.POOR
+                : throughputKbps < 1000 ? NetworkQuality.MODERATE
+                : throughputKbps < 10000 ? NetworkQuality.GOOD
+                : NetworkQuality.EXCELLENT;
+
+        return byRtt.ordinal() < byThroughput.ordinal() ? byRtt : byThroughput;
+    }
+}
@@ -0,0 +1,664 @@
+package com.example.mylist_betalist.Api;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.net.NetworkRequest;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.volley.NetworkError;
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.Response;
+import com.android.volley.TimeoutError;
+import com.android.volley.VolleyError;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable queue of write requests (POST, PUT, PATCH) that could not be sent
+ * because the device was offline or the request failed with a network error.
+ * <p>
+ * Requests are kept in an append-only log of JSON lines: an "add" record per
+ * queued request and a "done" record once it was replayed. On start the log
+ * is read back, so requests survive the process being killed. Once the
+ * network returns they are replayed one at a time in the order they were
+ * made, at most {@code batchSize} in a row before pausing, so reconnecting
+ * does not flood the server. Requests that fail with a network error, a 5xx
+ * or a 429 stay queued, and the replay resumes after a delay that doubles
+ * with each failure in a row, or after the one asked by Retry-After. Every
+ * request carries an {@code Idempotency-Key} header that stays the same
+ * across attempts, so the server can discard duplicates when an earlier
+ * attempt did reach it.
+ * <p>
+ * The Authorization header is never written to the log: an entry only
+ * records whether the caller sent one, and the replay sends the token that is
+ * current at that time instead.
+ * <p>
+ * An outbox belongs to one account: every entry records the account it was
+ * made for, the log holds the entries of that account only, and at most one
+ * outbox per account runs at a time, so a request is never replayed with the
+ * token of another account.
+ */
+class Outbox {
+    static final String IDEMPOTENCY_HEADER = "Idempotency-Key";
+    private static final String AUTHORIZATION_HEADER = "Authorization";
+    private static final int COMPACT_AFTER_DONE = 100;
+    private static final long MAX_BACKOFF_MS = 5 * 60 * 1000;
+    private static final long IO_KEEP_ALIVE_MS = 10 * 1000;
+    private static final Set<String> openAccounts = new HashSet<>();
+
+    /**
+     * Sends a queued request and returns the action that cancels it.
+     */
+    interface Sender {
+        @NonNull
+        Runnable send(@NonNull Entry entry, @NonNull Response.Listener<JSONObject> listener, @NonNull Response.ErrorListener errorListener) throws JSONException;
+    }
+
+    /**
+     * A queued write request.
+     */
+    static final class Entry {
+        final String id;
+        final String account;
+        final int method;
+        final String url;
+        final Map<String, String> headers;
+        final boolean authorized;
+        final String body;
+        final long queuedAt;
+
+        /**
+         * @param id       The idempotency key of the request.
+         * @param account  The hashed identity of the account the request was
+         *                 made for.
+         * @param method   The HTTP method of the request.
+         * @param url      The URL of the request.
+         * @param headers  The headers given by the caller, or null to send the
+         *                 default headers at replay time. Their Authorization
+         *                 header is not kept.
+         * @param body     The JSON body of the request, or null.
+         * @param queuedAt The wall-clock time the request was made.
+         */
+        Entry(@NonNull String id, @NonNull String account, int method, @NonNull String url, @Nullable Map<String, String> headers, @Nullable String body, long queuedAt) {
+            this(id, account, method, url, withoutAuthorization(headers), headers != null && authorizationOf(headers) != null, body, queuedAt);
+        }
+
+        private Entry(@NonNull String id, @NonNull String account, int method, @NonNull String url, @Nullable Map<String, String> headers, boolean authorized, @Nullable String body, long queuedAt) {
+            this.id = id;
+            this.account = account;
+            this.method = method;
+            this.url = url;
+            this.headers = headers;
+            this.authorized = authorized;
+            this.body = body;
+            this.queuedAt = queuedAt;
+        }
+
+        /**
+         * Returns the headers to replay the request with: the caller's
+         * headers, plus the Authorization header of the given default headers
+         * if the caller sent one.
+         *
+         * @param defaultHeaders The current default headers of the Api.
+         * @return The headers, or null to send the default headers.
+         */
+        @Nullable
+        Map<String, String> headersFor(@NonNull Map<String, String> defaultHeaders) {
+            if (headers == null || !authorized) return headers;
+
+            Map<String, String> merged = new HashMap<>(headers);
+            String authorization = authorizationOf(defaultHeaders);
+            if (authorization != null) merged.put(AUTHORIZATION_HEADER, authorization);
+
+            return merged;
+        }
+
+        @NonNull
+        JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("op", "add");
+            json.put("id", id);
+            json.put("account", account);
+            json.put("method", method);
+            json.put("url", url);
+            json.put("queuedAt", queuedAt);
+
+            if (headers != null) json.put("headers", new JSONObject(headers));
+            if (authorized) json.put("authorized", true);
+            if (body != null) json.put("body", body);
+
+            return json;
+        }
+
+        @NonNull
+        static Entry fromJson(@NonNull JSONObject json) throws JSONException {
+            Map<String, String> headers = null;
+            JSONObject headersJson = json.optJSONObject("headers");
+
+            if (headersJson != null) {
+                headers = new HashMap<>();
+                Iterator<String> names = headersJson.keys();
+
+                while (names.hasNext()) {
+                    String name = names.next();
+                    headers.put(name, headersJson.getString(name));
+                }
+            }
+
+            // Logs written before the Authorization header was left out still
+            // hold it; the constructor drops it.
+            if (headers != null && authorizationOf(headers) != null) {
+                return new Entry(json.getString("id"), json.getString("account"), json.getInt("method"), json.getString("url"), headers, json.has("body") ? json.getString("body") : null, json.getLong("queuedAt"));
+            }
+
+            return new Entry(json.getString("id"), json.getString("account"), json.getInt("method"), json.getString("url"), headers, json.optBoolean("authorized"), json.has("body") ? json.getString("body") : null, json.getLong("queuedAt"));
+        }
+
+        @Nullable
+        private static Map<String, String> withoutAuthorization(@Nullable Map<String, String> headers) {
+            if (headers == null || authorizationOf(headers) == null) return headers;
+
+            Map<String, String> stripped = new HashMap<>();
+
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                if (!AUTHORIZATION_HEADER.equalsIgnoreCase(header.getKey())) stripped.put(header.getKey(), header.getValue());
+            }
+
+            return stripped;
+        }
+
+        @Nullable
+        private static String authorizationOf(@NonNull Map<String, String> headers) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                if (AUTHORIZATION_HEADER.equalsIgnoreCase(header.getKey())) return header.getValue();
+            }
+
+            return null;
+        }
+    }
+
+    private static final class Callbacks {
+        final Response.Listener<JSONObject> listener;
+        final Response.ErrorListener errorListener;
+
+        Callbacks(@NonNull Response.Listener<JSONObject> listener, @NonNull Response.ErrorListener errorListener) {
+            this.listener = listener;
+            this.errorListener = errorListener;
+        }
+    }
+
+    private final Context context;
+    private final String account;
+    private final File log;
+    private final int batchSize;
+    private final long intervalMs;
+    private final long batchPauseMs;
+    private final Sender sender;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ThreadPoolExecutor io = new ThreadPoolExecutor(1, 1, IO_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    private final Map<String, Entry> pending = new LinkedHashMap<>();
+    private final Map<String, Callbacks> callbacks = new HashMap<>();
+    private final Runnable replayNext = this::replayNext;
+    private final Runnable resumeReplay = this::replay;
+    private ConnectivityManager.NetworkCallback networkCallback;
+    private boolean loaded;
+    private boolean stopped;
+    private boolean replaying;
+    private int failuresInRow;
+    private long resumeAt;
+    private int sentInRun;
+    private int doneRecords;
+    private long replayed;
+    private long dropped;
+    private long totalReplayLatencyMs;
+    private long maxReplayLatencyMs;
+
+    /**
+     * @param context      The context to use to watch the connectivity.
+     * @param account      The hashed identity of the account whose requests
+     *                     are queued.
+     * @param log          The file of the append-only log of that account.
+     * @param batchSize    The number of requests replayed in a row before
+     *                     pausing.
+     * @param intervalMs   The time in milliseconds between two replayed
+     *                     requests.
+     * @param batchPauseMs The time in milliseconds to pause after each batch.
+     * @param sender       Sends the replayed requests.
+     */
+    Outbox(@NonNull Context context, @NonNull String account, @NonNull File log, int batchSize, long intervalMs, long batchPauseMs, @NonNull Sender sender) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("The batch size must be positive.");
+        }
+
+        this.context = context.getApplicationContext();
+        this.account = account;
+        this.log = log;
+        this.batchSize = batchSize;
+        this.intervalMs = intervalMs;
+        this.batchPauseMs = batchPauseMs;
+        this.sender = sender;
+        io.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Reads the log back, starts watching the connectivity and replays the
+     * queued requests if the device is online.
+     *
+     * @throws IllegalStateException If an outbox of the same account is
+     *                               already running.
+     */
+    void start() {
+        synchronized (Outbox.class) {
+            if (!openAccounts.add(account)) {
+                throw new IllegalStateException("The outbox of this account is already enabled.");
+            }
+        }
+
+        io.execute(() -> {
+            List<Entry> entries = load();
+
+            synchronized (this) {
+                for (Entry entry : entries) {
+                    if (!pending.containsKey(entry.id)) pending.put(entry.id, entry);
+                }
+
+                loaded = true;
+            }
+
+            handler.post(this::replay);
+        });
+
+        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+
+        if (connectivityManager != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            networkCallback = new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network network) {
+                    synchronized (Outbox.this) {
+                        resumeAt = 0;
+                    }
+
+                    handler.post(Outbox.this::replay);
+                }
+            };
+
+            NetworkRequest request = new NetworkRequest.Builder()
+                    .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                    .build();
+            connectivityManager.registerNetworkCallback(request, networkCallback);
+        }
+    }
+
+    /**
+     * Stops watching the connectivity and replaying. Queued requests stay in
+     * the log and are replayed by the next outbox of the account. Replies to
+     * requests already sent are still written to the log, after which the
+     * thread writing it ends, as it does whenever it is idle.
+     */
+    void stop() {
+        synchronized (this) {
+            stopped = true;
+        }
+
+        synchronized (Outbox.class) {
+            openAccounts.remove(account);
+        }
+
+        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+
+        if (connectivityManager != null && networkCallback != null) {
+            connectivityManager.unregisterNetworkCallback(networkCallback);
+            networkCallback = null;
+        }
+
+        handler.removeCallbacks(replayNext);
+        handler.removeCallbacks(resumeReplay);
+    }
+
+    /**
+     * Getter account.
+     *
+     * @return The hashed identity of the account whose requests are queued.
+     */
+    @NonNull
+    String getAccount() {
+        return account;
+    }
+
+    /**
+     * Returns true for the methods whose requests go through the outbox.
+     *
+     * @param method The HTTP method.
+     * @return True for POST, PUT and PATCH.
+     */
+    static boolean isWrite(int method) {
+        return method == Request.Method.POST || method == Request.Method.PUT || method == Request.Method.PATCH;
+    }
+
+    /**
+     * Returns true if the error means the request may not have reached the
+     * server, so it is worth replaying.
+     *
+     * @param error The error of the request.
+     * @return True for connection errors and timeouts.
+     */
+    static boolean isNetworkError(@NonNull VolleyError error) {
+        return error.networkResponse == null && (error instanceof NetworkError || error instanceof TimeoutError);
+    }
+
+    /**
+     * Returns true if a replayed request failed in a way that may pass later,
+     * so it stays queued.
+     *
+     * @param error The error of the request.
+     * @return True for network errors, 5xx and 429 responses.
+     */
+    static boolean isRetryable(@NonNull VolleyError error) {
+        if (isNetworkError(error)) return true;
+
+        NetworkResponse response = error.networkResponse;
+        return response != null && (response.statusCode >= 500 || response.statusCode == 429);
+    }
+
+    /**
+     * Returns true if a new write request must be queued instead of sent: the
+     * device is offline, or earlier requests are still waiting, which must go
+     * first.
+     *
+     * @return True if the request must be queued.
+     */
+    boolean mustQueue() {
+        synchronized (this) {
+            if (!pending.isEmpty()) return true;
+        }
+
+        return !isOnline();
+    }
+
+    /**
+     * Queues a request and persists it.
+     *
+     * @param entry         The request to queue.
+     * @param listener      The listener to invoke with the response once the
+     *                      request is replayed, as long as the process lives.
+     * @param errorListener The listener to invoke if the server rejects the
+     *                      replayed request.
+     * @return The action that removes the request from the outbox.
+     * @throws IllegalArgumentException If the request was made for another
+     *                                  account.
+     */
+    @NonNull
+    Runnable add(@NonNull Entry entry, @NonNull Response.Listener<JSONObject> listener, @NonNull Response.ErrorListener errorListener) {
+        if (!account.equals(entry.account)) {
+            throw new IllegalArgumentException("The request was made for another account.");
+        }
+
+        String line;
+
+        try {
+            line = entry.toJson().toString();
+        } catch (JSONException e) {
+            errorListener.onErrorResponse(new VolleyError("Could not queue the request.", e));
+            return () -> {
+            };
+        }
+
+        synchronized (this) {
+            pending.put(entry.id, entry);
+            callbacks.put(entry.id, new Callbacks(listener, errorListener));
+            io.execute(() -> append(line));
+        }
+
+        handler.post(this::replay);
+
+        return () -> remove(entry.id);
+    }
+
+    /**
+     * Removes a request that was not replayed yet.
+     *
+     * @param id The idempotency key of the request.
+     */
+    void remove(@NonNull String id) {
+        synchronized (this) {
+            callbacks.remove(id);
+            if (pending.remove(id) == null) return;
+        }
+
+        markDone(id);
+    }
+
+    /**
+     * Starts replaying the queued requests if the device is online and no
+     * replay is running or backing off after a failure.
+     */
+    void replay() {
+        synchronized (this) {
+            if (stopped || !loaded || replaying || pending.isEmpty()) return;
+            if (SystemClock.elapsedRealtime() < resumeAt) return;
+
+            replaying = true;
+            sentInRun = 0;
+        }
+
+        replayNext();
+    }
+
+    /**
+     * Returns the depth of the outbox and its replay counters.
+     *
+     * @return A snapshot of the counters.
+     */
+    @NonNull
+    synchronized OutboxStats getStats() {
+        return new OutboxStats(pending.size(), replayed, dropped, totalReplayLatencyMs, maxReplayLatencyMs);
+    }
+
+    private void replayNext() {
+        Entry entry;
+
+        synchronized (this) {
+            if (stopped || pending.isEmpty() || !isOnline()) {
+                replaying = false;
+                return;
+            }
+
+            entry = pending.values().iterator().next();
+        }
+
+        try {
+            sender.send(entry, response -> onReplayed(entry, response, null), error -> onReplayed(entry, null, error));
+        } catch (JSONException e) {
+            onReplayed(entry, null, new VolleyError("Could not replay the request.", e));
+        }
+    }
+
+    private void onReplayed(@NonNull Entry entry, @Nullable JSONObject response, @Nullable VolleyError error) {
+        if (error != null && isRetryable(error)) {
+            long backoff;
+
+            synchronized (this) {
+                replaying = false;
+                failuresInRow++;
+                backoff = RetryController.retryAfterMs(error.networkResponse);
+                if (backoff < 0) backoff = batchPauseMs << Math.min(failuresInRow - 1, 20);
+                backoff = Math.min(backoff, MAX_BACKOFF_MS);
+                resumeAt = SystemClock.elapsedRealtime() + backoff;
+            }
+
+            handler.removeCallbacks(resumeReplay);
+            handler.postDelayed(resumeReplay, backoff);
+            return;
+        }
+
+        Callbacks target;
+        long delay;
+
+        synchronized (this) {
+            boolean removed = pending.remove(entry.id) != null;
+            target = callbacks.remove(entry.id);
+
+            if (removed) {
+                if (error == null) {
+                    long latency = Math.max(0, System.currentTimeMillis() - entry.queuedAt);
+                    replayed++;
+                    totalReplayLatencyMs += latency;
+                    maxReplayLatencyMs = Math.max(maxReplayLatencyMs, latency);
+                } else {
+                    dropped++;
+                }
+            }
+
+            failuresInRow = 0;
+            sentInRun++;
+            delay = sentInRun % batchSize == 0 ? batchPauseMs : intervalMs;
+        }
+
+        markDone(entry.id);
+
+        if (target != null) {
+            if (error == null) {
+                target.listener.onResponse(response);
+            } else {
+                target.errorListener.onErrorResponse(error);
+            }
+        }
+
+        handler.postDelayed(replayNext, delay);
+    }
+
+    /**
+     * Marks a request done in the log. The compaction snapshot is taken and
+     * its write queued under the same lock as the appends of add, so the log
+     * writes happen in the same order as the changes to the queue.
+     */
+    private void markDone(@NonNull String id) {
+        synchronized (this) {
+            doneRecords++;
+
+            if (pending.isEmpty() || doneRecords >= COMPACT_AFTER_DONE) {
+                List<Entry> snapshot = new ArrayList<>(pending.values());
+                doneRecords = 0;
+                io.execute(() -> rewrite(snapshot));
+            } else {
+                io.execute(() -> {
+                    try {
+                        append(new JSONObject().put("op", "done").put("id", id).toString());
+                    } catch (JSONException ignored) {
+                    }
+                });
+            }
+        }
+    }
+
+    private boolean isOnline() {
+        ConnectivityManager connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager == null) return false;
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            NetworkCapabilities capabilities = connectivityManager.getNetworkCapabilities(connectivityManager.getActiveNetwork());
+            return capabilities != null && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+        }
+
+        NetworkInfo info = connectivityManager.getActiveNetworkInfo();
+        return info != null && info.isConnectedOrConnecting();
+    }
+
+    private void append(@NonNull String line) {
+        File parent = log.getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+
+        try (FileOutputStream out = new FileOutputStream(log, true)) {
+            out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Replaces the log with one holding only the given requests, so "done"
+     * records do not pile up.
+     */
+    private void rewrite(@NonNull List<Entry> entries) {
+        if (entries.isEmpty()) {
+            log.delete();
+            return;
+        }
+
+        File temp = new File(log.getPath() + ".tmp");
+
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            for (Entry entry : entries) {
+                out.write((entry.toJson().toString() + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+
+            out.getFD().sync();
+        } catch (IOException | JSONException e) {
+            return;
+        }
+
+        temp.renameTo(log);
+    }
+
+    /**
+     * Reads the log, returning the requests of this account added and not
+     * marked done, in order. A truncated last line from a crash mid-write is
+     * skipped.
+     */
+    @NonNull
+    private List<Entry> load() {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        if (!log.exists()) return new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(log), StandardCharsets.UTF_8))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                try {
+                    JSONObject record = new JSONObject(line);
+
+                    if ("done".equals(record.optString("op"))) {
+                        entries.remove(record.getString("id"));
+                    } else {
+                        Entry entry = Entry.fromJson(record);
+                        if (account.equals(entry.account)) entries.put(entry.id, entry);
+                    }
+                } catch (JSONException ignored) {
+                }
+            }
+        } catch (IOException ignored) {
+        }
+
+        return new ArrayList<>(entries.values());
+    }
+}
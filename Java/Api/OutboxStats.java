@@ -0,0 +1,68 @@
+package com.example.mylist_betalist.Api;
+
+/**
+ * Snapshot of the counters of the offline {@link Outbox}.
+ */
+public class OutboxStats {
+    private final int depth;
+    private final long replayed;
+    private final long dropped;
+    private final long totalReplayLatencyMs;
+    private final long maxReplayLatencyMs;
+
+    OutboxStats(int depth, long replayed, long dropped, long totalReplayLatencyMs, long maxReplayLatencyMs) {
+        this.depth = depth;
+        this.replayed = replayed;
+        this.dropped = dropped;
+        this.totalReplayLatencyMs = totalReplayLatencyMs;
+        this.maxReplayLatencyMs = maxReplayLatencyMs;
+    }
+
+    /**
+     * Getter depth.
+     *
+     * @return requests waiting in the outbox
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Getter replayed.
+     *
+     * @return requests replayed and accepted by the server
+     */
+    public long getReplayed() {
+        return replayed;
+    }
+
+    /**
+     * Getter dropped.
+     *
+     * @return requests replayed and rejected by the server, which are not
+     * replayed again
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Getter max replay latency.
+     *
+     * @return longest time in milliseconds between a request being queued and
+     * its successful replay
+     */
+    public long getMaxReplayLatencyMs() {
+        return maxReplayLatencyMs;
+    }
+
+    /**
+     * Getter average replay latency.
+     *
+     * @return average time in milliseconds between a request being queued and
+     * its successful replay
+     */
+    public double getAverageReplayLatencyMs() {
+        return replayed == 0 ? 0 : (double) totalReplayLatencyMs / replayed;
+    }
+}
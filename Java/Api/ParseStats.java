@@ -0,0 +1,43 @@
+package com.example.mylist_betalist.Api;
+
+/**
+ * Size and decode time of a typed response, measured on the network thread.
+ */
+public class ParseStats {
+    private final String url;
+    private final long bytes;
+    private final long parseTimeNs;
+
+    ParseStats(String url, long bytes, long parseTimeNs) {
+        this.url = url;
+        this.bytes = bytes;
+        this.parseTimeNs = parseTimeNs;
+    }
+
+    /**
+     * Getter url.
+     *
+     * @return URL of the request
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Getter bytes.
+     *
+     * @return size of the decoded response body
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Getter parse time.
+     *
+     * @return time spent decoding the body, in nanoseconds
+     */
+    public long getParseTimeNs() {
+        return parseTimeNs;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.mylist_betalist.Api;
+
+/**
+ * Snapshot of the counters of one stage of the image upload pipeline.
+ */
+public class PipelineStageStats {
+    private final String stage;
+    private final int parallelism;
+    private final int active;
+    private final int queued;
+    private final int peakQueued;
+    private final int capacity;
+    private final long processed;
+    private final long failed;
+    private final long busyMs;
+    private final long blockedMs;
+    private final long elapsedMs;
+
+    PipelineStageStats(String stage, int parallelism, int active, int queued, int peakQueued, int capacity, long processed, long failed, long busyMs, long blockedMs, long elapsedMs) {
+        this.stage = stage;
+        this.parallelism = parallelism;
+        this.active = active;
+        this.queued = queued;
+        this.peakQueued = peakQueued;
+        this.capacity = capacity;
+        this.processed = processed;
+        this.failed = failed;
+        this.busyMs = busyMs;
+        this.blockedMs = blockedMs;
+        this.elapsedMs = elapsedMs;
+    }
+
+    /**
+     * Getter stage.
+     *
+     * @return name of the stage: decode, resize, encode or upload
+     */
+    public String getStage() {
+        return stage;
+    }
+
+    /**
+     * Getter parallelism.
+     *
+     * @return images the stage works on at once at most
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Getter active.
+     *
+     * @return images the stage is working on
+     */
+    public int getActive() {
+        return active;
+    }
+
+    /**
+     * Getter queued.
+     *
+     * @return images waiting in the queue of the stage
+     */
+    public int getQueued() {
+        return queued;
+    }
+
+    /**
+     * Getter peak queued.
+     *
+     * @return most images ever waiting in the queue of the stage
+     */
+    public int getPeakQueued() {
+        return peakQueued;
+    }
+
+    /**
+     * Getter capacity.
+     *
+     * @return images the queue of the stage holds at most, or -1 if it is
+     * unbounded
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Getter occupancy.
+     *
+     * @return share of the queue capacity in use, between 0 and 1, or 0 for
+     * an unbounded queue
+     */
+    public double getOccupancy() {
+        return capacity <= 0 ? 0 : (double) queued / capacity;
+    }
+
+    /**
+     * Getter processed.
+     *
+     * @return images the stage finished
+     */
+    public long getProcessed() {
+        return processed;
+    }
+
+    /**
+     * Getter failed.
+     *
+     * @return images that failed in the stage
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * Getter busy.
+     *
+     * @return time in milliseconds the workers of the stage spent working,
+     * summed over the workers
+     */
+    public long getBusyMs() {
+        return busyMs;
+    }
+
+    /**
+     * Getter blocked.
+     *
+     * @return time in milliseconds the workers of the stage waited for room
+     * in the next stage, summed over the workers
+     */
+    public long getBlockedMs() {
+        return blockedMs;
+    }
+
+    /**
+     * Getter throughput.
+     *
+     * @return images finished per second since the pipeline started
+     */
+    public double getThroughput() {
+        return elapsedMs == 0 ? 0 : processed * 1000.0 / elapsedMs;
+    }
+}
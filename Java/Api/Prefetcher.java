@@ -0,0 +1,211 @@
+package com.example.mylist_betalist.Api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the prefetches of {@link Api}: GET requests sent in the background
+ * lane that only store their response in the cache. At most {@code limit}
+ * prefetches run at once; the others wait in order.
+ * <p>
+ * Prefetches are keyed by method, URL and headers, like the requests
+ * {@link Api} coalesces, so a request sent with other headers, such as the
+ * token of another account, never waits for a prefetch it cannot use. A
+ * foreground request whose prefetch is running does not start a second
+ * download. It attaches to the prefetch instead, which is promoted to
+ * the lane of the request, and starts once the prefetch finished, when the
+ * response is in the cache. A prefetch that has not started yet is dropped
+ * in favour of the foreground request.
+ */
+class Prefetcher {
+    /**
+     * Creates the call of a prefetch, not started yet.
+     */
+    interface CallFactory {
+        @NonNull
+        ApiCall<?> create();
+    }
+
+    private final Map<String, Prefetch> prefetches = new HashMap<>();
+    private final ArrayDeque<Prefetch> waiting = new ArrayDeque<>();
+    private int limit;
+    private int running;
+
+    /**
+     * @param limit The maximum number of prefetches running at once.
+     */
+    Prefetcher(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Sets how many prefetches may run at once. Prefetches already running
+     * are not interrupted.
+     *
+     * @param limit The maximum number of prefetches running at once, or 0 to
+     *              drop new prefetches.
+     */
+    void setLimit(int limit) {
+        synchronized (this) {
+            this.limit = limit;
+        }
+
+        pump();
+    }
+
+    /**
+     * Queues a prefetch, unless one with the same key is already queued or
+     * running.
+     *
+     * @param key     The identity of the request to prefetch.
+     * @param tag     The tag to associate with the prefetch, or null if no tag
+     *                is desired.
+     * @param factory Creates the call of the prefetch once it may start.
+     * @return False if the prefetch was dropped because prefetching is off.
+     */
+    boolean prefetch(@NonNull String key, @Nullable Object tag, @NonNull CallFactory factory) {
+        synchronized (this) {
+            if (limit <= 0) return false;
+            if (prefetches.containsKey(key)) return true;
+
+            Prefetch prefetch = new Prefetch(key, tag, factory);
+            prefetches.put(key, prefetch);
+            waiting.add(prefetch);
+        }
+
+        pump();
+        return true;
+    }
+
+    /**
+     * Attaches a foreground request to the running prefetch with its key.
+     *
+     * @param key   The identity of the request.
+     * @param lane  The lane of the request, which the prefetch is promoted to.
+     * @param tag   The tag of the request, or null if no tag is desired.
+     * @param start Starts the request; run once the prefetch finished.
+     * @return The action that detaches the request, or null if no prefetch is
+     * running for the key and the request should start right away.
+     */
+    @Nullable
+    Runnable attach(@NonNull String key, @NonNull Lane lane, @Nullable Object tag, @NonNull Runnable start) {
+        Prefetch prefetch;
+        Waiter waiter = new Waiter(tag, start);
+
+        synchronized (this) {
+            prefetch = prefetches.get(key);
+            if (prefetch == null) return null;
+
+            if (prefetch.call == null) {
+                prefetches.remove(key);
+                waiting.remove(prefetch);
+                return null;
+            }
+
+            prefetch.waiters.add(waiter);
+        }
+
+        prefetch.call.promote(lane);
+
+        return () -> {
+            synchronized (this) {
+                prefetch.waiters.remove(waiter);
+            }
+        };
+    }
+
+    /**
+     * Drops the waiting prefetches and the attached requests with the given
+     * tag. Running prefetches are cancelled with the other calls of the tag.
+     *
+     * @param tag The tag to drop.
+     */
+    synchronized void cancel(@NonNull Object tag) {
+        Iterator<Prefetch> queued = waiting.iterator();
+
+        while (queued.hasNext()) {
+            Prefetch prefetch = queued.next();
+
+            if (tag.equals(prefetch.tag)) {
+                queued.remove();
+                prefetches.remove(prefetch.key);
+            }
+        }
+
+        for (Prefetch prefetch : prefetches.values()) {
+            Iterator<Waiter> waiters = prefetch.waiters.iterator();
+
+            while (waiters.hasNext()) {
+                if (tag.equals(waiters.next().tag)) waiters.remove();
+            }
+        }
+    }
+
+    private void pump() {
+        List<ApiCall<?>> started = new ArrayList<>();
+
+        synchronized (this) {
+            while (running < limit && !waiting.isEmpty()) {
+                Prefetch prefetch = waiting.poll();
+                ApiCall<?> call = prefetch.factory.create();
+
+                prefetch.call = call;
+                running++;
+                call.addOnFinishedListener(() -> onFinished(prefetch));
+                started.add(call);
+            }
+        }
+
+        for (ApiCall<?> call : started) {
+            call.start();
+        }
+    }
+
+    private void onFinished(@NonNull Prefetch prefetch) {
+        List<Waiter> attached;
+
+        synchronized (this) {
+            running--;
+            prefetches.remove(prefetch.key);
+            attached = new ArrayList<>(prefetch.waiters);
+            prefetch.waiters.clear();
+        }
+
+        for (Waiter waiter : attached) {
+            waiter.start.run();
+        }
+
+        pump();
+    }
+
+    private static final class Prefetch {
+        final String key;
+        final Object tag;
+        final CallFactory factory;
+        final List<Waiter> waiters = new ArrayList<>();
+        ApiCall<?> call;
+
+        Prefetch(String key, Object tag, CallFactory factory) {
+            this.key = key;
+            this.tag = tag;
+            this.factory = factory;
+        }
+    }
+
+    private static final class Waiter {
+        final Object tag;
+        final Runnable start;
+
+        Waiter(Object tag, Runnable start) {
+            this.tag = tag;
+            this.start = start;
+        }
+    }
+}
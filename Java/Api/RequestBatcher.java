@@ -0,0 +1,274 @@
+package com.example.mylist_betalist.Api;
+
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.ParseError;
+import com.android.volley.Request;
+import com.android.volley.Response;
+import com.android.volley.VolleyError;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects JSONObject calls for up to {@code windowMs} milliseconds, or until
+ * {@code maxBatchSize} calls are waiting, and sends them to the batch endpoint
+ * as a single request in the format of a {@link BatchEnvelope}. The batched
+ * response is split back into one result per call: 2xx results go to the
+ * call's listener, anything else to its error listener with the result's
+ * status, so every caller sees the same outcome as with a request of its own.
+ * <p>
+ * Only writes are batched unless reads were opted in: a batched GET skips the
+ * response cache, the coalescing of identical requests and the retries it
+ * would get on its own.
+ */
+class RequestBatcher {
+    /**
+     * Sends the batched request and returns the action that cancels it.
+     */
+    interface Sender {
+        @NonNull
+        Runnable send(@NonNull JSONObject body, @NonNull Response.Listener<JSONObject> listener, @NonNull Response.ErrorListener errorListener);
+    }
+
+    private final String batchUrl;
+    private final String host;
+    private final long windowMs;
+    private final int maxBatchSize;
+    private final BatchEnvelope envelope;
+    private final boolean batchReads;
+    private final Sender sender;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flush = this::flush;
+    private List<Item> pending = new ArrayList<>();
+
+    /**
+     * @param batchUrl     The URL of the batch endpoint.
+     * @param windowMs     The time in milliseconds calls are collected before
+     *                     the batch is sent.
+     * @param maxBatchSize The number of calls that sends the batch right away.
+     * @param envelope     The format of the batched request and response.
+     * @param batchReads   Whether GET calls are batched too.
+     * @param sender       Sends the batched request.
+     */
+    RequestBatcher(@NonNull String batchUrl, long windowMs, int maxBatchSize, @NonNull BatchEnvelope envelope, boolean batchReads, @NonNull Sender sender) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("The batch size must be positive.");
+        }
+
+        this.batchUrl = batchUrl;
+        this.host = Uri.parse(batchUrl).getHost();
+        this.windowMs = windowMs;
+        this.maxBatchSize = maxBatchSize;
+        this.envelope = envelope;
+        this.batchReads = batchReads;
+        this.sender = sender;
+    }
+
+    /**
+     * Returns true if the given call can be batched, i.e. it is a write, or a
+     * read while reads are batched, goes to the host of the batch endpoint and
+     * is not the batch request itself.
+     *
+     * @param method The HTTP method of the call.
+     * @param url    The URL of the call.
+     * @return True if the call can be batched.
+     */
+    boolean accepts(int method, String url) {
+        return (batchReads || method != Request.Method.GET) && url != null && !url.equals(batchUrl) && host != null && host.equals(Uri.parse(url).getHost());
+    }
+
+    /**
+     * Adds a call to the current batch.
+     *
+     * @param method        The HTTP method of the call.
+     * @param url           The URL of the call.
+     * @param headers       The headers given for this call only, or null.
+     * @param body          The body of the call, or null.
+     * @param listener      The listener to invoke with the response.
+     * @param errorListener The listener to invoke with the error.
+     * @param tag           The tag of the call, or null.
+     * @return The action that cancels the call.
+     */
+    @NonNull
+    Runnable add(int method, @NonNull String url, @Nullable Map<String, String> headers, @Nullable JSONObject body, @NonNull Response.Listener<JSONObject> listener, @NonNull Response.ErrorListener errorListener, @Nullable Object tag) {
+        Item item = new Item(new BatchEnvelope.Call(method, url, headers, body), listener, errorListener, tag);
+        boolean full;
+
+        synchronized (this) {
+            pending.add(item);
+            full = pending.size() >= maxBatchSize;
+
+            if (!full && pending.size() == 1) handler.postDelayed(flush, windowMs);
+        }
+
+        if (full) flush();
+
+        return () -> cancel(item);
+    }
+
+    /**
+     * Cancels every call with the given tag. A batch already sent is cancelled
+     * once none of its calls is left.
+     *
+     * @param tag The tag of the calls to cancel.
+     */
+    void cancel(@NonNull Object tag) {
+        List<Item> tagged = new ArrayList<>();
+
+        synchronized (this) {
+            for (Item item : pending) {
+                if (tag.equals(item.tag)) tagged.add(item);
+            }
+        }
+
+        for (Item item : tagged) {
+            cancel(item);
+        }
+    }
+
+    /**
+     * Sends the waiting calls now, without waiting for the window to end.
+     */
+    void flush() {
+        List<Item> items;
+
+        synchronized (this) {
+            handler.removeCallbacks(flush);
+            if (pending.isEmpty()) return;
+
+            items = pending;
+            pending = new ArrayList<>();
+        }
+
+        Batch batch = new Batch(items);
+        List<BatchEnvelope.Call> calls = new ArrayList<>(items.size());
+
+        for (Item item : items) {
+            item.batch = batch;
+            calls.add(item.call);
+        }
+
+        JSONObject body;
+
+        try {
+            body = envelope.encode(calls);
+        } catch (JSONException e) {
+            fail(batch, new ParseError(e));
+            return;
+        }
+
+        Runnable cancel = sender.send(body, response -> deliver(batch, calls, response), error -> fail(batch, error));
+
+        boolean abandoned;
+
+        synchronized (this) {
+            batch.cancel = cancel;
+            abandoned = batch.isAbandoned();
+        }
+
+        if (abandoned) cancel.run();
+    }
+
+    private void cancel(@NonNull Item item) {
+        Runnable abandoned = null;
+
+        synchronized (this) {
+            if (item.canceled) return;
+
+            item.canceled = true;
+
+            if (item.batch == null) {
+                pending.remove(item);
+                if (pending.isEmpty()) handler.removeCallbacks(flush);
+            } else if (item.batch.isAbandoned()) {
+                abandoned = item.batch.cancel;
+            }
+        }
+
+        if (abandoned != null) abandoned.run();
+    }
+
+    private void deliver(@NonNull Batch batch, @NonNull List<BatchEnvelope.Call> calls, @NonNull JSONObject response) {
+        BatchEnvelope.Result[] results;
+
+        try {
+            results = envelope.decode(response, calls);
+        } catch (JSONException | RuntimeException e) {
+            fail(batch, new ParseError(e));
+            return;
+        }
+
+        for (int i = 0; i < batch.items.size(); i++) {
+            Item item = batch.items.get(i);
+            BatchEnvelope.Result result = i < results.length ? results[i] : null;
+
+            if (item.canceled) continue;
+
+            if (result == null) {
+                item.errorListener.onErrorResponse(new VolleyError("The batch response has no result for " + item.call.getUrl() + "."));
+            } else if (result.getStatus() >= 200 && result.getStatus() < 300) {
+                if (result.getBody() != null) {
+                    item.listener.onResponse(result.getBody());
+                } else {
+                    item.errorListener.onErrorResponse(new ParseError(new JSONException("The batch result for " + item.call.getUrl() + " is not a JSON object.")));
+                }
+            } else {
+                String error = result.getError() != null ? result.getError() : "";
+                NetworkResponse networkResponse = new NetworkResponse(result.getStatus(), error.getBytes(StandardCharsets.UTF_8), false, 0, Collections.emptyList());
+                item.errorListener.onErrorResponse(new VolleyError(networkResponse));
+            }
+        }
+    }
+
+    private void fail(@NonNull Batch batch, @NonNull VolleyError error) {
+        for (Item item : batch.items) {
+            if (!item.canceled) item.errorListener.onErrorResponse(error);
+        }
+    }
+
+    private static class Item {
+        final BatchEnvelope.Call call;
+        final Response.Listener<JSONObject> listener;
+        final Response.ErrorListener errorListener;
+        final Object tag;
+        Batch batch;
+        volatile boolean canceled;
+
+        Item(@NonNull BatchEnvelope.Call call, @NonNull Response.Listener<JSONObject> listener, @NonNull Response.ErrorListener errorListener, @Nullable Object tag) {
+            this.call = call;
+            this.listener = listener;
+            this.errorListener = errorListener;
+            this.tag = tag;
+        }
+    }
+
+    private static class Batch {
+        final List<Item> items;
+        Runnable cancel;
+
+        Batch(@NonNull List<Item> items) {
+            this.items = items;
+        }
+
+        boolean isAbandoned() {
+            for (Item item : items) {
+                if (!item.canceled) return false;
+            }
+
+            return true;
+        }
+    }
+}
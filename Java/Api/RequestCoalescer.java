@@ -0,0 +1,185 @@
+package com.example.mylist_betalist.Api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.volley.Response;
+import com.android.volley.VolleyError;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs identical concurrent requests only once. Callers asking for a key that
+ * is already in flight are attached to the running call as waiters, and its
+ * parsed result is delivered to all of them. The shared call carries no
+ * caller tag, so cancelling one caller's tag only detaches that caller; the
+ * call itself is cancelled once no waiter is left, and forgotten at once so
+ * that a later identical request starts a new call instead of joining the
+ * cancelled one.
+ */
+class RequestCoalescer {
+    /**
+     * Creates the shared call, wired to the given listeners.
+     */
+    interface CallFactory<T> {
+        ApiCall<T> create(@NonNull Response.Listener<T> listener, @NonNull Response.ErrorListener errorListener);
+    }
+
+    private final Map<String, Flight<?>> flights = new HashMap<>();
+
+    /**
+     * Attaches the listeners to the call in flight for the given key, or
+     * creates and starts that call if there is none.
+     *
+     * @param key           The identity of the request.
+     * @param tag           The caller's tag, or null if no tag is desired.
+     * @param listener      The listener to invoke with the response.
+     * @param errorListener The listener to invoke with the error.
+     * @param factory       Creates the call if none is in flight.
+     * @return The action that detaches this caller only, cancelling the call
+     * if no other caller is left.
+     */
+    @NonNull
+    <T> Runnable execute(@NonNull String key, @Nullable Object tag, @NonNull Response.Listener<T> listener, @NonNull Response.ErrorListener errorListener, @NonNull CallFactory<T> factory) {
+        Waiter<T> waiter = new Waiter<>(tag, listener, errorListener);
+        Flight<T> flight;
+        ApiCall<T> call;
+
+        synchronized (this) {
+            @SuppressWarnings("unchecked")
+            Flight<T> existing = (Flight<T>) flights.get(key);
+
+            if (existing != null && !existing.delivered) {
+                existing.waiters.add(waiter);
+                return () -> detach(existing, waiter);
+            }
+
+            flight = new Flight<>(key);
+            flight.waiters.add(waiter);
+            flights.put(key, flight);
+
+            call = factory.create(flight::deliver, flight::deliverError);
+            call.addOnFinishedListener(() -> onFinished(flight));
+            flight.call = call;
+        }
+
+        call.start();
+
+        return () -> detach(flight, waiter);
+    }
+
+    /**
+     * Detaches every waiter with the given tag, cancelling and forgetting
+     * shared calls that have no waiters left.
+     *
+     * @param tag The tag of the waiters to detach.
+     */
+    void cancel(@NonNull Object tag) {
+        List<ApiCall<?>> abandoned = new ArrayList<>();
+
+        synchronized (this) {
+            Iterator<Flight<?>> flightIterator = flights.values().iterator();
+
+            while (flightIterator.hasNext()) {
+                Flight<?> flight = flightIterator.next();
+                Iterator<? extends Waiter<?>> iterator = flight.waiters.iterator();
+
+                while (iterator.hasNext()) {
+                    if (tag.equals(iterator.next().tag)) iterator.remove();
+                }
+
+                if (flight.waiters.isEmpty() && !flight.delivered && flight.call != null) {
+                    flightIterator.remove();
+                    abandoned.add(flight.call);
+                }
+            }
+        }
+
+        for (ApiCall<?> call : abandoned) {
+            call.cancel();
+        }
+    }
+
+    /**
+     * Detaches a single waiter, cancelling and forgetting the shared call if
+     * it was the last one and no result was delivered yet.
+     *
+     * @param flight The flight the waiter is attached to.
+     * @param waiter The waiter to detach.
+     */
+    private void detach(@NonNull Flight<?> flight, @NonNull Waiter<?> waiter) {
+        ApiCall<?> abandoned = null;
+
+        synchronized (this) {
+            if (flight.waiters.remove(waiter) && flight.waiters.isEmpty() && !flight.delivered) {
+                if (flights.get(flight.key) == flight) flights.remove(flight.key);
+                abandoned = flight.call;
+            }
+        }
+
+        if (abandoned != null) abandoned.cancel();
+    }
+
+    /**
+     * Forgets a flight whose call is over, so later requests with the same
+     * key start a new one.
+     *
+     * @param flight The flight whose call finished.
+     */
+    private synchronized void onFinished(@NonNull Flight<?> flight) {
+        if (flights.get(flight.key) == flight) flights.remove(flight.key);
+    }
+
+    private static class Waiter<T> {
+        final Object tag;
+        final Response.Listener<T> listener;
+        final Response.ErrorListener errorListener;
+
+        Waiter(@Nullable Object tag, @NonNull Response.Listener<T> listener, @NonNull Response.ErrorListener errorListener) {
+            this.tag = tag;
+            this.listener = listener;
+            this.errorListener = errorListener;
+        }
+    }
+
+    private class Flight<T> {
+        final String key;
+        final List<Waiter<T>> waiters = new ArrayList<>();
+        ApiCall<T> call;
+        boolean delivered;
+
+        Flight(@NonNull String key) {
+            this.key = key;
+        }
+
+        void deliver(T response) {
+            List<Waiter<T>> snapshot;
+
+            synchronized (RequestCoalescer.this) {
+                delivered = true;
+                snapshot = new ArrayList<>(waiters);
+            }
+
+            for (Waiter<T> waiter : snapshot) {
+                waiter.listener.onResponse(response);
+            }
+        }
+
+        void deliverError(VolleyError error) {
+            List<Waiter<T>> snapshot;
+
+            synchronized (RequestCoalescer.this) {
+                delivered = true;
+                snapshot = new ArrayList<>(waiters);
+            }
+
+            for (Waiter<T> waiter : snapshot) {
+                waiter.errorListener.onErrorResponse(error);
+            }
+        }
+    }
+}
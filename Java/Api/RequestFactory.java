@@ -0,0 +1,17 @@
+package com.example.mylist_betalist.Api;
+
+import androidx.annotation.NonNull;
+
+import com.android.volley.Request;
+import com.android.volley.Response;
+
+/**
+ * Creates a fresh Volley request wired to the given listeners. A call builds
+ * one request per attempt, since a finished Volley request cannot be sent
+ * again.
+ *
+ * @param <T> The type of the parsed response.
+ */
+interface RequestFactory<T> {
+    Request<T> create(@NonNull Response.Listener<T> listener, @NonNull Response.ErrorListener errorListener);
+}
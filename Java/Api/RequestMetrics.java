@@ -0,0 +1,202 @@
+package com.example.mylist_betalist.Api;
+
+/**
+ * Timings and sizes of one attempt of a request sent through {@link Api}.
+ * Phases that did not happen, e.g. every network phase of a cache hit, are
+ * -1. DNS lookup, TCP connect and TLS handshake cannot be told apart through
+ * HttpURLConnection and are reported together as the connect phase; it is
+ * close to 0 when a pooled connection was reused.
+ */
+public class RequestMetrics {
+    public enum CacheStatus {
+        /**
+         * Answered by Volley's cache dispatcher without contacting the server.
+         */
+        HIT,
+        /**
+         * Revalidated with the server, which answered 304 Not Modified.
+         */
+        REVALIDATED,
+        /**
+         * Fetched from the server.
+         */
+        MISS,
+        /**
+         * Neither answered from the cache nor sent to the server, e.g.
+         * cancelled while queued or dropped by an open circuit breaker.
+         */
+        NONE
+    }
+
+    private final String url;
+    private final String route;
+    private final int status;
+    private final boolean success;
+    private final CacheStatus cacheStatus;
+    private final int retries;
+    private final long queueWaitMs;
+    private final long connectMs;
+    private final long sendMs;
+    private final long ttfbMs;
+    private final long downloadMs;
+    private final long processMs;
+    private final long totalMs;
+    private final long bytesOut;
+    private final long bytesIn;
+
+    RequestMetrics(String url, String route, int status, boolean success, CacheStatus cacheStatus, int retries, long queueWaitMs, long connectMs, long sendMs, long ttfbMs, long downloadMs, long processMs, long totalMs, long bytesOut, long bytesIn) {
+        this.url = url;
+        this.route = route;
+        this.status = status;
+        this.success = success;
+        this.cacheStatus = cacheStatus;
+        this.retries = retries;
+        this.queueWaitMs = queueWaitMs;
+        this.connectMs = connectMs;
+        this.sendMs = sendMs;
+        this.ttfbMs = ttfbMs;
+        this.downloadMs = downloadMs;
+        this.processMs = processMs;
+        this.totalMs = totalMs;
+        this.bytesOut = bytesOut;
+        this.bytesIn = bytesIn;
+    }
+
+    /**
+     * Getter url.
+     *
+     * @return URL of the request
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Getter route.
+     *
+     * @return method, host and path of the request with identifiers replaced
+     * by {id}, e.g. "GET api.example.com/users/{id}"
+     */
+    public String getRoute() {
+        return route;
+    }
+
+    /**
+     * Getter status.
+     *
+     * @return HTTP status of the response, or -1 if none was received
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Getter success.
+     *
+     * @return true if the response was delivered to the listener
+     */
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * Getter cache status.
+     *
+     * @return whether the response came from the cache, was revalidated or was
+     * fetched
+     */
+    public CacheStatus getCacheStatus() {
+        return cacheStatus;
+    }
+
+    /**
+     * Getter retries.
+     *
+     * @return retries made before this attempt
+     */
+    public int getRetries() {
+        return retries;
+    }
+
+    /**
+     * Getter queue wait.
+     *
+     * @return time in the lane and Volley queues before the request reached
+     * the network, or the whole time of a cache hit
+     */
+    public long getQueueWaitMs() {
+        return queueWaitMs;
+    }
+
+    /**
+     * Getter connect.
+     *
+     * @return time to resolve, connect and handshake, or -1
+     */
+    public long getConnectMs() {
+        return connectMs;
+    }
+
+    /**
+     * Getter send.
+     *
+     * @return time to write the request body, or -1
+     */
+    public long getSendMs() {
+        return sendMs;
+    }
+
+    /**
+     * Getter time to first byte.
+     *
+     * @return time from the request being sent to the response headers, or -1
+     */
+    public long getTtfbMs() {
+        return ttfbMs;
+    }
+
+    /**
+     * Getter download.
+     *
+     * @return time to read the response body, or -1
+     */
+    public long getDownloadMs() {
+        return downloadMs;
+    }
+
+    /**
+     * Getter process.
+     *
+     * @return time to parse, cache and deliver the response once read, or -1
+     */
+    public long getProcessMs() {
+        return processMs;
+    }
+
+    /**
+     * Getter total.
+     *
+     * @return time from the attempt being queued to it finishing
+     */
+    public long getTotalMs() {
+        return totalMs;
+    }
+
+    /**
+     * Getter bytes out.
+     *
+     * @return request body bytes sent over the wire, or -1
+     */
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    /**
+     * Getter bytes in.
+     *
+     * @return response body bytes received over the wire, or -1
+     */
+    public long getBytesIn() {
+        return bytesIn;
+    }
+}
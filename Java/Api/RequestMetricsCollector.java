@@ -0,0 +1,321 @@
+package com.example.mylist_betalist.Api;
+
+import android.net.Uri;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.volley.Request;
+import com.android.volley.VolleyError;
+import com.example.mylist_betalist.Api.Interfaces.OnRequestMetricsListener;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Follows every attempt made by an {@link ApiCall} from the moment it is
+ * queued until Volley finishes it. The HTTP stack fills in the network
+ * phases of the attempt's {@link Trace}. An attempt counts as a cache hit only
+ * if its response was delivered before Volley dispatched it to the network,
+ * which only the cache dispatcher does; once the attempt finishes, its
+ * {@link RequestMetrics} are handed to the listener and its total time is
+ * added to the {@link LatencyHistogram} of its route.
+ */
+class RequestMetricsCollector {
+    private static final Pattern ID_SEGMENT = Pattern.compile("\\d+|[0-9a-fA-F]{16,}|[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+
+    /**
+     * Timestamps in nanoseconds of the phases of one attempt; 0 means the
+     * phase did not happen.
+     */
+    static final class Trace {
+        final String url;
+        final String route;
+        final int retries;
+        final long queuedAt = SystemClock.elapsedRealtimeNanos();
+        volatile long dispatchedAt;
+        volatile boolean cacheDelivered;
+        volatile long networkStartAt;
+        volatile long connectedAt;
+        volatile long sentAt;
+        volatile long headersAt;
+        volatile long downloadEndAt;
+        volatile int status = -1;
+        volatile long bytesOut = -1;
+        volatile long bytesIn = -1;
+        boolean success;
+        int errorStatus = -1;
+
+        Trace(String url, String route, int retries) {
+            this.url = url;
+            this.route = route;
+            this.retries = retries;
+        }
+    }
+
+    private final Map<Request<?>, Trace> traces = new IdentityHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new HashMap<>();
+    private volatile OnRequestMetricsListener listener;
+    private volatile NetworkQualityEstimator estimator;
+
+    /**
+     * Sets the listener that receives the metrics of every finished attempt.
+     *
+     * @param listener The listener, or null to stop reporting.
+     */
+    void setOnRequestMetricsListener(@Nullable OnRequestMetricsListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets the estimator that learns the network quality from every finished
+     * attempt.
+     *
+     * @param estimator The estimator, or null to stop feeding it.
+     */
+    void setNetworkQualityEstimator(@Nullable NetworkQualityEstimator estimator) {
+        this.estimator = estimator;
+    }
+
+    /**
+     * Starts following an attempt that is about to be queued.
+     *
+     * @param request The request of the attempt.
+     * @param method  The HTTP method of the request.
+     * @param url     The URL of the request.
+     * @param retries The number of retries made before the attempt.
+     */
+    void begin(@NonNull Request<?> request, int method, String url, int retries) {
+        Trace trace = new Trace(url, routeOf(method, url), retries);
+
+        synchronized (traces) {
+            traces.put(request, trace);
+        }
+    }
+
+    /**
+     * Returns the trace of a request, for the HTTP stack to fill in.
+     *
+     * @param request The request.
+     * @return The trace, or null if the request is not followed.
+     */
+    @Nullable
+    Trace get(@NonNull Request<?> request) {
+        synchronized (traces) {
+            return traces.get(request);
+        }
+    }
+
+    /**
+     * Records that Volley dispatched an attempt to the network.
+     *
+     * @param request The request of the attempt.
+     */
+    void onNetworkDispatch(@NonNull Request<?> request) {
+        Trace trace = get(request);
+        if (trace != null) trace.dispatchedAt = SystemClock.elapsedRealtimeNanos();
+    }
+
+    /**
+     * Records that the response or the error of an attempt was delivered.
+     * A response delivered before the attempt was dispatched to the network
+     * came from the cache.
+     *
+     * @param request The request of the attempt.
+     * @param error   The error, or null if a response was delivered.
+     */
+    void onDelivered(@NonNull Request<?> request, @Nullable VolleyError error) {
+        Trace trace = get(request);
+        if (trace == null) return;
+
+        if (error == null) {
+            trace.success = true;
+            if (trace.dispatchedAt == 0) trace.cacheDelivered = true;
+        } else if (error.networkResponse != null) {
+            trace.errorStatus = error.networkResponse.statusCode;
+        }
+    }
+
+    /**
+     * Stops following an attempt that Volley finished and reports it.
+     *
+     * @param request The request of the attempt.
+     */
+    void finish(@NonNull Request<?> request) {
+        Trace trace;
+
+        synchronized (traces) {
+            trace = traces.remove(request);
+        }
+
+        if (trace == null) return;
+
+        long now = SystemClock.elapsedRealtimeNanos();
+        boolean network = trace.dispatchedAt != 0;
+        int status = trace.status != -1 ? trace.status : trace.errorStatus;
+        RequestMetrics.CacheStatus cacheStatus;
+
+        if (network) {
+            cacheStatus = status == 304 ? RequestMetrics.CacheStatus.REVALIDATED : RequestMetrics.CacheStatus.MISS;
+        } else if (trace.cacheDelivered) {
+            cacheStatus = RequestMetrics.CacheStatus.HIT;
+            status = 200;
+        } else {
+            cacheStatus = RequestMetrics.CacheStatus.NONE;
+        }
+
+        long queueEnd = trace.networkStartAt != 0 ? trace.networkStartAt : network ? trace.dispatchedAt : now;
+
+        RequestMetrics metrics = new RequestMetrics(
+                trace.url,
+                trace.route,
+                status,
+                trace.success,
+                cacheStatus,
+                trace.retries,
+                millis(trace.queuedAt, queueEnd),
+                millis(trace.networkStartAt, trace.connectedAt),
+                millis(trace.connectedAt, trace.sentAt),
+                millis(trace.sentAt, trace.headersAt),
+                millis(trace.headersAt, trace.downloadEndAt),
+                millis(trace.downloadEndAt, trace.downloadEndAt != 0 ? now : 0),
+                millis(trace.queuedAt, now),
+                trace.bytesOut,
+                trace.bytesIn);
+
+        LatencyHistogram histogram;
+
+        synchronized (histograms) {
+            histogram = histograms.get(trace.route);
+
+            if (histogram == null) {
+                histogram = new LatencyHistogram();
+                histograms.put(trace.route, histogram);
+            }
+        }
+
+        histogram.record(metrics.getTotalMs());
+
+        NetworkQualityEstimator currentEstimator = estimator;
+        if (currentEstimator != null) currentEstimator.onRequestFinished(metrics);
+
+        OnRequestMetricsListener current = listener;
+        if (current != null) current.OnRequestFinished(metrics);
+    }
+
+    /**
+     * Returns a copy of the latency histogram of every route seen so far.
+     *
+     * @return The histograms by route, sorted by route.
+     */
+    @NonNull
+    Map<String, LatencyHistogram> getHistograms() {
+        Map<String, LatencyHistogram> copies = new TreeMap<>();
+
+        synchronized (histograms) {
+            for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+                copies.put(entry.getKey(), entry.getValue().copy());
+            }
+        }
+
+        return copies;
+    }
+
+    /**
+     * Appends a snapshot of the histograms to the given file as one JSON line:
+     * {"timestamp": ..., "routes": {"GET host/path": {"count": ..., "mean":
+     * ..., "p50": ..., "p90": ..., "p99": ..., "max": ...}}}. Times are in
+     * milliseconds.
+     *
+     * @param file The file to append to.
+     * @throws IOException If the file cannot be written.
+     */
+    void export(@NonNull File file) throws IOException {
+        JSONObject snapshot = new JSONObject();
+
+        try {
+            JSONObject routes = new JSONObject();
+
+            for (Map.Entry<String, LatencyHistogram> entry : getHistograms().entrySet()) {
+                LatencyHistogram histogram = entry.getValue();
+                JSONObject route = new JSONObject();
+
+                route.put("count", histogram.getTotalCount());
+                route.put("mean", histogram.getMean());
+                route.put("p50", histogram.getValueAtPercentile(50));
+                route.put("p90", histogram.getValueAtPercentile(90));
+                route.put("p99", histogram.getValueAtPercentile(99));
+                route.put("max", histogram.getMax());
+                routes.put(entry.getKey(), route);
+            }
+
+            snapshot.put("timestamp", System.currentTimeMillis());
+            snapshot.put("routes", routes);
+        } catch (JSONException e) {
+            throw new IOException(e);
+        }
+
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write((snapshot.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Returns the route template of a request: its method, host and path with
+     * numeric, hexadecimal and UUID segments replaced by {id}, and without the
+     * query.
+     */
+    @NonNull
+    static String routeOf(int method, String url) {
+        Uri uri = url != null ? Uri.parse(url) : null;
+        StringBuilder route = new StringBuilder(methodName(method)).append(' ');
+
+        if (uri == null || uri.getHost() == null) {
+            return route.append(url).toString();
+        }
+
+        route.append(uri.getHost());
+
+        for (String segment : uri.getPathSegments()) {
+            route.append('/').append(ID_SEGMENT.matcher(segment).matches() ? "{id}" : segment);
+        }
+
+        return route.toString();
+    }
+
+    private static long millis(long start, long end) {
+        return start == 0 || end == 0 ? -1 : (end - start) / 1000000;
+    }
+
+    @NonNull
+    private static String methodName(int method) {
+        switch (method) {
+            case Request.Method.POST:
+                return "POST";
+            case Request.Method.PUT:
+                return "PUT";
+            case Request.Method.DELETE:
+                return "DELETE";
+            case Request.Method.PATCH:
+                return "PATCH";
+            case Request.Method.HEAD:
+                return "HEAD";
+            default:
+                return "GET";
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package com.example.mylist_betalist.Api;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.volley.DefaultRetryPolicy;
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.Response;
+import com.android.volley.VolleyError;
+import com.android.volley.toolbox.HttpHeaderParser;
+import com.example.mylist_betalist.Api.Interfaces.OnUploadProgressCallback;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Uploads a file in chunks and keeps the last acknowledged offset on disk, so
+ * an upload interrupted by a network failure or by the process being killed
+ * continues from that offset instead of starting over.
+ * <p>
+ * Every chunk is sent as a PUT with an {@code Upload-Id} header and a
+ * {@code Content-Range: bytes start-end/total} header. The server answers
+ * {@code 308 Resume Incomplete} with a {@code Range: bytes=0-last} header
+ * while the upload is incomplete, and a 2xx status with the final response
+ * once every byte has been received. Before resuming, the current offset is
+ * asked for with an empty PUT and {@code Content-Range: bytes *}{@code /total}.
+ * <p>
+ * Chunks are read and the offset is written on a background thread shared by
+ * every upload, so neither the file reads nor the fsync of the state file
+ * block the main thread the responses are delivered on.
+ * <p>
+ * The headers are read again for every chunk, so chunks sent after the token
+ * changed carry the new one. With a {@link TokenRefresher}, chunks wait while
+ * the token is refreshed, and a 401 is answered by one refresh after which
+ * the upload resumes from the offset the server acknowledged.
+ */
+class ResumableUpload {
+    /**
+     * Supplies the headers sent with each chunk.
+     */
+    interface HeaderSource {
+        @NonNull
+        Map<String, String> getHeaders();
+    }
+
+    private static final int STATUS_RESUME_INCOMPLETE = 308;
+    private static final int MAX_RETRIES = 5;
+    private static final long BASE_RETRY_DELAY_MS = 1000;
+    private static final int CHUNK_TIMEOUT_MS = 30000;
+    private static final ExecutorService io = Executors.newSingleThreadExecutor();
+
+    private final LaneScheduler scheduler;
+    private final Lane lane;
+    private final HeaderSource headers;
+    private final TokenRefresher refresher;
+    private final String url;
+    private final File file;
+    private final String mimeType;
+    private final int chunkSize;
+    private final OnUploadProgressCallback callback;
+    private final Object tag;
+    private final File stateFile;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final long total;
+
+    private String uploadId;
+    private volatile long offset;
+    private long sessionStart;
+    private long sessionBytes;
+    private int retries;
+    private int authVersion;
+    private boolean reauthenticated;
+    private volatile boolean canceled;
+    private Request<?> current;
+
+    ResumableUpload(@NonNull LaneScheduler scheduler, @NonNull Lane lane, @NonNull HeaderSource headers, @Nullable TokenRefresher refresher, @NonNull File stateDir, @NonNull String url, @NonNull File file, @NonNull String mimeType, int chunkSize, @NonNull OnUploadProgressCallback callback, @Nullable Object tag) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("The chunk size must be positive.");
+        }
+
+        this.scheduler = scheduler;
+        this.lane = lane;
+        this.headers = headers;
+        this.refresher = refresher;
+        this.url = url;
+        this.file = file;
+        this.mimeType = mimeType;
+        this.chunkSize = chunkSize;
+        this.callback = callback;
+        this.tag = tag;
+        this.total = file.length();
+        this.stateFile = new File(stateDir, stateKey() + ".json");
+    }
+
+    /**
+     * Starts the upload, or resumes it from the persisted offset if a previous
+     * attempt for the same URL and unchanged file did not finish.
+     */
+    void start() {
+        sessionStart = SystemClock.elapsedRealtime();
+
+        io.execute(() -> {
+            JSONObject state = loadState();
+
+            handler.post(() -> {
+                if (canceled) return;
+
+                if (state != null) {
+                    uploadId = state.optString("uploadId");
+                    offset = state.optLong("offset");
+                    queryOffset();
+                } else {
+                    uploadId = UUID.randomUUID().toString();
+                    offset = 0;
+                    saveState();
+                    sendChunk();
+                }
+            });
+        });
+    }
+
+    /**
+     * Stops the upload. The persisted offset is kept so the upload can be
+     * resumed later by starting it again.
+     */
+    void cancel() {
+        canceled = true;
+        handler.removeCallbacksAndMessages(null);
+
+        if (current != null) current.cancel();
+    }
+
+    /**
+     * Returns the number of bytes acknowledged by the server so far.
+     *
+     * @return The acknowledged offset in bytes.
+     */
+    long getOffset() {
+        return offset;
+    }
+
+    private void sendChunk() {
+        if (offset >= total) {
+            queryOffset();
+            return;
+        }
+
+        long start = offset;
+        int length = (int) Math.min(chunkSize, total - start);
+
+        io.execute(() -> {
+            byte[] chunk = new byte[length];
+
+            try (RandomAccessFile source = new RandomAccessFile(file, "r")) {
+                source.seek(start);
+                source.readFully(chunk);
+            } catch (IOException e) {
+                handler.post(() -> {
+                    if (!canceled) callback.OnFailed("File error: " + e.getMessage());
+                });
+                return;
+            }
+
+            handler.post(() -> enqueue(chunk, "bytes " + start + "-" + (start + length - 1) + "/" + total));
+        });
+    }
+
+    private void queryOffset() {
+        enqueue(null, "bytes */" + total);
+    }
+
+    private void enqueue(@Nullable byte[] chunk, @NonNull String contentRange) {
+        if (canceled) return;
+
+        if (refresher != null) {
+            int version = refresher.enter(() -> enqueue(chunk, contentRange));
+            if (version < 0) return;
+
+            authVersion = version;
+        }
+
+        Map<String, String> requestHeaders = headers.getHeaders();
+        Request<NetworkResponse> request = new Request<NetworkResponse>(Request.Method.PUT, url, this::onError) {
+            @Override
+            public Map<String, String> getHeaders() {
+                Map<String, String> chunkHeaders = new HashMap<>(requestHeaders);
+                chunkHeaders.put("Upload-Id", uploadId);
+                chunkHeaders.put("Content-Range", contentRange);
+                chunkHeaders.put("X-Upload-Content-Type", mimeType);
+                return chunkHeaders;
+            }
+
+            @Override
+            public String getBodyContentType() {
+                return "application/octet-stream";
+            }
+
+            @Override
+            public byte[] getBody() {
+                return chunk;
+            }
+
+            @Override
+            protected Response<NetworkResponse> parseNetworkResponse(NetworkResponse response) {
+                return Response.success(response, null);
+            }
+
+            @Override
+            protected void deliverResponse(NetworkResponse response) {
+                onResponse(response);
+            }
+        };
+
+        request.setShouldCache(false);
+        request.setRetryPolicy(new DefaultRetryPolicy(CHUNK_TIMEOUT_MS, 0, DefaultRetryPolicy.DEFAULT_BACKOFF_MULT));
+
+        if (tag != null) request.setTag(tag);
+
+        current = request;
+        scheduler.add(request, lane);
+    }
+
+    private void onResponse(@NonNull NetworkResponse response) {
+        long acknowledged = parseRange(response.headers);
+
+        if (response.headers != null && response.headers.containsKey("Range") && acknowledged < total) {
+            onAcknowledged(acknowledged);
+            return;
+        }
+
+        sessionBytes += total - offset;
+        offset = total;
+        io.execute(stateFile::delete);
+        callback.OnProgress(total, total, throughput());
+
+        try {
+            callback.OnSuccess(new String(response.data, HttpHeaderParser.parseCharset(response.headers)));
+        } catch (UnsupportedEncodingException e) {
+            callback.OnFailed("Encoding error: " + e.getMessage());
+        }
+    }
+
+    private void onError(@NonNull VolleyError error) {
+        NetworkResponse response = error.networkResponse;
+
+        if (response != null && response.statusCode == STATUS_RESUME_INCOMPLETE) {
+            onAcknowledged(parseRange(response.headers));
+            return;
+        }
+
+        if (response != null && response.statusCode == 401 && refresher != null && !reauthenticated) {
+            reauthenticated = true;
+            refresher.onUnauthorized(authVersion, this::queryOffset, () -> {
+                if (!canceled) fail(error);
+            });
+            return;
+        }
+
+        boolean transientError = response == null || response.statusCode >= 500 || response.statusCode == 408 || response.statusCode == 429;
+
+        if (transientError && retries < MAX_RETRIES) {
+            long delay = BASE_RETRY_DELAY_MS << retries;
+            retries++;
+            handler.postDelayed(this::queryOffset, delay);
+            return;
+        }
+
+        fail(error);
+    }
+
+    private void fail(@NonNull VolleyError error) {
+        NetworkResponse response = error.networkResponse;
+        int status = response != null ? response.statusCode : -1;
+        String message = response != null && response.data != null ? new String(response.data) : "Unknown error occurred.";
+        callback.OnFailed("Error (" + status + "): " + message);
+    }
+
+    private void onAcknowledged(long acknowledged) {
+        if (acknowledged >= total && offset >= total) {
+            callback.OnFailed("Error (" + STATUS_RESUME_INCOMPLETE + "): Server did not complete the upload.");
+            return;
+        }
+
+        retries = 0;
+
+        if (acknowledged > offset) {
+            sessionBytes += acknowledged - offset;
+            reauthenticated = false;
+        }
+
+        offset = acknowledged;
+        saveState();
+        callback.OnProgress(offset, total, throughput());
+        sendChunk();
+    }
+
+    /**
+     * Returns the number of bytes received by the server according to a
+     * {@code Range: bytes=0-last} header, or 0 if there is no such header.
+     */
+    private long parseRange(@Nullable Map<String, String> responseHeaders) {
+        String range = responseHeaders != null ? responseHeaders.get("Range") : null;
+        if (range == null) return 0;
+
+        int dash = range.lastIndexOf('-');
+
+        try {
+            return Long.parseLong(range.substring(dash + 1).trim()) + 1;
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return 0;
+        }
+    }
+
+    private double throughput() {
+        long elapsed = Math.max(1, SystemClock.elapsedRealtime() - sessionStart);
+        return sessionBytes * 1000.0 / elapsed;
+    }
+
+    /**
+     * Reads the persisted state, on the io thread.
+     *
+     * @return The state, or null if there is none for this unchanged file.
+     */
+    @Nullable
+    private JSONObject loadState() {
+        if (!stateFile.exists()) return null;
+
+        try {
+            JSONObject state = new JSONObject(new String(readState(), StandardCharsets.UTF_8));
+
+            if (state.getLong("total") != total || state.getLong("lastModified") != file.lastModified()
+                    || !state.has("uploadId") || !state.has("offset")) {
+                return null;
+            }
+
+            return state;
+        } catch (IOException | JSONException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Persists the current upload id and offset. The state is captured on the
+     * calling thread and written on the io thread, in order with the chunk
+     * reads.
+     */
+    private void saveState() {
+        JSONObject state = new JSONObject();
+
+        try {
+            state.put("uploadId", uploadId);
+            state.put("offset", offset);
+            state.put("total", total);
+            state.put("lastModified", file.lastModified());
+        } catch (JSONException e) {
+            return;
+        }
+
+        byte[] data = state.toString().getBytes(StandardCharsets.UTF_8);
+
+        io.execute(() -> writeState(data));
+    }
+
+    private void writeState(@NonNull byte[] data) {
+        File parent = stateFile.getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+
+        File temp = new File(stateFile.getPath() + ".tmp");
+
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(data);
+            out.getFD().sync();
+        } catch (IOException e) {
+            return;
+        }
+
+        temp.renameTo(stateFile);
+    }
+
+    @NonNull
+    private byte[] readState() throws IOException {
+        try (RandomAccessFile source = new RandomAccessFile(stateFile, "r")) {
+            byte[] data = new byte[(int) source.length()];
+            source.readFully(data);
+            return data;
+        }
+    }
+
+    @NonNull
+    private String stateKey() {
+        String identity = url + "|" + file.getAbsolutePath() + "|" + total + "|" + file.lastModified();
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(identity.getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder();
+
+            for (byte b : digest) {
+                key.append(String.format("%02x", b));
+            }
+
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(identity.hashCode());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.mylist_betalist.Api;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.volley.NetworkError;
+import com.android.volley.NetworkResponse;
+import com.android.volley.Request;
+import com.android.volley.TimeoutError;
+import com.android.volley.VolleyError;
+import com.android.volley.toolbox.HttpHeaderParser;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Decides whether and when a failed request is sent again. Only idempotent
+ * methods are retried, and only after timeouts, connection errors, 408, 429
+ * and 5xx responses. The delay is a full-jitter exponential backoff, unless
+ * the server sent a Retry-After header.
+ * <p>
+ * Every retry takes a token from a bucket shared by all requests and refilled
+ * at a fixed rate, so during an outage retries stop once the bucket is empty
+ * instead of multiplying the load on the backend.
+ */
+class RetryController {
+    private final int maxRetries;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final double budgetCapacity;
+    private final double budgetRefillPerSecond;
+    private final Set<Integer> idempotentMethods = new HashSet<>();
+    private final Random random = new Random();
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param maxRetries            The maximum number of retries per request.
+     * @param baseDelayMs           The backoff ceiling of the first retry.
+     * @param maxDelayMs            The maximum delay of a retry; requests asked
+     *                              to wait longer by Retry-After are not
+     *                              retried.
+     * @param budgetCapacity        The maximum number of retry tokens.
+     * @param budgetRefillPerSecond The number of retry tokens added per second.
+     */
+    RetryController(int maxRetries, long baseDelayMs, long maxDelayMs, double budgetCapacity, double budgetRefillPerSecond) {
+        this.maxRetries = maxRetries;
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.budgetCapacity = budgetCapacity;
+        this.budgetRefillPerSecond = budgetRefillPerSecond;
+        this.tokens = budgetCapacity;
+        this.lastRefill = SystemClock.elapsedRealtime();
+
+        idempotentMethods.add(Request.Method.GET);
+        idempotentMethods.add(Request.Method.HEAD);
+        idempotentMethods.add(Request.Method.OPTIONS);
+        idempotentMethods.add(Request.Method.TRACE);
+        idempotentMethods.add(Request.Method.PUT);
+        idempotentMethods.add(Request.Method.DELETE);
+    }
+
+    /**
+     * Returns the default controller: 3 retries, 500 ms base delay, 30 s
+     * maximum delay and a budget of 10 retries refilled at one per second.
+     *
+     * @return A new controller with the default settings.
+     */
+    @NonNull
+    static RetryController defaults() {
+        return new RetryController(3, 500, 30000, 10, 1);
+    }
+
+    /**
+     * Marks the given HTTP method as safe or unsafe to retry. By default GET,
+     * HEAD, OPTIONS, TRACE, PUT and DELETE are retried, POST and PATCH are not.
+     *
+     * @param method     The HTTP method.
+     * @param idempotent True if requests with this method may be retried.
+     */
+    synchronized void setIdempotent(int method, boolean idempotent) {
+        if (idempotent) {
+            idempotentMethods.add(method);
+        } else {
+            idempotentMethods.remove(method);
+        }
+    }
+
+    /**
+     * Returns the delay before the next attempt of a failed request, taking a
+     * token from the retry budget, or -1 if the request must not be retried.
+     *
+     * @param method  The HTTP method of the request.
+     * @param error   The error of the failed attempt.
+     * @param retries The number of retries already made.
+     * @return The delay in milliseconds, or -1 to give up.
+     */
+    synchronized long nextDelay(int method, @NonNull VolleyError error, int retries) {
+        if (retries >= maxRetries || !idempotentMethods.contains(method) || !isRetryable(error)) {
+            return -1;
+        }
+
+        long delay = retryAfterMs(error.networkResponse);
+
+        if (delay < 0) {
+            long ceiling = Math.min(maxDelayMs, baseDelayMs << Math.min(retries, 30));
+            delay = (long) (random.nextDouble() * ceiling);
+        }
+
+        if (delay > maxDelayMs || !takeToken()) {
+            return -1;
+        }
+
+        return delay;
+    }
+
+    private boolean isRetryable(@NonNull VolleyError error) {
+        NetworkResponse response = error.networkResponse;
+
+        if (response == null) {
+            return error instanceof TimeoutError || error instanceof NetworkError;
+        }
+
+        int status = response.statusCode;
+        return status == 408 || status == 429 || (status >= 500 && status != 501 && status != 505);
+    }
+
+    /**
+     * Parses a Retry-After header given either in seconds or as an HTTP date.
+     */
+    static long retryAfterMs(@Nullable NetworkResponse response) {
+        String retryAfter = response != null && response.headers != null ? response.headers.get("Retry-After") : null;
+        if (retryAfter == null) return -1;
+
+        try {
+            return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            long date = HttpHeaderParser.parseDateAsEpoch(retryAfter);
+            return date > 0 ? Math.max(0, date - System.currentTimeMillis()) : -1;
+        }
+    }
+
+    private boolean takeToken() {
+        long now = SystemClock.elapsedRealtime();
+        tokens = Math.min(budgetCapacity, tokens + (now - lastRefill) / 1000.0 * budgetRefillPerSecond);
+        lastRefill = now;
+
+        if (tokens < 1) return false;
+
+        tokens -= 1;
+        return true;
+    }
+}
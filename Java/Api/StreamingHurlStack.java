@@ -0,0 +1,441 @@
+package com.example.mylist_betalist.Api;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.volley.AuthFailureError;
+import com.android.volley.Header;
+import com.android.volley.Request;
+import com.android.volley.toolbox.HttpResponse;
+import com.android.volley.toolbox.HurlStack;
+import com.example.mylist_betalist.Api.Interfaces.OnTransferStatsListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * HurlStack that writes streaming {@link MultipartRequest}s directly to the
+ * connection output stream with a fixed Content-Length, instead of asking the
+ * request for its whole body as a byte array. It drives the connection of
+ * every request itself, so the connect, send and time-to-first-byte phases
+ * can be recorded for the {@link RequestMetricsCollector}.
+ * <p>
+ * It also asks for gzip responses and inflates them while Volley reads the
+ * stream, so a large response is only held once, decompressed. JSON and text
+ * bodies at least as large as the compression threshold are sent gzipped with
+ * {@code Content-Encoding: gzip}; multipart bodies are left alone, since they
+ * are mostly already-compressed file data. The bytes before and after
+ * compression are reported to the {@link OnTransferStatsListener}.
+ */
+class StreamingHurlStack extends HurlStack {
+    /**
+     * Writes a request body to the connection.
+     */
+    private interface BodyWriter {
+        void writeTo(@NonNull OutputStream outputStream) throws IOException, AuthFailureError;
+    }
+
+    private volatile int compressionThreshold = -1;
+    private volatile OnTransferStatsListener transferStatsListener;
+    private volatile RequestMetricsCollector metricsCollector;
+
+    /**
+     * Sets the size from which JSON and text request bodies are gzipped. Only
+     * enable this for servers that accept {@code Content-Encoding: gzip}.
+     *
+     * @param thresholdBytes The minimum body size in bytes to compress, or a
+     *                       negative value to never compress.
+     */
+    void setCompressionThreshold(int thresholdBytes) {
+        this.compressionThreshold = thresholdBytes;
+    }
+
+    /**
+     * Sets the listener that receives the compressed and uncompressed sizes
+     * of every request and response.
+     *
+     * @param listener The listener to invoke once a response has been read, or
+     *                 null to stop reporting.
+     */
+    void setOnTransferStatsListener(@Nullable OnTransferStatsListener listener) {
+        this.transferStatsListener = listener;
+    }
+
+    /**
+     * Sets the collector whose traces receive the network phases and sizes
+     * of the requests it follows.
+     *
+     * @param collector The collector, or null to stop tracing.
+     */
+    void setMetricsCollector(@Nullable RequestMetricsCollector collector) {
+        this.metricsCollector = collector;
+    }
+
+    /**
+     * Returns true if this stack asks for and decodes compressed responses
+     * itself. Stacks whose connections already do so transparently return
+     * false, in which case only the decoded sizes are known.
+     *
+     * @return True if the stack negotiates the response encoding.
+     */
+    protected boolean negotiatesEncoding() {
+        return true;
+    }
+
+    @Override
+    public HttpResponse executeRequest(Request<?> request, Map<String, String> additionalHeaders) throws IOException, AuthFailureError {
+        RequestMetricsCollector collector = metricsCollector;
+        RequestMetricsCollector.Trace trace = collector != null ? collector.get(request) : null;
+        if (trace != null) trace.networkStartAt = SystemClock.elapsedRealtimeNanos();
+
+        Map<String, String> headers = new HashMap<>(additionalHeaders);
+        Map<String, String> requestHeaders = request.getHeaders();
+        if (requestHeaders != null) headers.putAll(requestHeaders);
+
+        boolean decode = negotiatesEncoding() && !containsHeader(headers, "Accept-Encoding");
+        if (decode) headers.put("Accept-Encoding", "gzip");
+
+        String contentType = request.getBodyContentType();
+        long requestBytes = -1;
+        long requestWireBytes = -1;
+        HttpResponse response;
+
+        if (request.getMethod() == Request.Method.DEPRECATED_GET_OR_POST) {
+            response = super.executeRequest(request, headers);
+        } else if (request instanceof MultipartRequest && ((MultipartRequest) request).isStreaming()) {
+            MultipartRequest multipartRequest = (MultipartRequest) request;
+            requestBytes = requestWireBytes = multipartRequest.getBodyLength();
+            response = execute(request, headers, trace, contentType, requestBytes, multipartRequest::writeBody);
+        } else {
+            byte[] body = hasBody(request) ? request.getBody() : null;
+
+            if (body != null) {
+                requestBytes = body.length;
+
+                int threshold = compressionThreshold;
+                if (isCompressible(contentType) && threshold >= 0 && body.length >= threshold && !containsHeader(headers, "Content-Encoding")) {
+                    body = gzip(body);
+                    headers.put("Content-Encoding", "gzip");
+                }
+
+                byte[] wireBody = body;
+                requestWireBytes = wireBody.length;
+                response = execute(request, headers, trace, contentType, wireBody.length, outputStream -> outputStream.write(wireBody));
+            } else {
+                response = execute(request, headers, trace, null, 0, null);
+            }
+        }
+
+        return decode(request.getUrl(), response, decode, trace, requestBytes, requestWireBytes);
+    }
+
+    /**
+     * Sends a request whose body, if any, is written by the given writer,
+     * recording the connect, send and time-to-first-byte phases in the trace.
+     */
+    @NonNull
+    private HttpResponse execute(@NonNull Request<?> request, @NonNull Map<String, String> headers, @Nullable RequestMetricsCollector.Trace trace, String contentType, long length, @Nullable BodyWriter writer) throws IOException, AuthFailureError {
+        HttpURLConnection connection = createConnection(new URL(request.getUrl()));
+        boolean keepConnectionOpen = false;
+
+        try {
+            connection.setConnectTimeout(request.getTimeoutMs());
+            connection.setReadTimeout(request.getTimeoutMs());
+            connection.setUseCaches(false);
+            connection.setDoInput(true);
+            connection.setRequestMethod(methodName(request.getMethod()));
+
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+
+            if (writer != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", contentType);
+
+                if (length >= 0) {
+                    connection.setFixedLengthStreamingMode(length);
+                } else {
+                    connection.setChunkedStreamingMode(0);
+                }
+            }
+
+            connection.connect();
+            if (trace != null) trace.connectedAt = SystemClock.elapsedRealtimeNanos();
+
+            if (writer != null) {
+                try (OutputStream outputStream = connection.getOutputStream()) {
+                    writer.writeTo(outputStream);
+                }
+            }
+
+            if (trace != null) trace.sentAt = SystemClock.elapsedRealtimeNanos();
+
+            int responseCode = connection.getResponseCode();
+            if (responseCode == -1) {
+                throw new IOException("Could not retrieve response code from HttpUrlConnection.");
+            }
+
+            if (trace != null) {
+                trace.headersAt = SystemClock.elapsedRealtimeNanos();
+                trace.status = responseCode;
+            }
+
+            List<Header> responseHeaders = convertHeaders(connection.getHeaderFields());
+
+            if (!hasResponseBody(request.getMethod(), responseCode)) {
+                return new HttpResponse(responseCode, responseHeaders);
+            }
+
+            InputStream content = responseCode >= 400 ? connection.getErrorStream() : connection.getInputStream();
+
+            if (content == null) {
+                return new HttpResponse(responseCode, responseHeaders);
+            }
+
+            keepConnectionOpen = true;
+            return new HttpResponse(responseCode, responseHeaders, connection.getContentLength(), new ConnectionInputStream(connection, content));
+        } finally {
+            if (!keepConnectionOpen) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Wraps the response content so it is inflated while it is read if the
+     * server gzipped it, counting the bytes on both sides of the inflater.
+     */
+    @NonNull
+    private HttpResponse decode(String url, @NonNull HttpResponse response, boolean decode, @Nullable RequestMetricsCollector.Trace trace, long requestBytes, long requestWireBytes) throws IOException {
+        InputStream content = response.getContent();
+
+        if (content == null) {
+            report(url, trace, requestBytes, requestWireBytes, 0, 0);
+            return response;
+        }
+
+        CountingInputStream wire = new CountingInputStream(content);
+        boolean gzip = decode && "gzip".equalsIgnoreCase(findHeader(response.getHeaders(), "Content-Encoding"));
+
+        if (!gzip) {
+            return new HttpResponse(response.getStatusCode(), response.getHeaders(), response.getContentLength(), new ReportingInputStream(wire, () -> report(url, trace, requestBytes, requestWireBytes, wire.count, wire.count)));
+        }
+
+        InputStream inflated;
+
+        try {
+            inflated = new GZIPInputStream(wire);
+        } catch (EOFException e) {
+            inflated = new ByteArrayInputStream(new byte[0]);
+        }
+
+        CountingInputStream plain = new CountingInputStream(inflated);
+        List<Header> headers = new ArrayList<>();
+
+        for (Header header : response.getHeaders()) {
+            if (!header.getName().equalsIgnoreCase("Content-Encoding") && !header.getName().equalsIgnoreCase("Content-Length")) {
+                headers.add(header);
+            }
+        }
+
+        return new HttpResponse(response.getStatusCode(), headers, -1, new ReportingInputStream(plain, () -> report(url, trace, requestBytes, requestWireBytes, plain.count, wire.count)));
+    }
+
+    private void report(String url, @Nullable RequestMetricsCollector.Trace trace, long requestBytes, long requestWireBytes, long responseBytes, long responseWireBytes) {
+        if (trace != null) {
+            trace.downloadEndAt = SystemClock.elapsedRealtimeNanos();
+            trace.bytesOut = requestWireBytes;
+            trace.bytesIn = responseWireBytes;
+        }
+
+        OnTransferStatsListener listener = transferStatsListener;
+
+        if (listener != null) {
+            listener.OnTransfer(new TransferStats(url, requestBytes, requestWireBytes, responseBytes, responseWireBytes));
+        }
+    }
+
+    private static boolean hasBody(@NonNull Request<?> request) {
+        int method = request.getMethod();
+        return method == Request.Method.POST || method == Request.Method.PUT || method == Request.Method.PATCH;
+    }
+
+    private static boolean hasResponseBody(int method, int responseCode) {
+        return method != Request.Method.HEAD
+                && !(100 <= responseCode && responseCode < 200)
+                && responseCode != HttpURLConnection.HTTP_NO_CONTENT
+                && responseCode != HttpURLConnection.HTTP_NOT_MODIFIED;
+    }
+
+    private static boolean isCompressible(@Nullable String contentType) {
+        if (contentType == null) return false;
+
+        String type = contentType.toLowerCase();
+        return type.startsWith("application/json") || type.startsWith("text/") || type.startsWith("application/x-www-form-urlencoded");
+    }
+
+    @NonNull
+    private static byte[] gzip(@NonNull byte[] body) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(body.length / 2 + 32);
+
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(body);
+        }
+
+        return buffer.toByteArray();
+    }
+
+    @NonNull
+    private static String methodName(int method) {
+        switch (method) {
+            case Request.Method.POST:
+                return "POST";
+            case Request.Method.PUT:
+                return "PUT";
+            case Request.Method.DELETE:
+                return "DELETE";
+            case Request.Method.HEAD:
+                return "HEAD";
+            case Request.Method.OPTIONS:
+                return "OPTIONS";
+            case Request.Method.TRACE:
+                return "TRACE";
+            case Request.Method.PATCH:
+                return "PATCH";
+            default:
+                return "GET";
+        }
+    }
+
+    private static boolean containsHeader(@NonNull Map<String, String> headers, @NonNull String name) {
+        for (String key : headers.keySet()) {
+            if (name.equalsIgnoreCase(key)) return true;
+        }
+
+        return false;
+    }
+
+    @Nullable
+    private static String findHeader(@Nullable List<Header> headers, @NonNull String name) {
+        if (headers == null) return null;
+
+        for (Header header : headers) {
+            if (name.equalsIgnoreCase(header.getName())) return header.getValue();
+        }
+
+        return null;
+    }
+
+    /**
+     * Flattens the header map returned by HttpURLConnection, skipping the
+     * status line which is stored under a null key.
+     *
+     * @param fields The header fields of the connection.
+     * @return The headers as a list of Volley headers.
+     */
+    @NonNull
+    static List<Header> convertHeaders(@NonNull Map<String, List<String>> fields) {
+        List<Header> headers = new ArrayList<>(fields.size());
+
+        for (Map.Entry<String, List<String>> entry : fields.entrySet()) {
+            if (entry.getKey() == null) continue;
+
+            for (String value : entry.getValue()) {
+                headers.add(new Header(entry.getKey(), value));
+            }
+        }
+
+        return headers;
+    }
+
+    /**
+     * Response stream that disconnects its connection once it is closed.
+     */
+    static class ConnectionInputStream extends FilterInputStream {
+        private final HttpURLConnection connection;
+
+        ConnectionInputStream(@NonNull HttpURLConnection connection, @NonNull InputStream in) {
+            super(in);
+            this.connection = connection;
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Stream that counts the bytes read through it.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(@NonNull InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(@NonNull byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) count += read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    /**
+     * Stream that runs an action once, when it is closed.
+     */
+    private static class ReportingInputStream extends FilterInputStream {
+        private final Runnable onClose;
+        private boolean closed;
+
+        ReportingInputStream(@NonNull InputStream in, @NonNull Runnable onClose) {
+            super(in);
+            this.onClose = onClose;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (!closed) {
+                    closed = true;
+                    onClose.run();
+                }
+            }
+        }
+    }
+}
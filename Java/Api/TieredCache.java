@@ -0,0 +1,116 @@
+package com.example.mylist_betalist.Api;
+
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+
+import com.android.volley.Cache;
+import com.android.volley.toolbox.DiskBasedCache;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Volley cache with an in-memory LRU tier capped in bytes in front of a
+ * DiskBasedCache. Entries read from disk are promoted to memory, so repeated
+ * lookups of the same response skip the disk read and parse.
+ */
+class TieredCache implements Cache {
+    private final DiskBasedCache disk;
+    private final LruCache<String, Entry> memory;
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+
+    /**
+     * @param rootDirectory The directory of the disk tier.
+     * @param memoryBytes   The maximum bytes of response data kept in memory.
+     * @param diskBytes     The maximum bytes of the disk tier.
+     */
+    TieredCache(@NonNull File rootDirectory, int memoryBytes, int diskBytes) {
+        this.disk = new DiskBasedCache(rootDirectory, diskBytes);
+        this.memory = new LruCache<String, Entry>(memoryBytes) {
+            @Override
+            protected int sizeOf(String key, Entry entry) {
+                return Math.max(1, entry.data != null ? entry.data.length : 0);
+            }
+        };
+    }
+
+    @Override
+    public Entry get(String key) {
+        Entry entry = memory.get(key);
+
+        if (entry != null) {
+            memoryHits.incrementAndGet();
+        } else {
+            entry = disk.get(key);
+
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+
+            diskHits.incrementAndGet();
+            memory.put(key, entry);
+        }
+
+        if (entry.isExpired()) expired.incrementAndGet();
+
+        return entry;
+    }
+
+    @Override
+    public void put(String key, Entry entry) {
+        memory.put(key, entry);
+        disk.put(key, entry);
+    }
+
+    @Override
+    public void initialize() {
+        disk.initialize();
+    }
+
+    @Override
+    public void invalidate(String key, boolean fullExpire) {
+        Entry entry = memory.get(key);
+
+        if (entry != null) {
+            entry.softTtl = 0;
+            if (fullExpire) entry.ttl = 0;
+        }
+
+        disk.invalidate(key, fullExpire);
+    }
+
+    @Override
+    public void remove(String key) {
+        memory.remove(key);
+        disk.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        memory.evictAll();
+        disk.clear();
+    }
+
+    /**
+     * Counts a conditional request answered with 304 Not Modified.
+     */
+    void recordRevalidation() {
+        revalidations.incrementAndGet();
+    }
+
+    /**
+     * Returns a snapshot of the hit, miss and revalidation counters.
+     *
+     * @return The current cache counters.
+     */
+    @NonNull
+    CacheStats getStats() {
+        return new CacheStats(memoryHits.get(), diskHits.get(), misses.get(), expired.get(), revalidations.get(), memory.size());
+    }
+}
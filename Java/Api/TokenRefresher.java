@@ -0,0 +1,186 @@
+package com.example.mylist_betalist.Api;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.mylist_betalist.Api.Interfaces.OnTokenRefreshCallback;
+import com.example.mylist_betalist.Api.Interfaces.TokenAuthenticator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Refreshes the token of an {@link Api} when the server answers 401, once for
+ * all the requests that hit the expired token at the same time.
+ * <p>
+ * Every token has a version. An attempt remembers the version it was sent
+ * with; a 401 for the current version starts a refresh unless one is already
+ * running, and parks the call until it finishes. A 401 for an older version
+ * means the token was refreshed while the request was in flight, so the call
+ * is replayed right away. Attempts started while a refresh is running are
+ * parked too, instead of being sent with the expired token. Once a refresh
+ * failed, 401s for the same token are reported as they are until the token
+ * changes. A refresh the authenticator has not answered within the timeout
+ * fails, so parked calls are never stuck; a token it delivers later is
+ * still used by the requests made after it.
+ */
+class TokenRefresher {
+    /**
+     * Reads and replaces the token of the Api.
+     */
+    interface TokenStore {
+        @Nullable
+        String getToken();
+
+        void setToken(@NonNull String token);
+    }
+
+    private final TokenAuthenticator authenticator;
+    private final TokenStore store;
+    private final long timeoutMs;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final List<Parked> parked = new ArrayList<>();
+    private int version;
+    private int failedVersion = -1;
+    private boolean refreshing;
+
+    /**
+     * @param authenticator Obtains a new token.
+     * @param store         Holds the token of the Api.
+     * @param timeoutMs     The time in milliseconds after which a refresh
+     *                      that was not answered fails.
+     */
+    TokenRefresher(@NonNull TokenAuthenticator authenticator, @NonNull TokenStore store, long timeoutMs) {
+        this.authenticator = authenticator;
+        this.store = store;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Returns the version of the current token, or parks the attempt if a
+     * refresh is running.
+     *
+     * @param resume Runs the attempt once the refresh finished.
+     * @return The version of the token the attempt is sent with, or -1 if it
+     * was parked.
+     */
+    synchronized int enter(@NonNull Runnable resume) {
+        if (!refreshing) return version;
+
+        parked.add(new Parked(resume, resume));
+        return -1;
+    }
+
+    /**
+     * Handles a 401 answered to an attempt sent with the given token version.
+     *
+     * @param version     The version of the token the attempt was sent with.
+     * @param onRefreshed Replays the attempt with the new token.
+     * @param onFailed    Reports the 401 if no new token could be obtained.
+     */
+    void onUnauthorized(int version, @NonNull Runnable onRefreshed, @NonNull Runnable onFailed) {
+        boolean start = false;
+
+        synchronized (this) {
+            if (version != this.version) {
+                handler.post(onRefreshed);
+                return;
+            }
+
+            if (version == failedVersion) {
+                handler.post(onFailed);
+                return;
+            }
+
+            parked.add(new Parked(onRefreshed, onFailed));
+
+            if (!refreshing) {
+                refreshing = true;
+                start = true;
+            }
+        }
+
+        if (start) handler.post(this::refresh);
+    }
+
+    /**
+     * Records that the token was replaced from outside, so 401s for the old
+     * one are replayed and a failed refresh is forgotten.
+     */
+    synchronized void onTokenChanged() {
+        version++;
+        failedVersion = -1;
+    }
+
+    private void refresh() {
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicBoolean timedOut = new AtomicBoolean();
+        Runnable timeout = () -> {
+            if (done.getAndSet(true)) return;
+
+            timedOut.set(true);
+            finish(false);
+        };
+
+        handler.postDelayed(timeout, timeoutMs);
+
+        authenticator.OnRefresh(store.getToken(), new OnTokenRefreshCallback() {
+            @Override
+            public void OnSuccess(String token) {
+                if (done.getAndSet(true)) {
+                    if (timedOut.getAndSet(false)) {
+                        store.setToken(token);
+                        onTokenChanged();
+                    }
+                    return;
+                }
+
+                handler.removeCallbacks(timeout);
+                store.setToken(token);
+                finish(true);
+            }
+
+            @Override
+            public void OnFailed(String error) {
+                if (done.getAndSet(true)) return;
+
+                handler.removeCallbacks(timeout);
+                finish(false);
+            }
+        });
+    }
+
+    private void finish(boolean refreshed) {
+        List<Parked> waiting;
+
+        synchronized (this) {
+            if (refreshed) {
+                version++;
+            } else {
+                failedVersion = version;
+            }
+
+            refreshing = false;
+            waiting = new ArrayList<>(parked);
+            parked.clear();
+        }
+
+        for (Parked call : waiting) {
+            handler.post(refreshed ? call.onRefreshed : call.onFailed);
+        }
+    }
+
+    private static final class Parked {
+        final Runnable onRefreshed;
+        final Runnable onFailed;
+
+        Parked(Runnable onRefreshed, Runnable onFailed) {
+            this.onRefreshed = onRefreshed;
+            this.onFailed = onFailed;
+        }
+    }
+}
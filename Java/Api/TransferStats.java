@@ -0,0 +1,67 @@
+package com.example.mylist_betalist.Api;
+
+/**
+ * Bytes of one request and its response, before and after compression, as
+ * seen by the {@link StreamingHurlStack}. Counts the stack could not observe
+ * are -1.
+ */
+public class TransferStats {
+    private final String url;
+    private final long requestBytes;
+    private final long requestWireBytes;
+    private final long responseBytes;
+    private final long responseWireBytes;
+
+    TransferStats(String url, long requestBytes, long requestWireBytes, long responseBytes, long responseWireBytes) {
+        this.url = url;
+        this.requestBytes = requestBytes;
+        this.requestWireBytes = requestWireBytes;
+        this.responseBytes = responseBytes;
+        this.responseWireBytes = responseWireBytes;
+    }
+
+    /**
+     * Getter url.
+     *
+     * @return URL of the request
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Getter request bytes.
+     *
+     * @return size of the request body before compression, or -1
+     */
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    /**
+     * Getter request wire bytes.
+     *
+     * @return size of the request body as sent, or -1
+     */
+    public long getRequestWireBytes() {
+        return requestWireBytes;
+    }
+
+    /**
+     * Getter response bytes.
+     *
+     * @return size of the response body after decompression
+     */
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    /**
+     * Getter response wire bytes.
+     *
+     * @return size of the response body as received
+     */
+    public long getResponseWireBytes() {
+        return responseWireBytes;
+    }
+}
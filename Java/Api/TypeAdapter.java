@@ -0,0 +1,17 @@
+package com.example.mylist_betalist.Api;
+
+import android.util.JsonReader;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+/**
+ * Decodes a value of type T from a streaming JSON reader, without building an
+ * intermediate JSONObject tree.
+ *
+ * @param <T> The type of the decoded value.
+ */
+public interface TypeAdapter<T> {
+    T read(@NonNull JsonReader reader) throws IOException;
+}
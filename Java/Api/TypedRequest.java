@@ -0,0 +1,94 @@
+package com.example.mylist_betalist.Api;
+
+import android.os.SystemClock;
+import android.util.JsonReader;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.volley.NetworkResponse;
+import com.android.volley.ParseError;
+import com.android.volley.Request;
+import com.android.volley.Response;
+import com.android.volley.toolbox.HttpHeaderParser;
+import com.example.mylist_betalist.Api.Interfaces.OnParseStatsListener;
+
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Request that decodes its JSON response straight into a model object with a
+ * {@link TypeAdapter}. Decoding runs on the network thread with a streaming
+ * JsonReader, so no JSONObject tree is built and the listener receives the
+ * finished object on the main thread.
+ *
+ * @param <T> The type of the decoded response.
+ */
+class TypedRequest<T> extends Request<T> {
+    private final JSONObject body;
+    private final TypeAdapter<T> adapter;
+    private final Response.Listener<T> listener;
+    private final OnParseStatsListener statsListener;
+    private ParseStats stats;
+
+    /**
+     * @param method        The HTTP method of the request.
+     * @param url           The URL of the request.
+     * @param body          The JSON body to send, or null if there is none.
+     * @param adapter       The adapter decoding the response.
+     * @param listener      The listener to invoke with the decoded response.
+     * @param errorListener The listener to invoke with the error.
+     * @param statsListener The listener to invoke with the parse stats, or null
+     *                      if no stats are desired.
+     */
+    TypedRequest(int method, String url, @Nullable JSONObject body, @NonNull TypeAdapter<T> adapter, @NonNull Response.Listener<T> listener, @NonNull Response.ErrorListener errorListener, @Nullable OnParseStatsListener statsListener) {
+        super(method, url, errorListener);
+        this.body = body;
+        this.adapter = adapter;
+        this.listener = listener;
+        this.statsListener = statsListener;
+    }
+
+    @Override
+    public String getBodyContentType() {
+        return "application/json; charset=utf-8";
+    }
+
+    @Override
+    public byte[] getBody() {
+        return body != null ? body.toString().getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    @Override
+    protected Response<T> parseNetworkResponse(NetworkResponse response) {
+        long start = SystemClock.elapsedRealtimeNanos();
+
+        try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(response.data), charset(response.headers)))) {
+            T result = adapter.read(reader);
+            stats = new ParseStats(getUrl(), response.data.length, SystemClock.elapsedRealtimeNanos() - start);
+
+            return Response.success(result, HttpHeaderParser.parseCacheHeaders(response));
+        } catch (IOException | RuntimeException e) {
+            return Response.error(new ParseError(e));
+        }
+    }
+
+    @Override
+    protected void deliverResponse(T response) {
+        listener.onResponse(response);
+
+        if (statsListener != null && stats != null) {
+            statsListener.OnParsed(stats);
+        }
+    }
+
+    @NonNull
+    private String charset(@Nullable Map<String, String> headers) {
+        return HttpHeaderParser.parseCharset(headers, "utf-8");
+    }
+}
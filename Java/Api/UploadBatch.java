@@ -0,0 +1,210 @@
+package com.example.mylist_betalist.Api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.mylist_betalist.Api.Interfaces.OnBatchUploadCallback;
+import com.example.mylist_betalist.Api.Interfaces.OnUploadCallback;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Runs the uploads of a list of data parts with at most {@code maxConcurrent}
+ * requests and {@code maxInFlightBytes} bytes in flight at any time. Files are
+ * started in order; a file larger than the byte budget is only started when
+ * nothing else is in flight, so it cannot be starved.
+ * <p>
+ * The callback is never invoked while the batch lock is held. A cancelled
+ * batch completes right away: files not finished yet are reported as
+ * cancelled, and the outcome of uploads still running is ignored.
+ */
+class UploadBatch {
+    /**
+     * Sends a single data part and reports its outcome to the callback.
+     */
+    interface Uploader {
+        void upload(@NonNull MultipartRequest.DataPart part, @NonNull OnUploadCallback callback);
+    }
+
+    private final List<MultipartRequest.DataPart> parts;
+    private final int maxConcurrent;
+    private final long maxInFlightBytes;
+    private final Uploader uploader;
+    private final OnBatchUploadCallback callback;
+    private final Object tag;
+    private final Queue<Integer> pending = new ArrayDeque<>();
+    private final UploadResult[] results;
+    private final long[] lengths;
+    private long totalBytes;
+    private long bytesUploaded;
+    private long inFlightBytes;
+    private int running;
+    private int completed;
+    private boolean done;
+
+    UploadBatch(@NonNull List<MultipartRequest.DataPart> parts, int maxConcurrent, long maxInFlightBytes, @NonNull Uploader uploader, @NonNull OnBatchUploadCallback callback, @Nullable Object tag) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("The concurrency limit must be positive.");
+        }
+
+        this.parts = new ArrayList<>(parts);
+        this.maxConcurrent = maxConcurrent;
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.uploader = uploader;
+        this.callback = callback;
+        this.tag = tag;
+        this.results = new UploadResult[parts.size()];
+        this.lengths = new long[parts.size()];
+    }
+
+    /**
+     * Returns the tag of the uploads of the batch.
+     *
+     * @return The tag, or null if no tag was set.
+     */
+    @Nullable
+    Object getTag() {
+        return tag;
+    }
+
+    /**
+     * Measures every part and starts as many uploads as the limits allow.
+     */
+    void start() {
+        List<Integer> startable;
+        List<UploadResult> complete = null;
+
+        synchronized (this) {
+            for (int i = 0; i < parts.size(); i++) {
+                try {
+                    lengths[i] = Math.max(0, parts.get(i).getLength());
+                    totalBytes += lengths[i];
+                    pending.add(i);
+                } catch (IOException e) {
+                    results[i] = new UploadResult(i, false, null, "File error: " + e.getMessage());
+                    completed++;
+                }
+            }
+
+            if (completed == parts.size()) {
+                done = true;
+                complete = Arrays.asList(results);
+            }
+
+            startable = poll();
+        }
+
+        if (complete != null) {
+            callback.OnComplete(complete);
+            return;
+        }
+
+        upload(startable);
+    }
+
+    /**
+     * Drops the files not started yet and completes the batch, reporting
+     * every file that has not finished as cancelled. Does nothing if the
+     * batch is already complete.
+     */
+    void cancel() {
+        List<UploadResult> complete;
+
+        synchronized (this) {
+            if (done) return;
+
+            done = true;
+            pending.clear();
+
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == null) results[i] = new UploadResult(i, false, null, "Upload canceled.", true);
+            }
+
+            completed = parts.size();
+            complete = Arrays.asList(results);
+        }
+
+        callback.OnComplete(complete);
+    }
+
+    /**
+     * Takes the files that may start under the limits. Must be called while
+     * holding the batch lock.
+     */
+    @NonNull
+    private List<Integer> poll() {
+        List<Integer> startable = new ArrayList<>();
+
+        while (!done && !pending.isEmpty() && running < maxConcurrent) {
+            int index = pending.peek();
+
+            if (running > 0 && inFlightBytes + lengths[index] > maxInFlightBytes) {
+                break;
+            }
+
+            pending.poll();
+            running++;
+            inFlightBytes += lengths[index];
+            startable.add(index);
+        }
+
+        return startable;
+    }
+
+    private void upload(@NonNull List<Integer> startable) {
+        for (int index : startable) {
+            uploader.upload(parts.get(index), new OnUploadCallback() {
+                @Override
+                public void OnSuccess(String response) {
+                    finish(index, new UploadResult(index, true, response, null));
+                }
+
+                @Override
+                public void OnFailed(String error) {
+                    finish(index, new UploadResult(index, false, null, error));
+                }
+            });
+        }
+    }
+
+    private void finish(int index, @NonNull UploadResult result) {
+        int progress;
+        long uploaded;
+        List<UploadResult> complete = null;
+        List<Integer> startable;
+
+        synchronized (this) {
+            if (done) return;
+
+            running--;
+            inFlightBytes -= lengths[index];
+            if (result.isSuccess()) bytesUploaded += lengths[index];
+            completed++;
+            results[index] = result;
+
+            progress = completed;
+            uploaded = bytesUploaded;
+
+            if (completed == parts.size()) {
+                done = true;
+                complete = Arrays.asList(results);
+            }
+
+            startable = poll();
+        }
+
+        callback.OnProgress(progress, parts.size(), uploaded, totalBytes);
+
+        if (complete != null) {
+            callback.OnComplete(complete);
+            return;
+        }
+
+        upload(startable);
+    }
+}
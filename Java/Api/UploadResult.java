@@ -0,0 +1,87 @@
+package com.example.mylist_betalist.Api;
+
+/**
+ * Outcome of a single file in a batch upload.
+ */
+public class UploadResult {
+    private final int index;
+    private final boolean success;
+    private final String response;
+    private final String error;
+    private final boolean canceled;
+
+    /**
+     * Constructor with the outcome of an upload.
+     *
+     * @param index    position of the file in the batch
+     * @param success  true if the server accepted the file
+     * @param response server response, or null if the upload failed
+     * @param error    error message, or null if the upload succeeded
+     */
+    UploadResult(int index, boolean success, String response, String error) {
+        this(index, success, response, error, false);
+    }
+
+    /**
+     * Constructor with the outcome of an upload that may have been cancelled.
+     *
+     * @param index    position of the file in the batch
+     * @param success  true if the server accepted the file
+     * @param response server response, or null if the upload failed
+     * @param error    error message, or null if the upload succeeded
+     * @param canceled true if the batch was cancelled before the file was
+     *                 uploaded
+     */
+    UploadResult(int index, boolean success, String response, String error, boolean canceled) {
+        this.index = index;
+        this.success = success;
+        this.response = response;
+        this.error = error;
+        this.canceled = canceled;
+    }
+
+    /**
+     * Getter position in the batch.
+     *
+     * @return index of the file in the list passed to the batch
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Getter success.
+     *
+     * @return true if the server accepted the file
+     */
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * Getter response.
+     *
+     * @return server response, or null if the upload failed
+     */
+    public String getResponse() {
+        return response;
+    }
+
+    /**
+     * Getter error.
+     *
+     * @return error message, or null if the upload succeeded
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Getter canceled.
+     *
+     * @return true if the batch was cancelled before the file was uploaded
+     */
+    public boolean isCanceled() {
+        return canceled;
+    }
+}
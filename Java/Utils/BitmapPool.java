@@ -0,0 +1,198 @@
+package com.example.app.Utils;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps freed mutable bitmaps so their memory can be handed to the decoder
+ * through {@code BitmapFactory.Options.inBitmap} instead of allocating a new
+ * bitmap for every decode. Bitmaps are bucketed by config and allocation
+ * size; a request is served by the smallest bucket that is large enough,
+ * as long as it is not more than {@link #MAX_OVERSIZE} times the size asked
+ * for. The pool is capped in bytes and drops the oldest bitmaps first.
+ */
+class BitmapPool {
+    private static final int MAX_OVERSIZE = 4;
+
+    private final Map<Bitmap.Config, TreeMap<Integer, ArrayDeque<Bitmap>>> buckets = new EnumMap<>(Bitmap.Config.class);
+    private final LinkedHashMap<Bitmap, Integer> order = new LinkedHashMap<>();
+    private long maxBytes;
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long puts;
+    private long evictions;
+
+    /**
+     * @param maxBytes The maximum bytes of bitmaps kept in the pool.
+     */
+    BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Changes the maximum bytes kept in the pool, dropping the oldest bitmaps
+     * if it now holds more.
+     *
+     * @param maxBytes The maximum bytes of bitmaps kept in the pool.
+     */
+    synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        trimTo(maxBytes);
+    }
+
+    /**
+     * Returns a pooled bitmap reconfigured to the given size and config, or
+     * null if none fits. The returned bitmap is no longer in the pool and its
+     * pixels are undefined.
+     *
+     * @param width  The width of the bitmap.
+     * @param height The height of the bitmap.
+     * @param config The config of the bitmap.
+     * @return A reusable bitmap, or null.
+     */
+    @Nullable
+    synchronized Bitmap get(int width, int height, @NonNull Bitmap.Config config) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
+            misses++;
+            return null;
+        }
+
+        int size = width * height * bytesPerPixel(config);
+        TreeMap<Integer, ArrayDeque<Bitmap>> sizes = buckets.get(config);
+        Map.Entry<Integer, ArrayDeque<Bitmap>> bucket = sizes != null ? sizes.ceilingEntry(size) : null;
+
+        if (bucket == null || bucket.getKey() > (long) size * MAX_OVERSIZE) {
+            misses++;
+            return null;
+        }
+
+        Bitmap bitmap = bucket.getValue().poll();
+        if (bucket.getValue().isEmpty()) sizes.remove(bucket.getKey());
+
+        order.remove(bitmap);
+        bytes -= bucket.getKey();
+        hits++;
+
+        bitmap.reconfigure(width, height, config);
+        return bitmap;
+    }
+
+    /**
+     * Hands a bitmap that is no longer displayed to the pool. Bitmaps the
+     * decoder cannot reuse, or that are larger than half the pool, are
+     * recycled instead.
+     *
+     * @param bitmap The bitmap to pool. It must not be used afterwards.
+     */
+    synchronized void put(@NonNull Bitmap bitmap) {
+        if (bitmap.isRecycled() || order.containsKey(bitmap)) return;
+
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT) {
+            bitmap.recycle();
+            return;
+        }
+
+        Bitmap.Config config = bitmap.getConfig();
+        int size = bitmap.getAllocationByteCount();
+
+        if (!bitmap.isMutable() || config == null || isHardware(config) || size > maxBytes / 2) {
+            bitmap.recycle();
+            return;
+        }
+
+        TreeMap<Integer, ArrayDeque<Bitmap>> sizes = buckets.get(config);
+        if (sizes == null) {
+            sizes = new TreeMap<>();
+            buckets.put(config, sizes);
+        }
+
+        ArrayDeque<Bitmap> bucket = sizes.get(size);
+        if (bucket == null) {
+            bucket = new ArrayDeque<>();
+            sizes.put(size, bucket);
+        }
+
+        bucket.add(bitmap);
+        order.put(bitmap, size);
+        bytes += size;
+        puts++;
+
+        trimTo(maxBytes);
+    }
+
+    /**
+     * Recycles every pooled bitmap.
+     */
+    synchronized void clear() {
+        trimTo(0);
+    }
+
+    /**
+     * Returns a snapshot of the pool counters.
+     *
+     * @return The pool statistics.
+     */
+    @NonNull
+    synchronized BitmapPoolStats getStats() {
+        return new BitmapPoolStats(hits, misses, puts, evictions, order.size(), bytes, maxBytes);
+    }
+
+    /**
+     * Drops the oldest bitmaps until the pool holds at most {@code limit}
+     * bytes. Each bitmap is found through the size and config it was pooled
+     * with, so nothing is read from a bitmap that was recycled behind the
+     * pool's back.
+     */
+    private void trimTo(long limit) {
+        Iterator<Map.Entry<Bitmap, Integer>> oldest = order.entrySet().iterator();
+
+        while (bytes > limit && oldest.hasNext()) {
+            Map.Entry<Bitmap, Integer> entry = oldest.next();
+            Bitmap bitmap = entry.getKey();
+            int size = entry.getValue();
+            oldest.remove();
+
+            for (TreeMap<Integer, ArrayDeque<Bitmap>> sizes : buckets.values()) {
+                ArrayDeque<Bitmap> bucket = sizes.get(size);
+
+                if (bucket != null && bucket.remove(bitmap)) {
+                    if (bucket.isEmpty()) sizes.remove(size);
+                    break;
+                }
+            }
+
+            bytes -= size;
+            evictions++;
+            bitmap.recycle();
+        }
+    }
+
+    private static boolean isHardware(@NonNull Bitmap.Config config) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && config == Bitmap.Config.HARDWARE;
+    }
+
+    static int bytesPerPixel(@NonNull Bitmap.Config config) {
+        switch (config) {
+            case ALPHA_8:
+                return 1;
+            case RGB_565:
+            case ARGB_4444:
+                return 2;
+            case RGBA_F16:
+                return 8;
+            default:
+                return 4;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.app.Utils;
+
+/**
+ * Snapshot of the counters of the {@link BitmapPool} shared by the decoders
+ * of {@link Utils}.
+ */
+public class BitmapPoolStats {
+    private final long hits;
+    private final long misses;
+    private final long puts;
+    private final long evictions;
+    private final int size;
+    private final long bytes;
+    private final long maxBytes;
+
+    BitmapPoolStats(long hits, long misses, long puts, long evictions, int size, long bytes, long maxBytes) {
+        this.hits = hits;
+        this.misses = misses;
+        this.puts = puts;
+        this.evictions = evictions;
+        this.size = size;
+        this.bytes = bytes;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Getter hits.
+     *
+     * @return decodes that reused a pooled bitmap
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Getter misses.
+     *
+     * @return decodes that had to allocate a new bitmap
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Getter puts.
+     *
+     * @return bitmaps handed back to the pool
+     */
+    public long getPuts() {
+        return puts;
+    }
+
+    /**
+     * Getter evictions.
+     *
+     * @return pooled bitmaps recycled to stay under the byte limit
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Getter size.
+     *
+     * @return bitmaps currently in the pool
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Getter bytes.
+     *
+     * @return bytes held by the pooled bitmaps
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Getter max bytes.
+     *
+     * @return maximum bytes the pool keeps
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Getter hit rate.
+     *
+     * @return share of bitmap requests served from the pool, between 0 and 1
+     */
+    public double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.app.Utils;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Sample-size and scaling rules shared by {@link Utils} and the image upload
+ * pipeline of the Api, so an image is decoded and shrunk the same way
+ * whichever of them handles it.
+ */
+public final class BitmapScaling {
+    private BitmapScaling() {
+    }
+
+    /**
+     * Returns the largest power of two the image can be sampled by while
+     * still covering the size it is scaled to in order to fit the target.
+     *
+     * @param width     The width of the image.
+     * @param height    The height of the image.
+     * @param reqWidth  The maximum width of the result.
+     * @param reqHeight The maximum height of the result.
+     * @return The sample size to decode the image with.
+     */
+    public static int calculateSampleSize(int width, int height, int reqWidth, int reqHeight) {
+        double scale = Math.min((double) reqWidth / width, (double) reqHeight / height);
+        int sampleSize = 1;
+
+        while (sampleSize * 2 * scale <= 1) {
+            sampleSize *= 2;
+        }
+
+        return sampleSize;
+    }
+
+    /**
+     * Scales the given bitmap down to fit within the given size, keeping its
+     * aspect ratio. The source is left untouched.
+     *
+     * @param source    The bitmap to scale.
+     * @param reqWidth  The maximum width of the result.
+     * @param reqHeight The maximum height of the result.
+     * @return A new bitmap, or the source itself if it already fits.
+     */
+    @NonNull
+    public static Bitmap scaleToFit(@NonNull Bitmap source, int reqWidth, int reqHeight) {
+        return scaleToFit(source, reqWidth, reqHeight, null);
+    }
+
+    /**
+     * Scales the given bitmap down to fit within the given size, drawing it
+     * into a pooled bitmap when one fits. The source is left untouched.
+     */
+    @NonNull
+    static Bitmap scaleToFit(@NonNull Bitmap source, int reqWidth, int reqHeight, @Nullable BitmapPool pool) {
+        double scale = Math.min((double) reqWidth / source.getWidth(), (double) reqHeight / source.getHeight());
+
+        if (scale >= 1)
+            return source;
+
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        Bitmap target = pool != null ? pool.get(width, height, Bitmap.Config.ARGB_8888) : null;
+
+        if (target != null) {
+            target.eraseColor(Color.TRANSPARENT);
+        } else {
+            target = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        }
+
+        target.setHasAlpha(source.hasAlpha());
+        new Canvas(target).drawBitmap(source, null, new Rect(0, 0, width, height), new Paint(Paint.FILTER_BITMAP_FLAG));
+
+        return target;
+    }
+}
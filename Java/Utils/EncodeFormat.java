@@ -0,0 +1,31 @@
+package com.example.app.Utils;
+
+/**
+ * Output formats supported by the bitmap encoders of {@link Utils}.
+ */
+public enum EncodeFormat {
+    /**
+     * Lossy JPEG. Transparency is lost.
+     */
+    JPEG,
+    /**
+     * Lossy WebP, usually smaller than JPEG at the same visual quality.
+     */
+    WEBP_LOSSY,
+    /**
+     * Lossless WebP. The quality only sets the compression effort, so the
+     * size cannot be traded against quality. It is encoded as lossy WebP at
+     * the highest quality before API level 29.
+     */
+    WEBP_LOSSLESS;
+
+    /**
+     * Returns true if the size of this format cannot be lowered by lowering
+     * the quality.
+     *
+     * @return True for lossless WebP.
+     */
+    public boolean isLossless() {
+        return this == WEBP_LOSSLESS;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.app.Utils;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Outcome of encoding a bitmap with the encoders of {@link Utils}.
+ */
+public class EncodeResult {
+    private final EncodeFormat format;
+    private final int quality;
+    private final int size;
+    private final int attempts;
+    private final long durationNs;
+
+    EncodeResult(@NonNull EncodeFormat format, int quality, int size, int attempts, long durationNs) {
+        this.format = format;
+        this.quality = quality;
+        this.size = size;
+        this.attempts = attempts;
+        this.durationNs = durationNs;
+    }
+
+    /**
+     * Getter format.
+     *
+     * @return format the bitmap was encoded to
+     */
+    @NonNull
+    public EncodeFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Getter quality.
+     *
+     * @return quality of the encoded bytes, or the compression effort for
+     * lossless formats
+     */
+    public int getQuality() {
+        return quality;
+    }
+
+    /**
+     * Getter size.
+     *
+     * @return bytes of the encoded image
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Getter attempts.
+     *
+     * @return encodes needed to find the quality
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Getter duration.
+     *
+     * @return time in nanoseconds spent encoding, over every attempt
+     */
+    public long getDurationNs() {
+        return durationNs;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return format + "(quality=" + quality + ", size=" + size + ", attempts=" + attempts + ", durationNs=" + durationNs + ")";
+    }
+}
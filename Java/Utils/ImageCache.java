@@ -0,0 +1,241 @@
+package com.example.app.Utils;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of decoded and resized bitmaps keyed by their source and target size.
+ * An in-memory LRU tier capped in bytes sits in front of a disk tier holding
+ * the encoded variants, so after a cold start an image is read back at its
+ * display size instead of being decoded from the full source again. Disk
+ * writes run on a single background thread; the disk tier drops the least
+ * recently used files once it exceeds its byte limit.
+ * <p>
+ * Bitmaps served by the cache are shared and must not be recycled.
+ */
+class ImageCache {
+    private static final int JPEG_QUALITY = 90;
+
+    private final File directory;
+    private final long maxDiskBytes;
+    private final LruCache<String, Bitmap> memory;
+    private final LinkedHashMap<String, Long> diskIndex = new LinkedHashMap<>(16, 0.75f, true);
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong diskEvictions = new AtomicLong();
+    private long diskBytes;
+
+    /**
+     * @param directory    The directory of the disk tier.
+     * @param memoryBytes  The maximum bytes of bitmaps kept in memory.
+     * @param maxDiskBytes The maximum bytes of the disk tier.
+     */
+    ImageCache(@NonNull File directory, int memoryBytes, long maxDiskBytes) {
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        this.memory = new LruCache<String, Bitmap>(memoryBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return Math.max(1, bitmap.getAllocationByteCount());
+            }
+        };
+
+        io.execute(this::loadIndex);
+    }
+
+    /**
+     * Returns the cached bitmap of the given source at the given size, from
+     * memory or else from disk.
+     *
+     * @param source The identity of the source image, such as its URL.
+     * @param width  The width the image was resized to.
+     * @param height The height the image was resized to.
+     * @return The cached bitmap, or null if there is none.
+     */
+    @Nullable
+    Bitmap get(@NonNull String source, int width, int height) {
+        String key = key(source, width, height);
+        Bitmap bitmap = memory.get(key);
+
+        if (bitmap != null) {
+            memoryHits.incrementAndGet();
+            return bitmap;
+        }
+
+        String fileName = fileName(key);
+        File file = new File(directory, fileName);
+
+        synchronized (this) {
+            if (diskIndex.get(fileName) == null && !file.exists()) {
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+
+        bitmap = BitmapFactory.decodeFile(file.getPath(), null);
+
+        if (bitmap == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        file.setLastModified(System.currentTimeMillis());
+        diskHits.incrementAndGet();
+        memory.put(key, bitmap);
+
+        return bitmap;
+    }
+
+    /**
+     * Stores a resized bitmap in memory and, in the background, on disk.
+     *
+     * @param source The identity of the source image, such as its URL.
+     * @param width  The width the image was resized to.
+     * @param height The height the image was resized to.
+     * @param bitmap The resized bitmap. It must not be recycled afterwards.
+     */
+    void put(@NonNull String source, int width, int height, @NonNull Bitmap bitmap) {
+        String key = key(source, width, height);
+
+        memory.put(key, bitmap);
+        io.execute(() -> write(fileName(key), bitmap));
+    }
+
+    /**
+     * Removes every cached bitmap from memory and disk.
+     */
+    void clear() {
+        memory.evictAll();
+
+        io.execute(() -> {
+            synchronized (this) {
+                for (String fileName : diskIndex.keySet()) {
+                    new File(directory, fileName).delete();
+                }
+
+                diskIndex.clear();
+                diskBytes = 0;
+            }
+        });
+    }
+
+    /**
+     * Returns a snapshot of the hit, miss and eviction counters.
+     *
+     * @return The current cache counters.
+     */
+    @NonNull
+    synchronized ImageCacheStats getStats() {
+        return new ImageCacheStats(memoryHits.get(), diskHits.get(), misses.get(), memory.evictionCount(),
+                diskEvictions.get(), memory.size(), diskBytes);
+    }
+
+    private void loadIndex() {
+        File[] files = directory.listFiles();
+        if (files == null) return;
+
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+
+        synchronized (this) {
+            for (File file : files) {
+                if (file.getName().endsWith(".tmp")) {
+                    file.delete();
+                    continue;
+                }
+
+                if (diskIndex.containsKey(file.getName())) continue;
+
+                diskIndex.put(file.getName(), file.length());
+                diskBytes += file.length();
+            }
+
+            trimDisk();
+        }
+    }
+
+    private void write(@NonNull String fileName, @NonNull Bitmap bitmap) {
+        if (bitmap.isRecycled()) return;
+
+        if (!directory.exists()) directory.mkdirs();
+
+        File file = new File(directory, fileName);
+        File temp = new File(directory, fileName + ".tmp");
+        Bitmap.CompressFormat format = bitmap.hasAlpha() ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG;
+
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            if (!bitmap.compress(format, JPEG_QUALITY, out)) {
+                throw new IOException("Could not encode " + fileName);
+            }
+        } catch (IOException e) {
+            temp.delete();
+            return;
+        }
+
+        synchronized (this) {
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                return;
+            }
+
+            Long previous = diskIndex.put(fileName, file.length());
+            if (previous != null) diskBytes -= previous;
+            diskBytes += file.length();
+
+            trimDisk();
+        }
+    }
+
+    private void trimDisk() {
+        Iterator<Map.Entry<String, Long>> oldest = diskIndex.entrySet().iterator();
+
+        while (diskBytes > maxDiskBytes && oldest.hasNext()) {
+            Map.Entry<String, Long> entry = oldest.next();
+            oldest.remove();
+
+            new File(directory, entry.getKey()).delete();
+            diskBytes -= entry.getValue();
+            diskEvictions.incrementAndGet();
+        }
+    }
+
+    @NonNull
+    private static String key(@NonNull String source, int width, int height) {
+        return source + "@" + width + "x" + height;
+    }
+
+    @NonNull
+    private static String fileName(@NonNull String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+
+            for (byte b : digest) {
+                name.append(String.format("%02x", b));
+            }
+
+            return name.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(key.hashCode());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.app.Utils;
+
+/**
+ * Snapshot of the counters of the {@link ImageCache} used by {@link Utils}.
+ */
+public class ImageCacheStats {
+    private final long memoryHits;
+    private final long diskHits;
+    private final long misses;
+    private final long memoryEvictions;
+    private final long diskEvictions;
+    private final long memoryBytes;
+    private final long diskBytes;
+
+    ImageCacheStats(long memoryHits, long diskHits, long misses, long memoryEvictions, long diskEvictions, long memoryBytes, long diskBytes) {
+        this.memoryHits = memoryHits;
+        this.diskHits = diskHits;
+        this.misses = misses;
+        this.memoryEvictions = memoryEvictions;
+        this.diskEvictions = diskEvictions;
+        this.memoryBytes = memoryBytes;
+        this.diskBytes = diskBytes;
+    }
+
+    /**
+     * Getter memory hits.
+     *
+     * @return lookups answered by the in-memory tier
+     */
+    public long getMemoryHits() {
+        return memoryHits;
+    }
+
+    /**
+     * Getter disk hits.
+     *
+     * @return lookups answered by the disk tier
+     */
+    public long getDiskHits() {
+        return diskHits;
+    }
+
+    /**
+     * Getter misses.
+     *
+     * @return lookups neither tier could answer
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Getter memory evictions.
+     *
+     * @return bitmaps dropped from memory to stay under its byte limit
+     */
+    public long getMemoryEvictions() {
+        return memoryEvictions;
+    }
+
+    /**
+     * Getter disk evictions.
+     *
+     * @return files deleted from disk to stay under its byte limit
+     */
+    public long getDiskEvictions() {
+        return diskEvictions;
+    }
+
+    /**
+     * Getter memory bytes.
+     *
+     * @return bytes of bitmaps held in memory
+     */
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    /**
+     * Getter disk bytes.
+     *
+     * @return bytes of encoded images held on disk
+     */
+    public long getDiskBytes() {
+        return diskBytes;
+    }
+
+    /**
+     * Getter hit ratio.
+     *
+     * @return share of lookups answered by either tier, between 0 and 1
+     */
+    public double getHitRatio() {
+        long lookups = memoryHits + diskHits + misses;
+        return lookups == 0 ? 0 : (double) (memoryHits + diskHits) / lookups;
+    }
+}
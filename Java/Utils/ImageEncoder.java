@@ -0,0 +1,181 @@
+package com.example.app.Utils;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodes bitmaps to JPEG or WebP. {@link #encodeWithinBudget} looks for the
+ * highest quality whose output fits a byte budget with a binary search over
+ * the quality; every attempt writes into a buffer of exactly the budget and
+ * is aborted as soon as it overflows, so attempts that are too large stop
+ * early instead of being encoded in full. {@link #encode} is public so the
+ * image upload pipeline of the Api encodes through the same code path.
+ */
+public final class ImageEncoder {
+    static final int MIN_QUALITY = 10;
+    static final int MAX_QUALITY = 95;
+    private static final int LOSSLESS_EFFORT = 75;
+
+    private ImageEncoder() {
+    }
+
+    /**
+     * Encodes the bitmap at the given quality straight into the stream.
+     *
+     * @param bitmap  The bitmap to encode.
+     * @param format  The output format.
+     * @param quality The quality from 0 to 100, or the compression effort for
+     *                lossless formats.
+     * @param out     The stream to write to. It is not closed.
+     * @return True if the bitmap was encoded.
+     */
+    public static boolean encode(@NonNull Bitmap bitmap, @NonNull EncodeFormat format, int quality, @NonNull OutputStream out) {
+        return compress(bitmap, format, quality, out);
+    }
+
+    /**
+     * Encodes the bitmap at the highest quality whose output fits the buffer.
+     * Lossless formats are encoded once.
+     *
+     * @param bitmap The bitmap to encode.
+     * @param format The output format.
+     * @param buffer The buffer to write to; its length is the byte budget.
+     * @return The quality and size of the bytes written at the start of the
+     *         buffer, or null if even the lowest quality does not fit.
+     */
+    @Nullable
+    static EncodeResult encodeWithinBudget(@NonNull Bitmap bitmap, @NonNull EncodeFormat format, @NonNull byte[] buffer) {
+        long start = System.nanoTime();
+        byte[] scratch = null;
+        byte[] best = null;
+        int bestSize = -1;
+        int bestQuality = -1;
+        int attempts = 0;
+        int low = format.isLossless() ? LOSSLESS_EFFORT : MIN_QUALITY;
+        int high = format.isLossless() ? LOSSLESS_EFFORT : MAX_QUALITY;
+        int quality = high;
+
+        while (low <= high) {
+            byte[] target = buffer;
+
+            if (best == buffer) {
+                if (scratch == null) scratch = new byte[buffer.length];
+                target = scratch;
+            }
+
+            BoundedStream out = new BoundedStream(target);
+            attempts++;
+
+            if (compress(bitmap, format, quality, out)) {
+                best = target;
+                bestSize = out.count;
+                bestQuality = quality;
+                low = quality + 1;
+            } else {
+                high = quality - 1;
+            }
+
+            quality = (low + high) >>> 1;
+        }
+
+        if (best == null) return null;
+
+        if (best != buffer) System.arraycopy(best, 0, buffer, 0, bestSize);
+
+        return new EncodeResult(format, bestQuality, bestSize, attempts, System.nanoTime() - start);
+    }
+
+    /**
+     * Encodes the bitmap once per format at the same quality and measures the
+     * time and output size of each, without keeping the bytes.
+     *
+     * @param bitmap  The bitmap to encode.
+     * @param quality The quality from 0 to 100, used as the compression
+     *                effort for lossless formats.
+     * @return One result per format, or fewer if a format could not encode.
+     */
+    @NonNull
+    static List<EncodeResult> compare(@NonNull Bitmap bitmap, int quality) {
+        List<EncodeResult> results = new ArrayList<>();
+
+        for (EncodeFormat format : EncodeFormat.values()) {
+            CountingStream out = new CountingStream();
+            long start = System.nanoTime();
+
+            if (compress(bitmap, format, quality, out)) {
+                results.add(new EncodeResult(format, quality, out.count, 1, System.nanoTime() - start));
+            }
+        }
+
+        return results;
+    }
+
+    private static boolean compress(@NonNull Bitmap bitmap, @NonNull EncodeFormat format, int quality, @NonNull OutputStream out) {
+        switch (format) {
+            case JPEG:
+                return bitmap.compress(Bitmap.CompressFormat.JPEG, quality, out);
+            case WEBP_LOSSY:
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+                    return bitmap.compress(Bitmap.CompressFormat.WEBP_LOSSY, quality, out);
+                }
+
+                return bitmap.compress(Bitmap.CompressFormat.WEBP, Math.min(quality, 99), out);
+            default:
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+                    return bitmap.compress(Bitmap.CompressFormat.WEBP_LOSSLESS, quality, out);
+                }
+
+                return bitmap.compress(Bitmap.CompressFormat.WEBP, 100, out);
+        }
+    }
+
+    /**
+     * Writes into a fixed buffer and fails once it is full, which makes the
+     * encoder give up on the attempt.
+     */
+    private static final class BoundedStream extends OutputStream {
+        private final byte[] buffer;
+        private int count;
+
+        BoundedStream(@NonNull byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count >= buffer.length) throw new IOException("The byte budget was exceeded.");
+
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(@NonNull byte[] b, int off, int len) throws IOException {
+            if (len > buffer.length - count) throw new IOException("The byte budget was exceeded.");
+
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+        }
+    }
+
+    private static final class CountingStream extends OutputStream {
+        private int count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(@NonNull byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
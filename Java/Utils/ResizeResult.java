@@ -0,0 +1,114 @@
+package com.example.app.Utils;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A bitmap resized tile by tile from an encoded image, with the memory the
+ * resize needed compared to decoding the whole image.
+ */
+public class ResizeResult {
+    private final Bitmap bitmap;
+    private final int sourceWidth;
+    private final int sourceHeight;
+    private final int sampleSize;
+    private final int tiles;
+    private final int workers;
+    private final long peakBytes;
+    private final long durationNs;
+
+    ResizeResult(@NonNull Bitmap bitmap, int sourceWidth, int sourceHeight, int sampleSize, int tiles, int workers, long peakBytes, long durationNs) {
+        this.bitmap = bitmap;
+        this.sourceWidth = sourceWidth;
+        this.sourceHeight = sourceHeight;
+        this.sampleSize = sampleSize;
+        this.tiles = tiles;
+        this.workers = workers;
+        this.peakBytes = peakBytes;
+        this.durationNs = durationNs;
+    }
+
+    /**
+     * Getter bitmap.
+     *
+     * @return the resized bitmap
+     */
+    @NonNull
+    public Bitmap getBitmap() {
+        return bitmap;
+    }
+
+    /**
+     * Getter source width.
+     *
+     * @return width in pixels of the encoded image
+     */
+    public int getSourceWidth() {
+        return sourceWidth;
+    }
+
+    /**
+     * Getter source height.
+     *
+     * @return height in pixels of the encoded image
+     */
+    public int getSourceHeight() {
+        return sourceHeight;
+    }
+
+    /**
+     * Getter sample size.
+     *
+     * @return power-of-two factor the tiles were decoded at
+     */
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * Getter tiles.
+     *
+     * @return tiles the image was split into
+     */
+    public int getTiles() {
+        return tiles;
+    }
+
+    /**
+     * Getter workers.
+     *
+     * @return tiles decoded at once at most
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Getter peak bytes.
+     *
+     * @return most bitmap memory held at once: the output plus the tiles
+     * being decoded
+     */
+    public long getPeakBytes() {
+        return peakBytes;
+    }
+
+    /**
+     * Getter full decode bytes.
+     *
+     * @return bitmap memory a full ARGB_8888 decode of the image would need
+     */
+    public long getFullDecodeBytes() {
+        return (long) sourceWidth * sourceHeight * 4;
+    }
+
+    /**
+     * Getter duration.
+     *
+     * @return time in nanoseconds spent resizing
+     */
+    public long getDurationNs() {
+        return durationNs;
+    }
+}
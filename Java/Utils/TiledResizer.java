@@ -0,0 +1,294 @@
+package com.example.app.Utils;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resizes an encoded image without ever decoding it whole. The source is
+ * split into tiles that are decoded one by one with a BitmapRegionDecoder at
+ * a power-of-two sample size and drawn scaled into the output bitmap, so the
+ * peak memory is the output plus one tile per worker, whatever the size of
+ * the source. Tiles are decoded with a small margin so the filtering at
+ * their edges does not leave seams.
+ * <p>
+ * With more than one worker, each worker opens its own decoder, since the
+ * calls of a single decoder are serialized, and reuses its tile bitmap for
+ * the next tile when the padded region fits in it. Tiles at the top and left
+ * edges have no margin on that side, so the first interior tile needs a
+ * larger bitmap. Workers that have not started by the time every tile is
+ * taken are cancelled instead of being waited for.
+ */
+final class TiledResizer {
+    /**
+     * Opens a new region decoder of the source image.
+     */
+    interface Source {
+        @NonNull
+        BitmapRegionDecoder open() throws IOException;
+    }
+
+    private static final int TILE_PIXELS = 1024;
+    private static final int MARGIN_PIXELS = 2;
+    private static final ExecutorService workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+    private TiledResizer() {
+    }
+
+    /**
+     * Resizes the source image to the given size.
+     *
+     * @param source      Opens the decoders of the source image.
+     * @param width       The width of the output.
+     * @param height      The height of the output.
+     * @param parallelism The maximum number of tiles decoded at once. With 1
+     *                    every tile is decoded on the calling thread.
+     * @return The resized bitmap and the memory used to build it.
+     * @throws IOException If the source could not be decoded.
+     */
+    @NonNull
+    static ResizeResult resize(@NonNull Source source, int width, int height, int parallelism) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("The target size must be positive.");
+        }
+
+        long start = System.nanoTime();
+        BitmapRegionDecoder decoder = source.open();
+        int sourceWidth = decoder.getWidth();
+        int sourceHeight = decoder.getHeight();
+        double scaleX = (double) width / sourceWidth;
+        double scaleY = (double) height / sourceHeight;
+
+        int sampleSize = 1;
+        while (sampleSize * 2 * scaleX <= 1 && sampleSize * 2 * scaleY <= 1) {
+            sampleSize *= 2;
+        }
+
+        int tileSize = TILE_PIXELS * sampleSize;
+        List<Rect> tiles = new ArrayList<>();
+
+        for (int top = 0; top < sourceHeight; top += tileSize) {
+            for (int left = 0; left < sourceWidth; left += tileSize) {
+                tiles.add(new Rect(left, top, Math.min(sourceWidth, left + tileSize), Math.min(sourceHeight, top + tileSize)));
+            }
+        }
+
+        Bitmap output = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Job job = new Job(source, tiles, new Canvas(output), sourceWidth, sourceHeight, scaleX, scaleY, sampleSize);
+        int workerCount = Math.max(1, Math.min(parallelism, tiles.size()));
+
+        List<Future<Void>> futures = new ArrayList<>();
+        List<AtomicBoolean> claims = new ArrayList<>();
+
+        for (int i = 1; i < workerCount; i++) {
+            // Whoever claims the worker first decides whether it runs, so a
+            // worker cancelled here never draws into the output.
+            AtomicBoolean claim = new AtomicBoolean();
+            Callable<Void> worker = job.worker(null);
+            claims.add(claim);
+            futures.add(workers.submit(() -> claim.compareAndSet(false, true) ? worker.call() : null));
+        }
+
+        Throwable failure = null;
+        boolean interrupted = false;
+
+        try {
+            job.worker(decoder).call();
+        } catch (Exception e) {
+            failure = e;
+            job.stop();
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            if (claims.get(i).compareAndSet(false, true)) futures.get(i).cancel(false);
+        }
+
+        for (Future<Void> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (CancellationException e) {
+                    break;
+                } catch (ExecutionException e) {
+                    if (failure == null) failure = e.getCause();
+                    job.stop();
+                    break;
+                } catch (InterruptedException e) {
+                    if (failure == null) failure = new InterruptedIOException("The resize was interrupted.");
+                    interrupted = true;
+                    job.stop();
+                }
+            }
+        }
+
+        decoder.recycle();
+        if (interrupted) Thread.currentThread().interrupt();
+
+        if (failure != null) {
+            output.recycle();
+
+            if (failure instanceof IOException) throw (IOException) failure;
+            if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+            if (failure instanceof Error) throw (Error) failure;
+            throw new IOException(failure);
+        }
+
+        return new ResizeResult(output, sourceWidth, sourceHeight, sampleSize, tiles.size(), workerCount,
+                (long) output.getAllocationByteCount() + job.peakTileBytes.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * The tiles of one resize, shared by its workers, which take the next
+     * tile until none is left.
+     */
+    private static final class Job {
+        private final Source source;
+        private final List<Rect> tiles;
+        private final Canvas canvas;
+        private final int sourceWidth;
+        private final int sourceHeight;
+        private final double scaleX;
+        private final double scaleY;
+        private final int sampleSize;
+        private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicLong tileBytes = new AtomicLong();
+        private final AtomicLong peakTileBytes = new AtomicLong();
+
+        Job(@NonNull Source source, @NonNull List<Rect> tiles, @NonNull Canvas canvas, int sourceWidth, int sourceHeight, double scaleX, double scaleY, int sampleSize) {
+            this.source = source;
+            this.tiles = tiles;
+            this.canvas = canvas;
+            this.sourceWidth = sourceWidth;
+            this.sourceHeight = sourceHeight;
+            this.scaleX = scaleX;
+            this.scaleY = scaleY;
+            this.sampleSize = sampleSize;
+        }
+
+        /**
+         * Makes the workers stop after their current tile.
+         */
+        void stop() {
+            next.set(tiles.size());
+        }
+
+        /**
+         * Returns a worker drawing tiles with the given decoder, or with a
+         * decoder of its own if it is null.
+         */
+        @NonNull
+        Callable<Void> worker(@Nullable BitmapRegionDecoder shared) {
+            return () -> {
+                if (shared == null && next.get() >= tiles.size()) return null;
+
+                BitmapRegionDecoder decoder = shared != null ? shared : source.open();
+                Bitmap tile = null;
+
+                try {
+                    for (int i = next.getAndIncrement(); i < tiles.size(); i = next.getAndIncrement()) {
+                        tile = draw(decoder, tiles.get(i), tile);
+                    }
+                } finally {
+                    if (tile != null) {
+                        tileBytes.addAndGet(-tile.getAllocationByteCount());
+                        tile.recycle();
+                    }
+
+                    if (shared == null) decoder.recycle();
+                }
+
+                return null;
+            };
+        }
+
+        /**
+         * Decodes one tile, reusing the previous tile bitmap when the padded
+         * region fits in it and the decoder accepts it, and draws it into the
+         * output. A region larger than the reused bitmap would be clipped to
+         * it, leaving a seam.
+         */
+        @NonNull
+        private Bitmap draw(@NonNull BitmapRegionDecoder decoder, @NonNull Rect region, @Nullable Bitmap reuse) {
+            int margin = MARGIN_PIXELS * sampleSize;
+            Rect padded = new Rect(Math.max(0, region.left - margin), Math.max(0, region.top - margin),
+                    Math.min(sourceWidth, region.right + margin), Math.min(sourceHeight, region.bottom + margin));
+
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inSampleSize = sampleSize;
+            options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+
+            int decodedWidth = (padded.width() + sampleSize - 1) / sampleSize;
+            int decodedHeight = (padded.height() + sampleSize - 1) / sampleSize;
+            boolean fits = reuse != null && reuse.getWidth() >= decodedWidth && reuse.getHeight() >= decodedHeight;
+            options.inBitmap = fits ? reuse : null;
+
+            Bitmap tile;
+
+            try {
+                tile = decoder.decodeRegion(padded, options);
+            } catch (IllegalArgumentException e) {
+                if (options.inBitmap == null) throw e;
+
+                options.inBitmap = null;
+                tile = decoder.decodeRegion(padded, options);
+            }
+
+            if (tile == null) {
+                throw new IllegalStateException("Could not decode the region " + region.left + "," + region.top);
+            }
+
+            if (tile != reuse) {
+                updatePeak(tileBytes.addAndGet(tile.getAllocationByteCount()));
+
+                if (reuse != null) {
+                    tileBytes.addAndGet(-reuse.getAllocationByteCount());
+                    reuse.recycle();
+                }
+            }
+
+            int srcLeft = (region.left - padded.left) / sampleSize;
+            int srcTop = (region.top - padded.top) / sampleSize;
+            Rect src = new Rect(srcLeft, srcTop,
+                    Math.min(tile.getWidth(), srcLeft + (region.width() + sampleSize - 1) / sampleSize),
+                    Math.min(tile.getHeight(), srcTop + (region.height() + sampleSize - 1) / sampleSize));
+            Rect dst = new Rect((int) Math.round(region.left * scaleX), (int) Math.round(region.top * scaleY),
+                    (int) Math.round(region.right * scaleX), (int) Math.round(region.bottom * scaleY));
+
+            synchronized (canvas) {
+                canvas.drawBitmap(tile, src, dst, paint);
+            }
+
+            return tile;
+        }
+
+        private void updatePeak(long bytes) {
+            long peak = peakTileBytes.get();
+
+            while (bytes > peak && !peakTileBytes.compareAndSet(peak, bytes)) {
+                peak = peakTileBytes.get();
+            }
+        }
+    }
+}
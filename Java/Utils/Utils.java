@@ -9,6 +9,7 @@ import android.content.Intent;
 import android.content.res.Configuration;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
 import android.graphics.drawable.Drawable;
 import android.net.ConnectivityManager;
 import android.net.Uri;
@@ -25,6 +26,7 @@ import android.widget.EditText;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import androidx.core.app.NotificationCompat;
 import androidx.core.content.ContextCompat;
@@ -41,6 +43,7 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -56,6 +59,11 @@ import java.util.concurrent.CompletableFuture;
 import com.example.app.Utils.Interfaces.DialogCallback;
 
 class Utils {
+    private static final String IMAGE_CACHE_DIRECTORY = "image_cache";
+    private static final long IMAGE_CACHE_DISK_BYTES = 50L * 1024 * 1024;
+    private static final BitmapPool bitmapPool = new BitmapPool(Runtime.getRuntime().maxMemory() / 8);
+    private static ImageCache imageCache;
+
     /**
      * Shows a short message on the screen at the position of the given view.
      *
@@ -465,6 +473,49 @@ class Utils {
         return Bitmap.createScaledBitmap(bitmap, newWidth, newHeight, true);
     }
 
+    /**
+     * Resizes the image encoded in the given byte array to the given width
+     * and height without decoding it whole. The image is decoded tile by tile
+     * and drawn into the output, so an 8000x6000 scan can be resized with the
+     * memory of the output and a few tiles.
+     *
+     * @param bytes       The encoded image, in JPEG, PNG, WebP or HEIF.
+     * @param newWidth    The new width of the bitmap.
+     * @param newHeight   The new height of the bitmap.
+     * @param parallelism The maximum number of tiles decoded at once, each on
+     *                    its own worker thread. With 1 every tile is decoded
+     *                    on the calling thread.
+     * @return The resized bitmap, with the peak memory used to build it.
+     * @throws IOException If the image could not be decoded.
+     */
+    @NonNull
+    ResizeResult resizeImage(@NonNull byte[] bytes, int newWidth, int newHeight, int parallelism) throws IOException {
+        return TiledResizer.resize(() -> BitmapRegionDecoder.newInstance(bytes, 0, bytes.length, false), newWidth,
+                newHeight, parallelism);
+    }
+
+    /**
+     * Resizes the image stored in the given file to the given width and
+     * height without decoding it whole. The image is decoded tile by tile
+     * and drawn into the output, so an 8000x6000 scan can be resized with the
+     * memory of the output and a few tiles.
+     *
+     * @param file        The file of the encoded image, in JPEG, PNG, WebP or
+     *                    HEIF.
+     * @param newWidth    The new width of the bitmap.
+     * @param newHeight   The new height of the bitmap.
+     * @param parallelism The maximum number of tiles decoded at once, each on
+     *                    its own worker thread. With 1 every tile is decoded
+     *                    on the calling thread.
+     * @return The resized bitmap, with the peak memory used to build it.
+     * @throws IOException If the file could not be read or decoded.
+     */
+    @NonNull
+    ResizeResult resizeImage(@NonNull File file, int newWidth, int newHeight, int parallelism) throws IOException {
+        return TiledResizer.resize(() -> BitmapRegionDecoder.newInstance(file.getPath(), false), newWidth, newHeight,
+                parallelism);
+    }
+
     /**
      * Converts the given bitmap to a byte array using the PNG format with a
      * compression quality of 100.
@@ -479,6 +530,94 @@ class Utils {
         return outputStream.toByteArray();
     }
 
+    /**
+     * Converts the given bitmap to a byte array in the given format, at the
+     * highest quality whose output is at most maxBytes long. Photos encoded
+     * this way are much smaller and faster to upload than the PNG of
+     * {@link #bitmapToByteArray(Bitmap)}.
+     *
+     * @param bitmap   The bitmap to convert.
+     * @param format   The output format.
+     * @param maxBytes The maximum length of the byte array.
+     * @return The encoded bytes, or null if even the lowest quality does not
+     *         fit.
+     */
+    @Nullable
+    byte[] bitmapToByteArray(@NonNull Bitmap bitmap, @NonNull EncodeFormat format, int maxBytes) {
+        byte[] buffer = new byte[maxBytes];
+        EncodeResult result = ImageEncoder.encodeWithinBudget(bitmap, format, buffer);
+
+        return result != null ? Arrays.copyOf(buffer, result.getSize()) : null;
+    }
+
+    /**
+     * Encodes the given bitmap at the given quality straight into the given
+     * stream, without buffering the whole output.
+     *
+     * @param bitmap  The bitmap to encode.
+     * @param format  The output format.
+     * @param quality The quality from 0 to 100, or the compression effort for
+     *                lossless WebP.
+     * @param out     The stream to write to. It is not closed.
+     * @return True if the bitmap was encoded. False otherwise.
+     */
+    boolean encodeBitmap(@NonNull Bitmap bitmap, @NonNull EncodeFormat format, int quality, @NonNull OutputStream out) {
+        return ImageEncoder.encode(bitmap, format, quality, out);
+    }
+
+    /**
+     * Encodes the given bitmap into the given pre-sized buffer at the highest
+     * quality whose output fits it. The quality is found with a binary search;
+     * attempts that overflow the buffer are aborted early.
+     *
+     * @param bitmap The bitmap to encode.
+     * @param format The output format.
+     * @param buffer The buffer to write to. Its length is the byte budget.
+     * @return The quality and size of the bytes written at the start of the
+     *         buffer, or null if even the lowest quality does not fit.
+     */
+    @Nullable
+    EncodeResult encodeBitmapWithinBudget(@NonNull Bitmap bitmap, @NonNull EncodeFormat format, @NonNull byte[] buffer) {
+        return ImageEncoder.encodeWithinBudget(bitmap, format, buffer);
+    }
+
+    /**
+     * Encodes the given bitmap at the highest quality whose output is at most
+     * maxBytes long and writes it to the given stream.
+     *
+     * @param bitmap   The bitmap to encode.
+     * @param format   The output format.
+     * @param maxBytes The byte budget of the output.
+     * @param out      The stream to write to. It is not closed.
+     * @return The quality and size of the bytes written, or null if even the
+     *         lowest quality does not fit, in which case nothing is written.
+     * @throws IOException If the stream could not be written to.
+     */
+    @Nullable
+    EncodeResult encodeBitmapWithinBudget(@NonNull Bitmap bitmap, @NonNull EncodeFormat format, int maxBytes, @NonNull OutputStream out) throws IOException {
+        byte[] buffer = new byte[maxBytes];
+        EncodeResult result = ImageEncoder.encodeWithinBudget(bitmap, format, buffer);
+
+        if (result != null)
+            out.write(buffer, 0, result.getSize());
+
+        return result;
+    }
+
+    /**
+     * Encodes the given bitmap once in every supported format at the same
+     * quality and reports the encode time and output size of each. Running it
+     * over a fixed set of images shows which format suits them best.
+     *
+     * @param bitmap  The bitmap to encode.
+     * @param quality The quality from 0 to 100.
+     * @return One result per format that could be encoded.
+     */
+    @NonNull
+    List<EncodeResult> compareEncodeFormats(@NonNull Bitmap bitmap, int quality) {
+        return ImageEncoder.compare(bitmap, quality);
+    }
+
     /**
      * Converts the given byte array to a bitmap using the BitmapFactory.
      *
@@ -489,6 +628,241 @@ class Utils {
         return BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
     }
 
+    /**
+     * Converts the given byte array to a bitmap that fits within the given
+     * size, keeping its aspect ratio. Only the image bounds are read at first;
+     * the image is then decoded at the largest power-of-two sample size that
+     * still covers the target, into a bitmap taken from the shared pool when
+     * one fits, and finally scaled down to the exact size. A 12 MP photo shown
+     * as a 300 px thumbnail is thus never decoded at full resolution.
+     *
+     * @param bytes     The byte array to convert.
+     * @param reqWidth  The maximum width of the bitmap.
+     * @param reqHeight The maximum height of the bitmap.
+     * @return The bitmap representation of the byte array, or null if the
+     *         bytes are not a supported image.
+     * @throws IllegalArgumentException If the width or height is not positive.
+     */
+    @Nullable
+    Bitmap byteArrayToBitmap(@NonNull byte[] bytes, int reqWidth, int reqHeight) {
+        if (reqWidth <= 0 || reqHeight <= 0) {
+            throw new IllegalArgumentException("The target size must be positive.");
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+
+        if (options.outWidth <= 0 || options.outHeight <= 0)
+            return null;
+
+        int sampleSize = BitmapScaling.calculateSampleSize(options.outWidth, options.outHeight, reqWidth, reqHeight);
+        int sampledWidth = (options.outWidth + sampleSize - 1) / sampleSize;
+        int sampledHeight = (options.outHeight + sampleSize - 1) / sampleSize;
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inMutable = true;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inBitmap = bitmapPool.get(sampledWidth, sampledHeight, Bitmap.Config.ARGB_8888);
+
+        Bitmap decoded;
+
+        try {
+            decoded = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        } catch (IllegalArgumentException e) {
+            if (options.inBitmap == null)
+                throw e;
+
+            bitmapPool.put(options.inBitmap);
+            options.inBitmap = null;
+            decoded = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        }
+
+        if (decoded == null) {
+            if (options.inBitmap != null)
+                bitmapPool.put(options.inBitmap);
+
+            return null;
+        }
+
+        return scaleToFit(decoded, reqWidth, reqHeight);
+    }
+
+    /**
+     * Hands a bitmap that is no longer displayed, such as the one of a
+     * recycled list item, back to the pool used by
+     * {@link #byteArrayToBitmap(byte[], int, int)}. Bitmaps that cannot be
+     * reused are recycled.
+     *
+     * @param bitmap The bitmap to release. It must not be used afterwards.
+     */
+    void recycleBitmap(@NonNull Bitmap bitmap) {
+        bitmapPool.put(bitmap);
+    }
+
+    /**
+     * Sets the maximum bytes of freed bitmaps kept for reuse. The default is
+     * an eighth of the maximum heap size.
+     *
+     * @param maxBytes The maximum bytes of the bitmap pool.
+     */
+    void setBitmapPoolSize(long maxBytes) {
+        bitmapPool.setMaxBytes(maxBytes);
+    }
+
+    /**
+     * Recycles every bitmap kept for reuse, for example when the system
+     * reports low memory.
+     */
+    void clearBitmapPool() {
+        bitmapPool.clear();
+    }
+
+    /**
+     * Returns the hit, miss and eviction counters of the bitmap pool.
+     *
+     * @return A snapshot of the bitmap pool counters.
+     */
+    @NonNull
+    BitmapPoolStats getBitmapPoolStats() {
+        return bitmapPool.getStats();
+    }
+
+    /**
+     * Converts the given byte array to a bitmap that fits within the given
+     * size, going through the image cache first. On a miss the bytes are
+     * decoded with {@link #byteArrayToBitmap(byte[], int, int)} and the result
+     * is cached in memory and on disk under the source and size.
+     *
+     * @param context   The context to use to get the cache directory.
+     * @param source    The identity of the image, such as its URL.
+     * @param bytes     The byte array to convert.
+     * @param reqWidth  The maximum width of the bitmap.
+     * @param reqHeight The maximum height of the bitmap.
+     * @return The bitmap, which is shared and must not be recycled, or null if
+     *         the bytes are not a supported image.
+     */
+    @Nullable
+    Bitmap byteArrayToBitmap(@NonNull Context context, @NonNull String source, @NonNull byte[] bytes, int reqWidth, int reqHeight) {
+        ImageCache cache = imageCache(context);
+        Bitmap bitmap = cache.get(source, reqWidth, reqHeight);
+
+        if (bitmap != null)
+            return bitmap;
+
+        bitmap = byteArrayToBitmap(bytes, reqWidth, reqHeight);
+
+        if (bitmap != null)
+            cache.put(source, reqWidth, reqHeight, bitmap);
+
+        return bitmap;
+    }
+
+    /**
+     * Resizes a given bitmap to the given width and height, going through the
+     * image cache first. On a miss the bitmap is resized with
+     * {@link #resizeImage(Bitmap, int, int)} and the result is cached in
+     * memory and on disk under the source and size.
+     *
+     * @param context   The context to use to get the cache directory.
+     * @param source    The identity of the image, such as its URL.
+     * @param bitmap    The bitmap to be resized.
+     * @param newWidth  The new width of the bitmap.
+     * @param newHeight The new height of the bitmap.
+     * @return The resized bitmap, which is shared and must not be recycled.
+     */
+    @NonNull
+    Bitmap resizeImage(@NonNull Context context, @NonNull String source, @NonNull Bitmap bitmap, int newWidth, int newHeight) {
+        ImageCache cache = imageCache(context);
+        Bitmap resized = cache.get(source, newWidth, newHeight);
+
+        if (resized != null)
+            return resized;
+
+        resized = resizeImage(bitmap, newWidth, newHeight);
+        cache.put(source, newWidth, newHeight, resized);
+
+        return resized;
+    }
+
+    /**
+     * Returns the cached bitmap of the given image at the given size, if it
+     * is still in memory or on disk.
+     *
+     * @param context The context to use to get the cache directory.
+     * @param source  The identity of the image, such as its URL.
+     * @param width   The width the image was resized to.
+     * @param height  The height the image was resized to.
+     * @return The cached bitmap, which is shared and must not be recycled, or
+     *         null if there is none.
+     */
+    @Nullable
+    Bitmap getCachedBitmap(@NonNull Context context, @NonNull String source, int width, int height) {
+        return imageCache(context).get(source, width, height);
+    }
+
+    /**
+     * Stores an already resized bitmap in the image cache.
+     *
+     * @param context The context to use to get the cache directory.
+     * @param source  The identity of the image, such as its URL.
+     * @param width   The width the image was resized to.
+     * @param height  The height the image was resized to.
+     * @param bitmap  The resized bitmap. It must not be recycled afterwards.
+     */
+    void putCachedBitmap(@NonNull Context context, @NonNull String source, int width, int height, @NonNull Bitmap bitmap) {
+        imageCache(context).put(source, width, height, bitmap);
+    }
+
+    /**
+     * Removes every image from the memory and disk tiers of the image cache.
+     *
+     * @param context The context to use to get the cache directory.
+     */
+    void clearImageCache(@NonNull Context context) {
+        imageCache(context).clear();
+    }
+
+    /**
+     * Returns the hit, miss, eviction and size counters of the image cache.
+     *
+     * @param context The context to use to get the cache directory.
+     * @return A snapshot of the image cache counters.
+     */
+    @NonNull
+    ImageCacheStats getImageCacheStats(@NonNull Context context) {
+        return imageCache(context).getStats();
+    }
+
+    /**
+     * Returns the image cache shared by every Utils instance, creating it in
+     * the application's cache directory on first use.
+     */
+    @NonNull
+    private static synchronized ImageCache imageCache(@NonNull Context context) {
+        if (imageCache == null) {
+            File directory = new File(context.getApplicationContext().getCacheDir(), IMAGE_CACHE_DIRECTORY);
+            int memoryBytes = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8);
+
+            imageCache = new ImageCache(directory, memoryBytes, IMAGE_CACHE_DISK_BYTES);
+        }
+
+        return imageCache;
+    }
+
+    /**
+     * Scales the given bitmap down to fit within the given size, drawing it
+     * into a pooled bitmap when one fits. The source goes back to the pool.
+     */
+    @NonNull
+    private Bitmap scaleToFit(@NonNull Bitmap source, int reqWidth, int reqHeight) {
+        Bitmap target = BitmapScaling.scaleToFit(source, reqWidth, reqHeight, bitmapPool);
+        if (target != source) bitmapPool.put(source);
+
+        return target;
+    }
+
     /**
      * Converts the given JSONObject into a string that is formatted for
      * human-readability. The string will be indented with four spaces for
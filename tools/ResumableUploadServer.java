@@ -0,0 +1,206 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stand-in server for the resumable upload protocol of ResumableUpload, which
+ * kills connections in the middle of chunks so interrupted uploads can be
+ * reproduced on a device or emulator.
+ * <p>
+ * Run it with a JDK 11 or later:
+ * <pre>
+ * java tools/ResumableUploadServer.java [port] [dropRate] [seed]
+ * </pre>
+ * and point {@code Api.uploadResumable} at {@code http://<host>:<port>/upload}
+ * (10.0.2.2 from the emulator). For each chunk, with probability dropRate, the
+ * server either closes the connection after reading half of the body, or
+ * stores the whole chunk and closes the connection before answering, so the
+ * acknowledgement is lost. The same seed drops the same chunks on every run.
+ * <p>
+ * Once an upload is complete the server prints its size and SHA-256, which
+ * must match {@code sha256sum} of the uploaded file; a gap, a duplicated
+ * byte range or a chunk out of order is reported and answered with 409.
+ */
+public class ResumableUploadServer {
+    private static final Pattern CHUNK_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+    private static final Pattern QUERY_RANGE = Pattern.compile("bytes \\*/(\\d+)");
+
+    private final Map<String, ByteArrayOutputStream> uploads = new ConcurrentHashMap<>();
+    private final double dropRate;
+    private final Random random;
+    private int dropped;
+
+    private ResumableUploadServer(double dropRate, long seed) {
+        this.dropRate = dropRate;
+        this.random = new Random(seed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        double dropRate = args.length > 1 ? Double.parseDouble(args[1]) : 0.3;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+
+        ResumableUploadServer server = new ResumableUploadServer(dropRate, seed);
+        HttpServer http = HttpServer.create(new InetSocketAddress(port), 0);
+        http.createContext("/upload", server::handle);
+        http.start();
+
+        System.out.println("Listening on :" + port + "/upload, dropRate=" + dropRate + ", seed=" + seed);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"PUT".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, null, "PUT only");
+                return;
+            }
+
+            String uploadId = exchange.getRequestHeaders().getFirst("Upload-Id");
+            String contentRange = exchange.getRequestHeaders().getFirst("Content-Range");
+
+            if (uploadId == null || contentRange == null) {
+                respond(exchange, 400, null, "Missing Upload-Id or Content-Range");
+                return;
+            }
+
+            ByteArrayOutputStream received = uploads.computeIfAbsent(uploadId, id -> new ByteArrayOutputStream());
+            Matcher query = QUERY_RANGE.matcher(contentRange);
+
+            if (query.matches()) {
+                answer(exchange, uploadId, received, Long.parseLong(query.group(1)));
+                return;
+            }
+
+            Matcher chunk = CHUNK_RANGE.matcher(contentRange);
+
+            if (!chunk.matches()) {
+                respond(exchange, 400, null, "Bad Content-Range: " + contentRange);
+                return;
+            }
+
+            long start = Long.parseLong(chunk.group(1));
+            long end = Long.parseLong(chunk.group(2));
+            long total = Long.parseLong(chunk.group(3));
+            int length = (int) (end - start + 1);
+            int drop = nextDrop();
+
+            if (drop == 1) {
+                readFully(exchange.getRequestBody(), length / 2);
+                log(uploadId, "killed connection in the middle of bytes " + start + "-" + end);
+                exchange.close();
+                return;
+            }
+
+            byte[] body = readFully(exchange.getRequestBody(), length);
+
+            synchronized (received) {
+                if (start != received.size()) {
+                    log(uploadId, "ERROR: chunk starts at " + start + " but " + received.size() + " bytes were received");
+                    respond(exchange, 409, null, "Expected offset " + received.size());
+                    return;
+                }
+
+                received.write(body, 0, body.length);
+            }
+
+            if (drop == 2) {
+                log(uploadId, "stored bytes " + start + "-" + end + " and killed connection before answering");
+                exchange.close();
+                return;
+            }
+
+            answer(exchange, uploadId, received, total);
+        } catch (IOException e) {
+            log("-", "connection error: " + e.getMessage());
+            exchange.close();
+        }
+    }
+
+    /**
+     * Answers 308 with the received range while bytes are missing, and 200
+     * once the whole file was received.
+     */
+    private void answer(HttpExchange exchange, String uploadId, ByteArrayOutputStream received, long total) throws IOException {
+        byte[] data;
+
+        synchronized (received) {
+            data = received.toByteArray();
+        }
+
+        if (data.length < total) {
+            String range = data.length > 0 ? "bytes=0-" + (data.length - 1) : null;
+            respond(exchange, 308, range, "");
+            return;
+        }
+
+        String digest = sha256(data);
+        log(uploadId, "complete: " + data.length + " bytes, sha256 " + digest + ", " + dropped + " connections killed so far");
+        respond(exchange, 200, null, "{\"size\":" + data.length + ",\"sha256\":\"" + digest + "\"}");
+    }
+
+    /**
+     * Returns 0 to keep the connection, 1 to kill it mid-body and 2 to kill it
+     * after storing the chunk.
+     */
+    private synchronized int nextDrop() {
+        if (random.nextDouble() >= dropRate) return 0;
+
+        dropped++;
+        return random.nextBoolean() ? 1 : 2;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String range, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+        if (range != null) exchange.getResponseHeaders().set("Range", range);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            if (bytes.length > 0) out.write(bytes);
+        }
+    }
+
+    private static byte[] readFully(InputStream in, int length) throws IOException {
+        byte[] data = new byte[length];
+        int read = 0;
+
+        while (read < length) {
+            int count = in.read(data, read, length - read);
+            if (count < 0) throw new IOException("Body ended after " + read + " of " + length + " bytes");
+            read += count;
+        }
+
+        return data;
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            StringBuilder hex = new StringBuilder();
+
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(data)) {
+                hex.append(String.format("%02x", b));
+            }
+
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void log(String uploadId, String message) {
+        System.out.println("[" + uploadId + "] " + message);
+    }
+}